@@ -0,0 +1,164 @@
+package ru.yandex.practicum.manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Приблизительная частота чтений задач по id и самые читаемые задачи.
+// Частоты — в count-min sketch: DEPTH строк по width счётчиков, у каждой строки своя хеш-функция,
+// оценка — минимум по строкам (завышена из-за коллизий, но не занижена). Память постоянна:
+// DEPTH * width счётчиков и topSize кандидатов, сколько бы задач ни читали.
+// Каждые sampleSize чтений все счётчики делятся пополам: старые чтения весят всё меньше
+// (экспоненциальное затухание), и рейтинг следует за тем, что читают сейчас.
+// Запись чтения — DEPTH умножений и инкрементов без блокировок; при гонке инкремент может
+// потеряться, для приблизительной статистики это допустимо. Блокировка берётся, только когда
+// задача не из рейтинга заметно обогнала самую слабую из рейтинга
+public class AccessStatistics {
+    private static final int DEPTH = 4;
+    // Нечётные множители хеш-функций строк
+    private static final int SEED_0 = 0x9E3779B9;
+    private static final int SEED_1 = 0x85EBCA6B;
+    private static final int SEED_2 = 0xC2B2AE35;
+    private static final int SEED_3 = 0x27D4EB2F;
+    private static final int DEFAULT_WIDTH = 4096;
+    private static final int DEFAULT_TOP_SIZE = 16;
+
+    public record Entry(int id, int estimate) {
+    }
+
+    private final int[] counters;
+    private final int width;
+    private final int shift;
+    private final int sampleSize;
+    private int recorded;
+
+    // Рейтинг: id кандидатов и их оценки на момент последнего пересчёта
+    private final int[] topIds;
+    private final int[] topEstimates;
+    private volatile int topCount;
+    // Оценка, которую нужно превысить, чтобы попасть в заполненный рейтинг
+    private volatile int admission;
+
+    public AccessStatistics() {
+        this(DEFAULT_WIDTH, DEFAULT_TOP_SIZE);
+    }
+
+    public AccessStatistics(int width, int topSize) {
+        if (width < 16 || topSize <= 0) {
+            throw new IllegalArgumentException("Ширина статистики — не меньше 16, размер рейтинга — положительный");
+        }
+        this.width = Integer.highestOneBit(width - 1) << 1;
+        this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(this.width);
+        this.counters = new int[DEPTH * this.width];
+        this.sampleSize = this.width * 10;
+        this.topIds = new int[topSize];
+        this.topEstimates = new int[topSize];
+    }
+
+    // Строки развёрнуты вручную: четыре инкремента не зависят друг от друга и идут параллельно,
+    // в цикле JIT выполнял их последовательно и запись стоила в несколько раз дороже
+    public void record(int id) {
+        int[] counters = this.counters;
+        int a = ++counters[(id * SEED_0) >>> shift];
+        int b = ++counters[width + ((id * SEED_1) >>> shift)];
+        int c = ++counters[2 * width + ((id * SEED_2) >>> shift)];
+        int d = ++counters[3 * width + ((id * SEED_3) >>> shift)];
+        int estimate = Math.min(Math.min(a, b), Math.min(c, d));
+        if (estimate > admission && !isTop(id)) {
+            admit(id, estimate);
+        }
+        if (++recorded >= sampleSize) {
+            decay();
+        }
+    }
+
+    public int estimate(int id) {
+        int a = counters[(id * SEED_0) >>> shift];
+        int b = counters[width + ((id * SEED_1) >>> shift)];
+        int c = counters[2 * width + ((id * SEED_2) >>> shift)];
+        int d = counters[3 * width + ((id * SEED_3) >>> shift)];
+        return Math.min(Math.min(a, b), Math.min(c, d));
+    }
+
+    // Самые читаемые задачи по убыванию оценки
+    public synchronized List<Entry> getTop() {
+        List<Entry> top = new ArrayList<>(topCount);
+        for (int i = 0; i < topCount; i++) {
+            top.add(new Entry(topIds[i], estimate(topIds[i])));
+        }
+        top.sort(Comparator.comparingInt(Entry::estimate).reversed().thenComparingInt(Entry::id));
+        return top;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(counters, 0);
+        recorded = 0;
+        topCount = 0;
+        admission = 0;
+    }
+
+    private boolean isTop(int id) {
+        int count = topCount;
+        for (int i = 0; i < count; i++) {
+            if (topIds[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Новая задача занимает место самой слабой из рейтинга, если обогнала её по свежим оценкам
+    private synchronized void admit(int id, int estimate) {
+        if (isTop(id)) {
+            return;
+        }
+        if (topCount < topIds.length) {
+            topIds[topCount] = id;
+            topEstimates[topCount] = estimate;
+            topCount++;
+        } else {
+            int weakest = refreshTop();
+            if (estimate <= topEstimates[weakest]) {
+                admission = withMargin(topEstimates[weakest]);
+                return;
+            }
+            topIds[weakest] = id;
+            topEstimates[weakest] = estimate;
+        }
+        updateAdmission();
+    }
+
+    private void updateAdmission() {
+        admission = topCount < topIds.length ? 0 : withMargin(topEstimates[refreshTop()]);
+    }
+
+    // Претендент должен обогнать самую слабую с запасом в 1/8, иначе задачи с почти равной
+    // частотой вытесняли бы друг друга на каждом чтении
+    private static int withMargin(int estimate) {
+        return estimate + (estimate >>> 3);
+    }
+
+    // Пересчитывает оценки рейтинга и возвращает позицию самой слабой
+    private int refreshTop() {
+        int weakest = 0;
+        for (int i = 0; i < topCount; i++) {
+            topEstimates[i] = estimate(topIds[i]);
+            if (topEstimates[i] < topEstimates[weakest]) {
+                weakest = i;
+            }
+        }
+        return weakest;
+    }
+
+    private synchronized void decay() {
+        if (recorded < sampleSize) {
+            return;
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>>= 1;
+        }
+        recorded = 0;
+        updateAdmission();
+    }
+}
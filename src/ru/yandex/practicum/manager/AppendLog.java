@@ -0,0 +1,427 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.exceptions.ManagerSaveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Файл только на дозапись. В режиме write-behind записи копируются в буфер очереди и пишутся
+// отдельным виртуальным потоком пачками, fsync выполняется по DurabilityPolicy. Буферов два:
+// пока фоновый поток пишет один, в другой дописываются новые записи, так что на запись
+// ничего не выделяется. При интервальной политике без write-behind fsync по таймеру делает
+// отдельный виртуальный поток: иначе записи, после которых журнал простаивает, ждали бы
+// следующей дозаписи сколько угодно долго
+class AppendLog implements AutoCloseable {
+    interface FileAction {
+        void run() throws IOException;
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final DurabilityPolicy policy;
+    private final boolean writeBehind;
+
+    // Очередь и счётчики прогресса
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasWork = lock.newCondition();
+    private final Condition progress = lock.newCondition();
+    private RecordBuffer queue = new RecordBuffer(BUFFER_SIZE);
+    private RecordBuffer spare = new RecordBuffer(BUFFER_SIZE);
+    private int queued;
+    private long enqueued;
+    private long written;
+    private long synced;
+    private boolean syncRequested;
+    private boolean closed;
+    private IOException failure;
+
+    // Работа с файлом: пишет либо вызывающий поток, либо фоновый, но не оба сразу
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel channel;
+    private long lastSyncNanos = System.nanoTime();
+    // В файл записано то, что ещё не прошло через fsync
+    private boolean unsynced;
+    private final Thread writer;
+    private final Thread syncer;
+
+    AppendLog(Path path, DurabilityPolicy policy, boolean writeBehind) {
+        this.path = path;
+        this.policy = policy;
+        this.writeBehind = writeBehind;
+        this.writer = writeBehind ? Thread.ofVirtual().name("append-log-writer").start(this::runWriter) : null;
+        this.syncer = !writeBehind && policy.getMode() == DurabilityPolicy.Mode.INTERVAL
+                ? Thread.ofVirtual().name("append-log-sync").start(this::runSyncer) : null;
+    }
+
+    void append(byte[] record) {
+        append(record, 0, record.length);
+    }
+
+    void append(byte[] record, int offset, int length) {
+        if (!writeBehind) {
+            appendDirect(record, offset, length);
+            return;
+        }
+
+        long seq;
+        lock.lock();
+        try {
+            checkOpen();
+            queue.writeBytes(record, offset, length);
+            seq = enqueue();
+        } finally {
+            lock.unlock();
+        }
+
+        if (policy.getMode() == DurabilityPolicy.Mode.PER_OPERATION) {
+            awaitSynced(seq);
+        }
+    }
+
+    // Запись из четырёх байт (big-endian) кодируется прямо в буфер очереди
+    void appendInt(int value) {
+        if (!writeBehind) {
+            ioLock.lock();
+            try {
+                checkFailure();
+                buffer.putInt(value);
+                drainBuffer(channel());
+                if (shouldSync(false)) {
+                    sync();
+                }
+            } catch (IOException e) {
+                throw new ManagerSaveException(String.format("Не удалось записать журнал: %s", path.toAbsolutePath()));
+            } finally {
+                ioLock.unlock();
+            }
+            return;
+        }
+
+        long seq;
+        lock.lock();
+        try {
+            checkOpen();
+            queue.writeInt(value);
+            seq = enqueue();
+        } finally {
+            lock.unlock();
+        }
+
+        if (policy.getMode() == DurabilityPolicy.Mode.PER_OPERATION) {
+            awaitSynced(seq);
+        }
+    }
+
+    // Вызывается под lock. Фоновый поток ждёт только пустой очереди, поэтому будить его
+    // нужно лишь первой записью после того, как он забрал предыдущую пачку
+    private long enqueue() {
+        if (queued++ == 0) {
+            hasWork.signal();
+        }
+        return ++enqueued;
+    }
+
+    private void appendDirect(byte[] record, int offset, int length) {
+        ioLock.lock();
+        try {
+            checkFailure();
+            writeBatch(record, offset, length);
+            if (shouldSync(false)) {
+                sync();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось записать журнал: %s", path.toAbsolutePath()));
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    // Дожидается, пока всё поставленное в очередь окажется на диске
+    void flush() {
+        if (!writeBehind) {
+            ioLock.lock();
+            try {
+                sync();
+            } catch (IOException e) {
+                throw new ManagerSaveException(String.format("Не удалось записать журнал: %s", path.toAbsolutePath()));
+            } finally {
+                ioLock.unlock();
+            }
+            return;
+        }
+
+        long seq;
+        lock.lock();
+        try {
+            seq = enqueued;
+            syncRequested = true;
+            hasWork.signal();
+        } finally {
+            lock.unlock();
+        }
+        awaitSynced(seq);
+    }
+
+    // Сбрасывает очередь, закрывает файл и выполняет действие над ним (перемещение, удаление)
+    void reset(FileAction action) {
+        flush();
+        ioLock.lock();
+        try {
+            closeChannel();
+            action.run();
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось переключить журнал: %s", path.toAbsolutePath()));
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (writeBehind) {
+            flush();
+        }
+        Thread worker = writeBehind ? writer : syncer;
+        if (worker != null) {
+            lock.lock();
+            try {
+                closed = true;
+                hasWork.signal();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        ioLock.lock();
+        try {
+            if (channel != null) {
+                channel.force(false);
+            }
+            closeChannel();
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось закрыть журнал: %s", path.toAbsolutePath()));
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private void runWriter() {
+        long intervalNanos = policy.getInterval().toNanos();
+        while (true) {
+            RecordBuffer batch;
+            int count;
+            boolean syncNow;
+            lock.lock();
+            try {
+                while (queued == 0 && !syncRequested && !closed) {
+                    if (policy.getMode() == DurabilityPolicy.Mode.INTERVAL && synced < written) {
+                        hasWork.awaitNanos(intervalNanos);
+                        break;
+                    }
+                    hasWork.await();
+                }
+                if (closed && queued == 0) {
+                    return;
+                }
+                // Буфер прошлой пачки уже записан и становится новой очередью
+                batch = queue;
+                count = queued;
+                spare.clear();
+                queue = spare;
+                spare = batch;
+                queued = 0;
+                syncNow = syncRequested;
+                syncRequested = false;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            long done;
+            long durable = -1;
+            ioLock.lock();
+            try {
+                writeBatch(batch.array(), 0, batch.size());
+                lock.lock();
+                try {
+                    written += count;
+                    done = written;
+                } finally {
+                    lock.unlock();
+                }
+                if (shouldSync(syncNow)) {
+                    sync();
+                    durable = done;
+                }
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    progress.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            } finally {
+                ioLock.unlock();
+            }
+
+            if (durable >= 0) {
+                lock.lock();
+                try {
+                    synced = Math.max(synced, durable);
+                    progress.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    // Раз в интервал сбрасывает на диск всё записанное напрямую, в том числе когда новых
+    // записей нет: потерять можно не больше одного интервала
+    private void runSyncer() {
+        long intervalNanos = policy.getInterval().toNanos();
+        while (true) {
+            lock.lock();
+            try {
+                if (!closed) {
+                    hasWork.awaitNanos(intervalNanos);
+                }
+                if (closed) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            ioLock.lock();
+            try {
+                if (unsynced) {
+                    sync();
+                }
+            } catch (IOException e) {
+                // Ошибку получит следующая запись
+                failure = e;
+                return;
+            } finally {
+                ioLock.unlock();
+            }
+        }
+    }
+
+    private boolean shouldSync(boolean requested) {
+        return switch (policy.getMode()) {
+            case PER_OPERATION -> true;
+            case INTERVAL -> requested || System.nanoTime() - lastSyncNanos >= policy.getInterval().toNanos();
+            case OS_BUFFERED -> requested;
+        };
+    }
+
+    private void writeBatch(byte[] data, int offset, int length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        FileChannel out = channel();
+        int end = offset + length;
+        while (offset < end) {
+            int chunk = Math.min(buffer.remaining(), end - offset);
+            buffer.put(data, offset, chunk);
+            offset += chunk;
+            if (!buffer.hasRemaining()) {
+                drainBuffer(out);
+            }
+        }
+        drainBuffer(out);
+    }
+
+    private void drainBuffer(FileChannel out) throws IOException {
+        buffer.flip();
+        if (buffer.hasRemaining()) {
+            unsynced = true;
+        }
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void sync() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+        unsynced = false;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    boolean hasUnsyncedWrites() {
+        ioLock.lock();
+        try {
+            return unsynced;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private void awaitSynced(long seq) {
+        lock.lock();
+        try {
+            while (synced < seq) {
+                checkFailure();
+                if (!progress.await(1, TimeUnit.SECONDS) && writer != null && !writer.isAlive()) {
+                    checkFailure();
+                    throw new ManagerSaveException(String.format("Поток записи журнала остановлен: %s", path.toAbsolutePath()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException(String.format("Ожидание записи журнала прервано: %s", path.toAbsolutePath()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkOpen() {
+        checkFailure();
+        if (closed) {
+            throw new ManagerSaveException(String.format("Журнал закрыт: %s", path.toAbsolutePath()));
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new ManagerSaveException(String.format("Не удалось записать журнал: %s", path.toAbsolutePath()));
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Двоичный формат снимка: заголовок MAGIC, затем записи с префиксом длины (varint).
+// Запись: тип, статус, флаги, id (varint), epicId (только подзадачи), строки UTF-8,
+// время начала в минутах от эпохи (zigzag varint) и длительность в минутах
+final class BinaryTaskCodec {
+    static final byte[] MAGIC = {'K', 'B', 'N', 1};
+
+    private static final int HAS_TITLE = 1;
+    private static final int HAS_DESCRIPTION = 1 << 1;
+    private static final int HAS_START_TIME = 1 << 2;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final RecordBuffer payload = new RecordBuffer(256);
+
+    // Позиция разбора текущей записи
+    private byte[] in;
+    private int pos;
+
+    static boolean hasMagic(byte[] header, int length) {
+        if (length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void encode(Task task, RecordBuffer out) {
+        payload.clear();
+        encodeBody(task, payload);
+        out.writeVarInt(payload.size());
+        out.writeBytes(payload.array(), 0, payload.size());
+    }
+
+    // Тело записи без префикса длины
+    void encodeBody(Task task, RecordBuffer payload) {
+        int flags = 0;
+        if (task.getTitle() != null) flags |= HAS_TITLE;
+        if (task.getDescription() != null) flags |= HAS_DESCRIPTION;
+        if (task.getStartTime() != null) flags |= HAS_START_TIME;
+
+        payload.writeByte(typeOf(task).ordinal());
+        payload.writeByte(task.getStatus().ordinal());
+        payload.writeByte(flags);
+        payload.writeVarInt(task.getId());
+        if (task instanceof Subtask sub) {
+            payload.writeVarInt(sub.getEpicId());
+        }
+        if (task.getTitle() != null) {
+            payload.writeString(task.getTitle());
+        }
+        if (task.getDescription() != null) {
+            payload.writeString(task.getDescription());
+        }
+        if (task.getStartTime() != null) {
+            long epochMinute = Math.floorDiv(task.getStartTime().toEpochSecond(ZoneOffset.UTC), 60);
+            payload.writeVarLong((epochMinute << 1) ^ (epochMinute >> 63));
+        }
+        payload.writeVarLong(task.getDuration().toMinutes());
+    }
+
+    // Разбирает тело записи без префикса длины
+    Task decode(byte[] data, int offset, int length) {
+        in = data;
+        pos = offset;
+        int end = offset + length;
+
+        TaskType type = TYPES[in[pos++]];
+        Status status = STATUSES[in[pos++]];
+        int flags = in[pos++];
+        int id = readVarInt();
+        int epicId = type == TaskType.SUBTASK ? readVarInt() : 0;
+        String title = (flags & HAS_TITLE) != 0 ? readString() : null;
+        String description = (flags & HAS_DESCRIPTION) != 0 ? readString() : null;
+        LocalDateTime startTime = null;
+        if ((flags & HAS_START_TIME) != 0) {
+            long zigzag = readVarLong();
+            long epochMinute = (zigzag >>> 1) ^ -(zigzag & 1);
+            startTime = LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+        }
+        Duration duration = Duration.ofMinutes(readVarLong());
+
+        if (pos != end) {
+            throw new IllegalArgumentException(String.format("Повреждённая запись задачи id=%d", id));
+        }
+
+        Task task = switch (type) {
+            case TASK -> new Task(title, description, status);
+            case EPIC -> new Epic(title, description, status);
+            case SUBTASK -> new Subtask(title, description, status, epicId);
+        };
+        task.setId(id);
+        task.setStartTime(startTime);
+        task.setDuration(duration);
+        return task;
+    }
+
+    static TaskType typeOf(Task task) {
+        if (task instanceof Subtask) {
+            return TaskType.SUBTASK;
+        } else if (task instanceof Epic) {
+            return TaskType.EPIC;
+        }
+        return TaskType.TASK;
+    }
+
+    private int readVarInt() {
+        int result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in[pos++];
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+
+    private long readVarLong() {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+
+    private String readString() {
+        int length = readVarInt();
+        String value = new String(in, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return value;
+    }
+}
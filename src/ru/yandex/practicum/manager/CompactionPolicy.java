@@ -0,0 +1,45 @@
+package ru.yandex.practicum.manager;
+
+import java.time.Duration;
+
+public class CompactionPolicy {
+    // Нулевое значение или null отключает соответствующий триггер
+    private long maxJournalBytes;
+    private long maxJournalRecords;
+    private Duration maxInterval;
+
+    public CompactionPolicy() {
+        this.maxJournalBytes = 64L * 1024 * 1024;
+        this.maxJournalRecords = 100_000;
+        this.maxInterval = null;
+    }
+
+    public long getMaxJournalBytes() {
+        return maxJournalBytes;
+    }
+
+    public void setMaxJournalBytes(long maxJournalBytes) {
+        this.maxJournalBytes = maxJournalBytes;
+    }
+
+    public long getMaxJournalRecords() {
+        return maxJournalRecords;
+    }
+
+    public void setMaxJournalRecords(long maxJournalRecords) {
+        this.maxJournalRecords = maxJournalRecords;
+    }
+
+    public Duration getMaxInterval() {
+        return maxInterval;
+    }
+
+    public void setMaxInterval(Duration maxInterval) {
+        this.maxInterval = maxInterval;
+    }
+
+    boolean isExceeded(long journalBytes, long journalRecords) {
+        return (maxJournalBytes > 0 && journalBytes >= maxJournalBytes)
+                || (maxJournalRecords > 0 && journalRecords >= maxJournalRecords);
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.manager;
+
+import java.time.Duration;
+
+public class CompactionStats {
+    private long compactions;
+    private long failures;
+    private long lastDurationNanos;
+    private long maxDurationNanos;
+    private long totalDurationNanos;
+    private long lastSnapshotBytes;
+    private long lastCompactedRecords;
+
+    synchronized void recordSuccess(long durationNanos, long snapshotBytes, long compactedRecords) {
+        compactions++;
+        lastDurationNanos = durationNanos;
+        maxDurationNanos = Math.max(maxDurationNanos, durationNanos);
+        totalDurationNanos += durationNanos;
+        lastSnapshotBytes = snapshotBytes;
+        lastCompactedRecords = compactedRecords;
+    }
+
+    synchronized void recordFailure() {
+        failures++;
+    }
+
+    public synchronized long getCompactions() {
+        return compactions;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    public synchronized Duration getLastDuration() {
+        return Duration.ofNanos(lastDurationNanos);
+    }
+
+    public synchronized Duration getMaxDuration() {
+        return Duration.ofNanos(maxDurationNanos);
+    }
+
+    public synchronized Duration getTotalDuration() {
+        return Duration.ofNanos(totalDurationNanos);
+    }
+
+    public synchronized long getLastSnapshotBytes() {
+        return lastSnapshotBytes;
+    }
+
+    public synchronized long getLastCompactedRecords() {
+        return lastCompactedRecords;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("CompactionStats{compactions=%d, failures=%d, lastMs=%d, maxMs=%d, snapshotBytes=%d}",
+                compactions, failures, lastDurationNanos / 1_000_000, maxDurationNanos / 1_000_000,
+                lastSnapshotBytes);
+    }
+}
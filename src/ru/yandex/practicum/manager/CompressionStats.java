@@ -0,0 +1,88 @@
+package ru.yandex.practicum.manager;
+
+import java.time.Duration;
+
+// Размеры и скорость последней записи и последнего чтения сжатого снимка.
+// Скорость считается по несжатым байтам, включая кодирование записей
+public class CompressionStats {
+    private int level;
+    private long saves;
+    private long lastRawBytes;
+    private long lastCompressedBytes;
+    private long lastSaveNanos;
+    private long lastLoadRawBytes;
+    private long lastLoadCompressedBytes;
+    private long lastLoadNanos;
+
+    synchronized void recordSave(int level, long rawBytes, long compressedBytes, long nanos) {
+        this.level = level;
+        saves++;
+        lastRawBytes = rawBytes;
+        lastCompressedBytes = compressedBytes;
+        lastSaveNanos = nanos;
+    }
+
+    synchronized void recordLoad(long rawBytes, long compressedBytes, long nanos) {
+        lastLoadRawBytes = rawBytes;
+        lastLoadCompressedBytes = compressedBytes;
+        lastLoadNanos = nanos;
+    }
+
+    public synchronized int getLevel() {
+        return level;
+    }
+
+    public synchronized long getSaves() {
+        return saves;
+    }
+
+    public synchronized long getLastRawBytes() {
+        return lastRawBytes;
+    }
+
+    public synchronized long getLastCompressedBytes() {
+        return lastCompressedBytes;
+    }
+
+    // Во сколько раз сжатый снимок меньше исходного
+    public synchronized double getLastRatio() {
+        return lastCompressedBytes == 0 ? 0 : (double) lastRawBytes / lastCompressedBytes;
+    }
+
+    public synchronized Duration getLastSaveDuration() {
+        return Duration.ofNanos(lastSaveNanos);
+    }
+
+    // Несжатых байт в секунду при записи
+    public synchronized long getLastSaveThroughput() {
+        return bytesPerSecond(lastRawBytes, lastSaveNanos);
+    }
+
+    public synchronized long getLastLoadRawBytes() {
+        return lastLoadRawBytes;
+    }
+
+    public synchronized long getLastLoadCompressedBytes() {
+        return lastLoadCompressedBytes;
+    }
+
+    public synchronized Duration getLastLoadDuration() {
+        return Duration.ofNanos(lastLoadNanos);
+    }
+
+    // Несжатых байт в секунду при чтении
+    public synchronized long getLastLoadThroughput() {
+        return bytesPerSecond(lastLoadRawBytes, lastLoadNanos);
+    }
+
+    private static long bytesPerSecond(long bytes, long nanos) {
+        return nanos == 0 ? 0 : (long) (bytes * 1e9 / nanos);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("CompressionStats{level=%d, saves=%d, raw=%d, compressed=%d, ratio=%.2f, saveMBps=%d, "
+                        + "loadMBps=%d}", level, saves, lastRawBytes, lastCompressedBytes, getLastRatio(),
+                getLastSaveThroughput() / 1_000_000, getLastLoadThroughput() / 1_000_000);
+    }
+}
@@ -0,0 +1,1037 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.exceptions.TaskIntersectionException;
+import ru.yandex.practicum.models.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+// Менеджер, которым можно пользоваться из нескольких потоков одновременно.
+// Чтение идёт из concurrent-коллекций без блокировок и видит состояние на момент обхода.
+// Просмотр записывается в историю: по умолчанию это ShardedHistoryManager, где просмотр берёт
+// только монитор сегмента своей сессии (потоки без openSession делят общую сессию);
+// с обычной историей все просмотры идут под её монитором.
+// Изменения эпика и его подзадач идут под одной из STRIPES блокировок, выбранной по id эпика,
+// поэтому подзадачи разных эпиков меняются параллельно; обычная задача берёт полосу по своему id.
+// Проверка пересечений и индекс по времени общие для всех, их защищает timeLock — его берут
+// только изменения задач со временем, всегда после блокировки полосы.
+// Каждое изменение, ещё под своей блокировкой, публикует новую неизменяемую версию состояния
+// (TaskSnapshot): snapshot() отдаёт последнюю без копирования и без ожидания писателей
+public class ConcurrentTaskManager implements TaskManager {
+    private static final int STRIPES = 64;
+
+    private final Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+    private final Map<Integer, Epic> epics = new ConcurrentHashMap<>();
+    private final Map<Integer, Subtask> subtasks = new ConcurrentHashMap<>();
+    // id подзадач эпика для чтения без блокировки; сам Epic меняется только под полосой
+    private final Map<Integer, Set<Integer>> epicSubtaskIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final HistoryManager historyManager;
+    // Обычную историю защищает её монитор; ShardedHistoryManager блокирует сам, по сегментам
+    private final boolean historyLocked;
+    // Частота чтений задач по id (null — не считается); считается без блокировок
+    private volatile AccessStatistics accessStatistics = new AccessStatistics();
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final ReentrantLock timeLock = new ReentrantLock();
+    private final IntervalIndex intervals = new IntervalIndex();
+    private final ConcurrentSkipListSet<Task> prioritizedTasks = new ConcurrentSkipListSet<>(
+            Comparator.comparing(Task::getStartTime).thenComparing(Task::getId));
+    // Наибольшая длительность среди проиндексированных задач в секундах, только растёт:
+    // задачи, пересекающиеся с [start, end), начинаются не раньше start минус она
+    private volatile long maxDurationSeconds;
+    private final AtomicReference<TaskSnapshot> version = new AtomicReference<>(TaskSnapshot.empty());
+    // Изменения версии, отложенные до конца транзакции; не null, только пока транзакция держит все полосы
+    private List<UnaryOperator<TaskSnapshot>> pendingVersion;
+    // id, удалённые транзакцией: из истории они уходят, только когда она применилась целиком
+    private List<Integer> pendingForgotten;
+
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+        this.historyLocked = !(historyManager instanceof ShardedHistoryManager);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public ConcurrentTaskManager() {
+        this(new ShardedHistoryManager());
+    }
+
+    // === ru.yandex.practicum.models.Task ===
+
+    @Override
+    public List<Task> getAllTasks() {
+        return new ArrayList<>(tasks.values());
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        lockAll();
+        try {
+            for (Task task : tasks.values()) {
+                unindex(task);
+                forget(task.getId());
+            }
+            tasks.clear();
+            publish(snapshot -> snapshot.withoutAll(TaskType.TASK));
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Task getTask(int id) {
+        return viewed(tasks.get(id));
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        while (true) {
+            int id = task.getId() != 0 ? task.getId() : nextId.getAndIncrement();
+            ReentrantLock stripe = stripeFor(id);
+            stripe.lock();
+            try {
+                if (task.getId() != 0) {
+                    return insertTask(task, claimId(id));
+                }
+                // Другой поток или пакет мог занять этот id явно, пока поток ждал полосу
+                if (!isUsed(id)) {
+                    return insertTask(task, id);
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+    }
+
+    // Под полосой id или под всеми полосами
+    private Task insertTask(Task task, int id) {
+        Task copy = new Task(task.getTitle(), task.getDescription(), task.getStatus());
+        copy.setId(id);
+        copy.setStartTime(task.getStartTime());
+        copy.setDuration(task.getDuration());
+
+        index(copy, "Невозможно создать задачу: она пересекается по времени с другой задачей.");
+        tasks.put(copy.getId(), copy);
+        publish(copy);
+        return copy;
+    }
+
+    @Override
+    public Task updateTask(Task updatedTask) {
+        ReentrantLock stripe = stripeFor(updatedTask.getId());
+        stripe.lock();
+        try {
+            Task existing = tasks.get(updatedTask.getId());
+            if (existing == null) {
+                return null;
+            }
+            reindex(existing, updatedTask, () -> {
+                existing.setStartTime(updatedTask.getStartTime());
+                existing.setDuration(updatedTask.getDuration());
+            });
+            existing.setTitle(updatedTask.getTitle());
+            existing.setDescription(updatedTask.getDescription());
+            existing.setStatus(updatedTask.getStatus());
+            publish(existing);
+            return existing;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteTask(int id) {
+        ReentrantLock stripe = stripeFor(id);
+        stripe.lock();
+        try {
+            Task task = tasks.remove(id);
+            if (task == null) {
+                return false;
+            }
+            unindex(task);
+            forget(id);
+            publish(snapshot -> snapshot.without(id));
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // === ru.yandex.practicum.models.Epic ===
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return new ArrayList<>(epics.values());
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        lockAll();
+        try {
+            for (Subtask subtask : subtasks.values()) {
+                unindex(subtask);
+                forget(subtask.getId());
+            }
+            for (Epic epic : epics.values()) {
+                epic.clearSubtasks();
+                forget(epic.getId());
+            }
+            subtasks.clear();
+            epicSubtaskIds.clear();
+            epics.clear();
+            publish(snapshot -> snapshot.withoutAll(TaskType.EPIC));
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        Set<Integer> ids = epicSubtaskIds.get(epicId);
+        if (ids == null) {
+            return List.of();
+        }
+        List<Subtask> result = new ArrayList<>();
+        for (Integer id : ids) {
+            Subtask subtask = subtasks.get(id);
+            if (subtask != null) {
+                result.add(subtask);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return viewed(epics.get(id));
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        while (true) {
+            int id = epic.getId() != 0 ? epic.getId() : nextId.getAndIncrement();
+            ReentrantLock stripe = stripeFor(id);
+            stripe.lock();
+            try {
+                if (epic.getId() != 0) {
+                    return insertEpic(epic, claimId(id));
+                }
+                if (!isUsed(id)) {
+                    return insertEpic(epic, id);
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+    }
+
+    // Под полосой id или под всеми полосами
+    private Epic insertEpic(Epic epic, int id) {
+        Epic copy = new Epic(epic.getTitle(), epic.getDescription(), epic.getStatus());
+        copy.setId(id);
+        epicSubtaskIds.put(copy.getId(), ConcurrentHashMap.newKeySet());
+        epics.put(copy.getId(), copy);
+        publish(copy);
+        return copy;
+    }
+
+    @Override
+    public Epic updateEpic(Epic updatedEpic) {
+        ReentrantLock stripe = stripeFor(updatedEpic.getId());
+        stripe.lock();
+        try {
+            Epic epic = epics.get(updatedEpic.getId());
+            if (epic == null) {
+                return null;
+            }
+            epic.setTitle(updatedEpic.getTitle());
+            epic.setDescription(updatedEpic.getDescription());
+            refresh(epic);
+            publish(epic);
+            return epic;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteEpic(int id) {
+        ReentrantLock stripe = stripeFor(id);
+        stripe.lock();
+        try {
+            Epic epic = epics.remove(id);
+            if (epic == null) {
+                return false;
+            }
+            Set<Integer> ids = epicSubtaskIds.remove(id);
+            for (Integer subtaskId : ids) {
+                Subtask subtask = subtasks.remove(subtaskId);
+                if (subtask != null) {
+                    unindex(subtask);
+                    forget(subtaskId);
+                }
+            }
+            epic.clearSubtasks();
+            forget(id);
+            publish(snapshot -> {
+                TaskSnapshot next = snapshot.without(id);
+                for (Integer subtaskId : ids) {
+                    next = next.without(subtaskId);
+                }
+                return next;
+            });
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // === ru.yandex.practicum.models.Subtask ===
+
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return new ArrayList<>(subtasks.values());
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        lockAll();
+        try {
+            for (Subtask subtask : subtasks.values()) {
+                unindex(subtask);
+                forget(subtask.getId());
+            }
+            subtasks.clear();
+            List<Task> frozenEpics = new ArrayList<>();
+            for (Epic epic : epics.values()) {
+                epic.clearSubtasks();
+                epicSubtaskIds.get(epic.getId()).clear();
+                refresh(epic);
+                frozenEpics.add(epic.freeze());
+            }
+            publish(snapshot -> {
+                TaskSnapshot next = snapshot.withoutAll(TaskType.SUBTASK);
+                for (Task epic : frozenEpics) {
+                    next = next.with(epic);
+                }
+                return next;
+            });
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        return viewed(subtasks.get(id));
+    }
+
+    @Override
+    public Subtask createSubtask(Subtask subtask) {
+        if (subtask.getEpicId() == subtask.getId()) {
+            return null;
+        }
+        while (true) {
+            int id = subtask.getId() != 0 ? subtask.getId() : nextId.getAndIncrement();
+            // Полоса эпика не даёт удалить эпик после проверки, полоса id — занять тот же id задачей
+            // или эпиком; берутся по возрастанию номера
+            ReentrantLock first = stripes[Math.min(stripeIndex(subtask.getEpicId()), stripeIndex(id))];
+            ReentrantLock second = stripes[Math.max(stripeIndex(subtask.getEpicId()), stripeIndex(id))];
+            first.lock();
+            second.lock();
+            try {
+                Epic epic = epics.get(subtask.getEpicId());
+                if (epic == null) {
+                    return null;
+                }
+                if (subtask.getId() != 0) {
+                    return insertSubtask(subtask, claimId(id), epic);
+                }
+                if (!isUsed(id)) {
+                    return insertSubtask(subtask, id, epic);
+                }
+            } finally {
+                second.unlock();
+                first.unlock();
+            }
+        }
+    }
+
+    // Под полосой эпика или под всеми полосами
+    private Subtask insertSubtask(Subtask subtask, int id, Epic epic) {
+        Subtask copy = new Subtask(subtask.getTitle(), subtask.getDescription(), subtask.getStatus(),
+                subtask.getEpicId());
+        copy.setId(id);
+        copy.setStartTime(subtask.getStartTime());
+        copy.setDuration(subtask.getDuration());
+
+        index(copy, "Невозможно создать подзадачу: она пересекается по времени с другой задачей.");
+        subtasks.put(copy.getId(), copy);
+        epicSubtaskIds.get(epic.getId()).add(copy.getId());
+        epic.addSubtask(copy);
+        refresh(epic);
+        publish(copy, epic);
+        return copy;
+    }
+
+    @Override
+    public Subtask updateSubtask(Subtask updatedSubtask) {
+        while (true) {
+            Subtask current = subtasks.get(updatedSubtask.getId());
+            if (current == null) {
+                return null;
+            }
+            int oldEpicId = current.getEpicId();
+            int newEpicId = updatedSubtask.getEpicId();
+
+            // Переносу между эпиками нужны обе полосы; берутся по возрастанию номера
+            ReentrantLock first = stripes[Math.min(stripeIndex(oldEpicId), stripeIndex(newEpicId))];
+            ReentrantLock second = stripes[Math.max(stripeIndex(oldEpicId), stripeIndex(newEpicId))];
+            first.lock();
+            second.lock();
+            try {
+                Subtask subtask = subtasks.get(updatedSubtask.getId());
+                if (subtask != current || subtask.getEpicId() != oldEpicId) {
+                    // Пока ждали блокировку, подзадачу удалили или перенесли — пробуем заново
+                    continue;
+                }
+                Epic oldEpic = epics.get(oldEpicId);
+                Epic newEpic = epics.get(newEpicId);
+                if (newEpic == null) {
+                    return null;
+                }
+
+                reindex(subtask, updatedSubtask, () -> {
+                    subtask.setStartTime(updatedSubtask.getStartTime());
+                    subtask.setDuration(updatedSubtask.getDuration());
+                });
+                oldEpic.removeSubtask(subtask.getId());
+                subtask.setTitle(updatedSubtask.getTitle());
+                subtask.setDescription(updatedSubtask.getDescription());
+                subtask.setStatus(updatedSubtask.getStatus());
+                subtask.setEpicId(newEpicId);
+
+                newEpic.addSubtask(subtask);
+                refresh(newEpic);
+                if (oldEpic != newEpic) {
+                    epicSubtaskIds.get(oldEpicId).remove(subtask.getId());
+                    epicSubtaskIds.get(newEpicId).add(subtask.getId());
+                    refresh(oldEpic);
+                    publish(subtask, newEpic, oldEpic);
+                } else {
+                    publish(subtask, newEpic);
+                }
+                return subtask;
+            } finally {
+                second.unlock();
+                first.unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean deleteSubtask(int id) {
+        while (true) {
+            Subtask current = subtasks.get(id);
+            if (current == null) {
+                return false;
+            }
+            int epicId = current.getEpicId();
+            ReentrantLock stripe = stripeFor(epicId);
+            stripe.lock();
+            try {
+                if (subtasks.get(id) != current || current.getEpicId() != epicId) {
+                    continue;
+                }
+                subtasks.remove(id);
+                unindex(current);
+                forget(id);
+                epicSubtaskIds.get(epicId).remove(id);
+                Epic epic = epics.get(epicId);
+                epic.removeSubtask(id);
+                refresh(epic);
+                Task frozenEpic = epic.freeze();
+                publish(snapshot -> snapshot.without(id).with(frozenEpic));
+                return true;
+            } finally {
+                stripe.unlock();
+            }
+        }
+    }
+
+    // === Страницы и потоки ===
+
+    // Каждая страница и каждый поток читают одну опубликованную версию: без блокировок,
+    // без копирования и без гонок с писателями. Курсоры — по id и по времени начала
+
+    @Override
+    public Page<Task> getTasks(String cursor, int limit) {
+        return snapshot().getTasks(cursor, limit);
+    }
+
+    @Override
+    public Page<Epic> getEpics(String cursor, int limit) {
+        return snapshot().getEpics(cursor, limit);
+    }
+
+    @Override
+    public Page<Subtask> getSubtasks(String cursor, int limit) {
+        return snapshot().getSubtasks(cursor, limit);
+    }
+
+    @Override
+    public Page<Task> getPrioritizedTasks(String cursor, int limit) {
+        return snapshot().getPrioritizedTasks(cursor, limit);
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return snapshot().getAllTasks().stream();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return snapshot().getAllEpics().stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return snapshot().getAllSubtasks().stream();
+    }
+
+    @Override
+    public Stream<Task> streamPrioritizedTasks() {
+        return snapshot().getPrioritizedTasks().stream();
+    }
+
+    // === Пакетные операции ===
+
+    // Пакет держит все полосы и индекс по времени: проверка пересечений для всего пакета
+    // и изменения идут без вмешательства других писателей. Отдельные операции внутри берут
+    // те же блокировки повторно; версии публикуются по одной на задачу
+    @Override
+    public List<Task> createAll(List<? extends Task> batch) {
+        lockAll();
+        timeLock.lock();
+        try {
+            if (intervals.overlapsBatch(batch, Set.of())) {
+                throw new TaskIntersectionException(
+                        "Невозможно создать задачи: они пересекаются по времени друг с другом или с другими задачами.");
+            }
+            int[] ids = planIds(batch);
+            Task[] created = new Task[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.get(i) instanceof Epic epic) {
+                    created[i] = insertEpic(epic, ids[i]);
+                }
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                Task task = batch.get(i);
+                if (ids[i] == 0 || task instanceof Epic) {
+                    continue;
+                }
+                if (task instanceof Subtask subtask) {
+                    created[i] = insertSubtask(subtask, ids[i], epics.get(subtask.getEpicId()));
+                } else {
+                    created[i] = insertTask(task, ids[i]);
+                }
+            }
+            return Arrays.asList(created);
+        } finally {
+            timeLock.unlock();
+            unlockAll();
+        }
+    }
+
+    // Под всеми полосами: id всех задач пакета выдаются до первой вставки, сначала эпикам.
+    // Заданный id должен быть свободен и не повторяться, новый обходит и занятые, и заданные в пакете,
+    // поэтому вставка уже не упадёт на середине. Подзадача, которая не будет создана, получает 0
+    private int[] planIds(List<? extends Task> batch) {
+        Set<Integer> batchEpicIds = new HashSet<>();
+        for (Task task : batch) {
+            if (task instanceof Epic && task.getId() != 0) {
+                batchEpicIds.add(task.getId());
+            }
+        }
+        boolean[] accepted = new boolean[batch.size()];
+        Set<Integer> requested = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Task task = batch.get(i);
+            accepted[i] = !(task instanceof Subtask subtask) || subtask.getEpicId() != subtask.getId()
+                    && (epics.containsKey(subtask.getEpicId()) || batchEpicIds.contains(subtask.getEpicId()));
+            if (accepted[i] && task.getId() != 0) {
+                checkIdFree(task.getId());
+                if (!requested.add(task.getId())) {
+                    throw new IllegalArgumentException("id " + task.getId() + " повторяется в пакете");
+                }
+            }
+        }
+        int[] ids = new int[batch.size()];
+        for (boolean epicsPass : new boolean[] {true, false}) {
+            for (int i = 0; i < batch.size(); i++) {
+                Task task = batch.get(i);
+                if (!accepted[i] || task instanceof Epic != epicsPass) {
+                    continue;
+                }
+                if (task.getId() != 0) {
+                    ids[i] = task.getId();
+                    nextId.accumulateAndGet(ids[i] + 1, Math::max);
+                } else {
+                    do {
+                        ids[i] = nextId.getAndIncrement();
+                    } while (isUsed(ids[i]) || requested.contains(ids[i]));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // Под всеми полосами: подзадача с заданным или новым id, если её эпик есть
+    private Subtask insertSubtaskOf(Subtask subtask) {
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic == null || subtask.getEpicId() == subtask.getId()) {
+            return null;
+        }
+        return insertSubtask(subtask, claimId(subtask.getId()), epic);
+    }
+
+    @Override
+    public List<Task> updateAll(List<? extends Task> batch) {
+        lockAll();
+        timeLock.lock();
+        try {
+            Set<Integer> replaced = new HashSet<>();
+            for (Task task : batch) {
+                if (!(task instanceof Epic)) {
+                    replaced.add(task.getId());
+                }
+            }
+            if (intervals.overlapsBatch(batch, replaced)) {
+                throw new TaskIntersectionException("Невозможно обновить задачи: они пересекаются по времени.");
+            }
+            // Новые интервалы пакета уже проверены, поэтому сначала все обновлённые задачи
+            // снимаются с индекса: иначе задача могла бы упереться в старое время соседней по пакету
+            Task[] stored = new Task[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                Task task = batch.get(i);
+                stored[i] = task instanceof Subtask ? subtasks.get(task.getId())
+                        : task instanceof Epic ? null : tasks.get(task.getId());
+                if (stored[i] != null) {
+                    removeTimed(stored[i]);
+                }
+            }
+            List<Task> updated = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Task result = switch (batch.get(i)) {
+                    case Epic epic -> updateEpic(epic);
+                    case Subtask subtask -> updateSubtask(subtask);
+                    default -> updateTask(batch.get(i));
+                };
+                if (result == null && stored[i] != null) {
+                    // Обновление не состоялось (например, нет нового эпика) — время остаётся прежним
+                    addTimed(stored[i]);
+                }
+                updated.add(result);
+            }
+            return updated;
+        } finally {
+            timeLock.unlock();
+            unlockAll();
+        }
+    }
+
+    @Override
+    public List<Integer> deleteAll(Collection<Integer> ids) {
+        lockAll();
+        try {
+            List<Integer> removed = new ArrayList<>();
+            for (Integer id : ids) {
+                Epic epic = epics.get(id);
+                if (epic != null) {
+                    removed.addAll(epicSubtaskIds.get(id));
+                    deleteEpic(id);
+                    removed.add(id);
+                } else if (deleteSubtask(id) || deleteTask(id)) {
+                    removed.add(id);
+                }
+            }
+            return removed;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // === Транзакции ===
+
+    @Override
+    public TaskTransaction beginTransaction() {
+        return new TaskTransaction(nextId::getAndIncrement, this::commitTransaction);
+    }
+
+    // Транзакция держит все полосы и индекс по времени и применяет шаги обычными операциями,
+    // запоминая для каждого обратную. Если шаг упёрся в пересечение, обратные операции выполняются
+    // в обратном порядке. Версия публикуется одна на всю транзакцию, поэтому snapshot() видит её
+    // целиком или не видит совсем; чтение без снимка может застать промежуточное состояние
+    private void commitTransaction(List<TaskTransaction.Change> changes) {
+        lockAll();
+        timeLock.lock();
+        pendingVersion = new ArrayList<>();
+        pendingForgotten = new ArrayList<>();
+        Deque<Runnable> undo = new ArrayDeque<>();
+        try {
+            for (TaskTransaction.Change change : changes) {
+                switch (change.operation()) {
+                    case CREATE -> createInTransaction(change.task(), undo);
+                    case UPDATE -> updateInTransaction(change.task(), undo);
+                    case DELETE -> deleteInTransaction(change.id(), undo);
+                }
+            }
+            List<UnaryOperator<TaskSnapshot>> pending = pendingVersion;
+            pendingVersion = null;
+            publish(snapshot -> {
+                TaskSnapshot next = snapshot;
+                for (UnaryOperator<TaskSnapshot> change : pending) {
+                    next = change.apply(next);
+                }
+                return next;
+            });
+            List<Integer> forgotten = pendingForgotten;
+            pendingForgotten = null;
+            forgotten.forEach(this::forget);
+        } catch (RuntimeException e) {
+            while (!undo.isEmpty()) {
+                undo.pop().run();
+            }
+            throw e;
+        } finally {
+            // После отката опубликованная версия и так совпадает с состоянием, а история не менялась
+            pendingVersion = null;
+            pendingForgotten = null;
+            timeLock.unlock();
+            unlockAll();
+        }
+    }
+
+    private void createInTransaction(Task task, Deque<Runnable> undo) {
+        if (task instanceof Epic epic) {
+            insertEpic(epic, claimId(epic.getId()));
+            undo.push(() -> deleteEpic(epic.getId()));
+        } else if (task instanceof Subtask subtask) {
+            if (insertSubtaskOf(subtask) != null) {
+                undo.push(() -> deleteSubtask(subtask.getId()));
+            }
+        } else {
+            insertTask(task, claimId(task.getId()));
+            undo.push(() -> deleteTask(task.getId()));
+        }
+    }
+
+    private void updateInTransaction(Task task, Deque<Runnable> undo) {
+        Task stored = switch (task) {
+            case Epic epic -> epics.get(epic.getId());
+            case Subtask subtask -> subtasks.get(subtask.getId());
+            default -> tasks.get(task.getId());
+        };
+        if (stored == null) {
+            return;
+        }
+        Task before = stored.freeze();
+        if (task instanceof Epic epic) {
+            updateEpic(epic);
+            undo.push(() -> updateEpic((Epic) before));
+        } else if (task instanceof Subtask subtask) {
+            if (updateSubtask(subtask) != null) {
+                undo.push(() -> updateSubtask((Subtask) before));
+            }
+        } else {
+            updateTask(task);
+            undo.push(() -> updateTask(before));
+        }
+    }
+
+    // Удалённая задача возвращается вставкой копии с тем же id
+    private void deleteInTransaction(int id, Deque<Runnable> undo) {
+        Epic epic = epics.get(id);
+        if (epic != null) {
+            Epic frozenEpic = (Epic) epic.freeze();
+            List<Subtask> frozenSubtasks = new ArrayList<>();
+            for (Subtask subtask : getEpicSubtasks(id)) {
+                frozenSubtasks.add((Subtask) subtask.freeze());
+            }
+            deleteEpic(id);
+            undo.push(() -> {
+                Epic restored = insertEpic(frozenEpic, id);
+                frozenSubtasks.forEach(frozen -> insertSubtask(frozen, frozen.getId(), restored));
+            });
+            return;
+        }
+        Subtask subtask = subtasks.get(id);
+        if (subtask != null) {
+            Subtask frozen = (Subtask) subtask.freeze();
+            deleteSubtask(id);
+            undo.push(() -> insertSubtaskOf(frozen));
+            return;
+        }
+        Task task = tasks.get(id);
+        if (task != null) {
+            Task frozen = task.freeze();
+            deleteTask(id);
+            undo.push(() -> insertTask(frozen, id));
+        }
+    }
+
+    // Последняя опубликованная версия; её можно читать сколько угодно долго, писатели её не меняют
+    @Override
+    public TaskSnapshot snapshot() {
+        return version.get();
+    }
+
+    // === История и время ===
+
+    @Override
+    public List<Task> getHistory() {
+        if (!historyLocked) {
+            return historyManager.getHistory();
+        }
+        synchronized (historyManager) {
+            return historyManager.getHistory();
+        }
+    }
+
+    // История меняется при каждом чтении задачи, поэтому поток идёт по копии
+    @Override
+    public Stream<Task> streamHistory() {
+        return getHistory().stream();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return new ArrayList<>(prioritizedTasks);
+    }
+
+    @Override
+    public List<Task> getOverlappingTasks(LocalDateTime start, LocalDateTime end) {
+        List<Task> overlapping = new ArrayList<>();
+        if (start == null || end == null || !start.isBefore(end)) {
+            return overlapping;
+        }
+        Task from = new Task(null, null, Status.NEW);
+        from.setId(Integer.MIN_VALUE);
+        from.setStartTime(start.minusSeconds(maxDurationSeconds));
+        for (Task task : prioritizedTasks.tailSet(from)) {
+            LocalDateTime taskStart = task.getStartTime();
+            if (taskStart == null || !taskStart.isBefore(end)) {
+                break;
+            }
+            LocalDateTime taskEnd = task.getEndTime();
+            if (taskEnd != null && taskEnd.isAfter(start)) {
+                overlapping.add(task);
+            }
+        }
+        return overlapping;
+    }
+
+    // Новая задача попадает в индекс по времени, если не пересекается с уже записанными
+    private void index(Task task, String conflictMessage) {
+        if (task.getStartTime() == null) {
+            return;
+        }
+        timeLock.lock();
+        try {
+            if (IntervalIndex.isIndexable(task)
+                    && intervals.overlaps(task.getStartTime(), task.getEndTime(), task.getId())) {
+                throw new TaskIntersectionException(conflictMessage);
+            }
+            addTimed(task);
+        } finally {
+            timeLock.unlock();
+        }
+    }
+
+    // Меняет время записанной задачи: проверка, снятие из индекса, изменение и возврат в индекс
+    // идут под одной блокировкой, чтобы никто не занял время между проверкой и записью
+    private void reindex(Task stored, Task updated, Runnable applyTimes) {
+        if (stored.getStartTime() == null && updated.getStartTime() == null) {
+            applyTimes.run();
+            return;
+        }
+        timeLock.lock();
+        try {
+            if (IntervalIndex.isIndexable(updated)
+                    && intervals.overlaps(updated.getStartTime(), updated.getEndTime(), stored.getId())) {
+                throw new TaskIntersectionException("Невозможно обновить задачу: она пересекается по времени.");
+            }
+            removeTimed(stored);
+            applyTimes.run();
+            addTimed(stored);
+        } finally {
+            timeLock.unlock();
+        }
+    }
+
+    private void unindex(Task task) {
+        if (task.getStartTime() == null) {
+            return;
+        }
+        timeLock.lock();
+        try {
+            removeTimed(task);
+        } finally {
+            timeLock.unlock();
+        }
+    }
+
+    private void addTimed(Task task) {
+        if (task.getStartTime() == null) {
+            return;
+        }
+        prioritizedTasks.add(task);
+        intervals.add(task);
+        // Секунда сверху покрывает дробную часть длительности
+        long seconds = task.getDuration().getSeconds() + 1;
+        if (seconds > maxDurationSeconds) {
+            maxDurationSeconds = seconds;
+        }
+    }
+
+    private void removeTimed(Task task) {
+        if (task.getStartTime() != null) {
+            prioritizedTasks.remove(task);
+        }
+        intervals.remove(task.getId());
+    }
+
+    // Копии задач делаются заранее: функция изменения при гонке за версию может выполниться
+    // несколько раз и должна только собирать новую версию из готовых частей
+    private void publish(Task... changed) {
+        Task[] frozen = new Task[changed.length];
+        for (int i = 0; i < changed.length; i++) {
+            frozen[i] = changed[i].freeze();
+        }
+        publish(snapshot -> {
+            TaskSnapshot next = snapshot;
+            for (Task task : frozen) {
+                next = next.with(task);
+            }
+            return next;
+        });
+    }
+
+    private void publish(UnaryOperator<TaskSnapshot> change) {
+        if (pendingVersion != null) {
+            pendingVersion.add(change);
+            return;
+        }
+        version.updateAndGet(change);
+    }
+
+    // Удалённая задача уходит из истории; в транзакции — только после её применения
+    private void forget(int id) {
+        if (pendingForgotten != null) {
+            pendingForgotten.add(id);
+            return;
+        }
+        if (!historyLocked) {
+            historyManager.remove(id);
+            return;
+        }
+        synchronized (historyManager) {
+            historyManager.remove(id);
+        }
+    }
+
+    private void refresh(Epic epic) {
+        epic.setStatus(epic.getSubtasksStatus());
+        epic.setStartTime(epic.getSubtasksStartTime());
+        epic.setDuration(epic.getSubtasksDuration());
+        epic.setEndTime(epic.getSubtasksEndTime());
+    }
+
+    @Override
+    public AccessStatistics getAccessStatistics() {
+        return accessStatistics;
+    }
+
+    public void setAccessStatistics(AccessStatistics accessStatistics) {
+        this.accessStatistics = accessStatistics;
+    }
+
+    private <T extends Task> T viewed(T task) {
+        if (task == null) {
+            return null;
+        }
+        AccessStatistics statistics = accessStatistics;
+        if (statistics != null) {
+            statistics.record(task.getId());
+        }
+        if (!historyLocked) {
+            historyManager.add(task);
+            return task;
+        }
+        synchronized (historyManager) {
+            historyManager.add(task);
+        }
+        return task;
+    }
+
+    // Под полосой заданного id или под всеми полосами: заданный id сохраняется, если он свободен,
+    // а счётчик сдвигается за него, чтобы следующие id с ним не совпали
+    private int claimId(int requested) {
+        if (requested == 0) {
+            return nextId.getAndIncrement();
+        }
+        checkIdFree(requested);
+        nextId.accumulateAndGet(requested + 1, Math::max);
+        return requested;
+    }
+
+    private void checkIdFree(int id) {
+        if (isUsed(id)) {
+            throw new IllegalArgumentException("Задача с id " + id + " уже существует");
+        }
+    }
+
+    // id занят задачей любого вида
+    private boolean isUsed(int id) {
+        return tasks.containsKey(id) || epics.containsKey(id) || subtasks.containsKey(id);
+    }
+
+    private ReentrantLock stripeFor(int id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    // Соседние id попадают в разные полосы
+    private static int stripeIndex(int id) {
+        return (id * 0x9E3779B9) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(STRIPES));
+    }
+
+    private void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+// Кодек строки CSV: id,type,title,status,description,epic,startTime,duration.
+// Пишет байты UTF-8 прямо в RecordBuffer и разбирает строку по смещениям полей без split.
+// В title и description экранируются '\', ',' и переводы строк, чтобы запись оставалась одной строкой
+final class CsvTaskCodec {
+    private static final int FIELDS = 8;
+    private static final DateTimeFormatter TASK_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+    private static final byte[][] TYPE_NAMES = asciiNames(TYPES);
+    private static final byte[][] STATUS_NAMES = asciiNames(STATUSES);
+
+    // Границы полей текущей строки и буфер для снятия экранирования
+    private final int[] fieldStart = new int[FIELDS];
+    private final int[] fieldEnd = new int[FIELDS];
+    private byte[] scratch = new byte[128];
+
+    void encode(Task task, RecordBuffer out) {
+        out.writeAsciiLong(task.getId());
+        out.writeByte(',');
+        writeAscii(out, TYPE_NAMES[BinaryTaskCodec.typeOf(task).ordinal()]);
+        out.writeByte(',');
+        writeEscaped(out, task.getTitle());
+        out.writeByte(',');
+        writeAscii(out, STATUS_NAMES[task.getStatus().ordinal()]);
+        out.writeByte(',');
+        writeEscaped(out, task.getDescription());
+        out.writeByte(',');
+        if (task instanceof Subtask sub) {
+            out.writeAsciiLong(sub.getEpicId());
+        }
+        out.writeByte(',');
+        if (task.getStartTime() != null) {
+            writeDateTime(out, task.getStartTime());
+        }
+        out.writeByte(',');
+        out.writeAsciiLong(task.getDuration().toMinutes());
+    }
+
+    Task decode(byte[] data, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && isSpace(data[start])) start++;
+        while (end > start && isSpace(data[end - 1])) end--;
+
+        int field = 0;
+        fieldStart[0] = start;
+        for (int i = start; i < end && field < FIELDS; i++) {
+            byte b = data[i];
+            if (b == '\\') {
+                i++;
+            } else if (b == ',') {
+                fieldEnd[field++] = i;
+                if (field < FIELDS) {
+                    fieldStart[field] = i + 1;
+                }
+            }
+        }
+        if (field == FIELDS - 1) {
+            fieldEnd[field++] = end;
+        }
+        if (field < FIELDS) {
+            throw new IllegalArgumentException(String.format("Неверный формат строки: %s",
+                    new String(data, offset, length, StandardCharsets.UTF_8)));
+        }
+
+        int id = parseInt(data, fieldStart[0], fieldEnd[0] - fieldStart[0]);
+        TaskType type = TYPES[match(TYPE_NAMES, data, fieldStart[1], fieldEnd[1])];
+        String title = readString(data, fieldStart[2], fieldEnd[2]);
+        Status status = STATUSES[match(STATUS_NAMES, data, fieldStart[3], fieldEnd[3])];
+        String description = fieldEnd[4] == fieldStart[4] ? null : readString(data, fieldStart[4], fieldEnd[4]);
+        LocalDateTime startTime = fieldEnd[6] == fieldStart[6] ? null : parseDateTime(data, fieldStart[6], fieldEnd[6]);
+        Duration duration = Duration.ofMinutes(parseLong(data, fieldStart[7], fieldEnd[7] - fieldStart[7]));
+
+        Task task = switch (type) {
+            case TASK -> new Task(title, description, status);
+            case EPIC -> new Epic(title, description, status);
+            case SUBTASK -> new Subtask(title, description, status,
+                    fieldEnd[5] == fieldStart[5] ? 0 : parseInt(data, fieldStart[5], fieldEnd[5] - fieldStart[5]));
+        };
+        task.setId(id);
+        task.setStartTime(startTime);
+        task.setDuration(duration);
+        return task;
+    }
+
+    static boolean isBlank(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (!isSpace(data[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int parseInt(byte[] data, int offset, int length) {
+        long value = parseLong(data, offset, length);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Число вне диапазона int");
+        }
+        return (int) value;
+    }
+
+    static long parseLong(byte[] data, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = i < end && data[i] == '-';
+        if (negative) i++;
+        if (i == end) {
+            throw new NumberFormatException("Пустое число");
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(String.format("Не число: %s",
+                        new String(data, offset, length, StandardCharsets.UTF_8)));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    static TaskType parseType(byte[] data, int offset, int length) {
+        return TYPES[match(TYPE_NAMES, data, offset, offset + length)];
+    }
+
+    private static int match(byte[][] names, byte[] data, int start, int end) {
+        for (int i = 0; i < names.length; i++) {
+            if (Arrays.equals(names[i], 0, names[i].length, data, start, end)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Неизвестное значение: %s",
+                new String(data, start, end - start, StandardCharsets.UTF_8)));
+    }
+
+    private String readString(byte[] data, int start, int end) {
+        int escape = -1;
+        for (int i = start; i < end; i++) {
+            if (data[i] == '\\') {
+                escape = i;
+                break;
+            }
+        }
+        if (escape < 0) {
+            return new String(data, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        if (scratch.length < end - start) {
+            scratch = new byte[Math.max(end - start, scratch.length * 2)];
+        }
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = data[i];
+            if (b == '\\' && i + 1 < end) {
+                byte next = data[++i];
+                b = switch (next) {
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                };
+            }
+            scratch[length++] = b;
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime parseDateTime(byte[] data, int start, int end) {
+        // Быстрый путь для фиксированного формата yyyy-MM-dd HH:mm
+        if (end - start == 16 && data[start + 4] == '-' && data[start + 7] == '-'
+                && data[start + 10] == ' ' && data[start + 13] == ':') {
+            return LocalDateTime.of(
+                    (int) parseLong(data, start, 4),
+                    (int) parseLong(data, start + 5, 2),
+                    (int) parseLong(data, start + 8, 2),
+                    (int) parseLong(data, start + 11, 2),
+                    (int) parseLong(data, start + 14, 2));
+        }
+        return LocalDateTime.parse(new String(data, start, end - start, StandardCharsets.UTF_8),
+                TASK_DATE_TIME_FORMATTER);
+    }
+
+    private static void writeDateTime(RecordBuffer out, LocalDateTime time) {
+        if (time.getYear() < 0 || time.getYear() > 9999) {
+            writeAscii(out, time.format(TASK_DATE_TIME_FORMATTER).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        writeDigits(out, time.getYear(), 4);
+        out.writeByte('-');
+        writeDigits(out, time.getMonthValue(), 2);
+        out.writeByte('-');
+        writeDigits(out, time.getDayOfMonth(), 2);
+        out.writeByte(' ');
+        writeDigits(out, time.getHour(), 2);
+        out.writeByte(':');
+        writeDigits(out, time.getMinute(), 2);
+    }
+
+    private static void writeDigits(RecordBuffer out, int value, int width) {
+        int divisor = 1;
+        for (int i = 1; i < width; i++) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.writeByte('0' + (value / divisor) % 10);
+        }
+    }
+
+    private static void writeAscii(RecordBuffer out, byte[] bytes) {
+        out.writeBytes(bytes, 0, bytes.length);
+    }
+
+    // UTF-8 с экранированием; null пишется как пустое поле
+    private static void writeEscaped(RecordBuffer out, String value) {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                    case '\\' -> {
+                        out.writeByte('\\');
+                        out.writeByte('\\');
+                    }
+                    case ',' -> {
+                        out.writeByte('\\');
+                        out.writeByte(',');
+                    }
+                    case '\n' -> {
+                        out.writeByte('\\');
+                        out.writeByte('n');
+                    }
+                    case '\r' -> {
+                        out.writeByte('\\');
+                        out.writeByte('r');
+                    }
+                    default -> out.writeByte(c);
+                }
+            } else if (c < 0x800) {
+                out.writeByte(0xC0 | (c >> 6));
+                out.writeByte(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.writeByte(0xF0 | (codePoint >> 18));
+                out.writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+                out.writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+                out.writeByte(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out.writeByte('?');
+            } else {
+                out.writeByte(0xE0 | (c >> 12));
+                out.writeByte(0x80 | ((c >> 6) & 0x3F));
+                out.writeByte(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\r' || b == '\t';
+    }
+
+    private static byte[][] asciiNames(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = values[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.manager;
+
+import java.time.Duration;
+
+public class DurabilityPolicy {
+    public enum Mode {
+        // fsync после каждой операции; в режиме write-behind вызывающий ждёт групповой фиксации
+        PER_OPERATION,
+        // fsync не чаще одного раза за интервал и не позже чем через интервал после записи,
+        // даже если новых записей больше нет
+        INTERVAL,
+        // без fsync, данные остаются в кэше ОС
+        OS_BUFFERED
+    }
+
+    private final Mode mode;
+    private final Duration interval;
+
+    private DurabilityPolicy(Mode mode, Duration interval) {
+        this.mode = mode;
+        this.interval = interval;
+    }
+
+    public static DurabilityPolicy perOperation() {
+        return new DurabilityPolicy(Mode.PER_OPERATION, Duration.ZERO);
+    }
+
+    public static DurabilityPolicy every(Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Интервал fsync должен быть положительным");
+        }
+        return new DurabilityPolicy(Mode.INTERVAL, interval);
+    }
+
+    public static DurabilityPolicy osBuffered() {
+        return new DurabilityPolicy(Mode.OS_BUFFERED, Duration.ZERO);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    @Override
+    public String toString() {
+        return mode == Mode.INTERVAL ? "DurabilityPolicy{INTERVAL " + interval.toMillis() + "ms}" : "DurabilityPolicy{" + mode + "}";
+    }
+}
@@ -3,264 +3,473 @@ package ru.yandex.practicum.manager;
 import ru.yandex.practicum.exceptions.ManagerSaveException;
 import ru.yandex.practicum.models.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
 
     private final File file;
-    private static final DateTimeFormatter TASK_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private final StorageConfig config;
+    private final TaskJournal journal;
+    // Создаётся при первом обращении, а не в конструкторе: таймер компактора получает ссылку на менеджер
+    private SnapshotCompactor compactor;
+    private boolean closed;
+    // Просмотры задач; null — история не сохраняется
+    private final HistoryLog historyLog;
+    private final CompressionStats compressionStats = new CompressionStats();
+    // Запись снимка (компактизация или checkpoint) идёт строго по одной
+    private final Object snapshotLock = new Object();
 
     public FileBackedTaskManager(File file) {
+        this(file, new StorageConfig());
+    }
+
+    public FileBackedTaskManager(File file, StorageConfig config) {
+        if (config.isWriteBehind() && !config.isJournaled()) {
+            throw new IllegalArgumentException("Режим write-behind работает только поверх журнала");
+        }
         this.file = file;
+        this.config = config;
+        this.journal = new TaskJournal(file, config.getDurabilityPolicy(), config.isWriteBehind());
+        this.historyLog = config.isHistoryPersisted() ? new HistoryLog(file) : null;
     }
 
-    private void save() {
-        try {
-            StringBuilder sb = new StringBuilder();
-            sb.append("id,type,title,status,description,epic,startTime,duration\n");
+    File getFile() {
+        return file;
+    }
 
-            for (Task task : getAllTasks()) {
-                sb.append(taskToString(task)).append("\n");
-            }
-            for (Epic epic : getAllEpics()) {
-                sb.append(taskToString(epic)).append("\n");
-            }
-            for (Subtask subtask : getAllSubtasks()) {
-                sb.append(taskToString(subtask)).append("\n");
-            }
+    public CompactionStats getCompactionStats() {
+        SnapshotCompactor compactor = compactor();
+        return compactor != null ? compactor.getStats() : new CompactionStats();
+    }
 
-            Files.writeString(file.toPath(), sb.toString());
-        } catch (IOException e) {
-            throw new ManagerSaveException(String.format("Не удалось сохранить данные в файл: %s", file.getAbsolutePath()));
-        }
-    }
-
-    private String taskToString(Task task) {
-        String startTimeStr = "";
-        if (task.getStartTime() != null) {
-            startTimeStr = task.getStartTime().format(TASK_DATE_TIME_FORMATTER);
-        }
-        long durationMinutes = task.getDuration().toMinutes();
-
-        if (task instanceof Subtask sub) {
-            return String.format("%d,%s,%s,%s,%s,%d,%s,%d",
-                    task.getId(),
-                    TaskType.SUBTASK,
-                    task.getTitle(),
-                    task.getStatus(),
-                    task.getDescription() != null ? task.getDescription() : "",
-                    sub.getEpicId(),
-                    startTimeStr,
-                    durationMinutes
-            );
-        } else if (task instanceof Epic) {
-            return String.format("%d,%s,%s,%s,%s,,%s,%d",
-                    task.getId(),
-                    TaskType.EPIC,
-                    task.getTitle(),
-                    task.getStatus(),
-                    task.getDescription() != null ? task.getDescription() : "",
-                    startTimeStr,
-                    durationMinutes
-            );
+    // null, если компактизация выключена или менеджер закрыт
+    private synchronized SnapshotCompactor compactor() {
+        if (compactor == null && !closed && config.isJournaled() && config.getCompactionPolicy() != null) {
+            compactor = new SnapshotCompactor(this, config.getCompactionPolicy());
+        }
+        return compactor;
+    }
+
+    public CompressionStats getCompressionStats() {
+        return compressionStats;
+    }
+
+    // Записывает полный снимок и сбрасывает журнал; журнал просмотров сжимается до текущей истории
+    public void checkpoint() {
+        SnapshotCompactor compactor = compactor();
+        if (compactor != null) {
+            compactor.compactNow();
+        } else if (config.isJournaled()) {
+            compact();
         } else {
-            return String.format("%d,%s,%s,%s,%s,,%s,%d",
-                    task.getId(),
-                    TaskType.TASK,
-                    task.getTitle(),
-                    task.getStatus(),
-                    task.getDescription() != null ? task.getDescription() : "",
-                    startTimeStr,
-                    durationMinutes
-            );
+            synchronized (this) {
+                save();
+            }
+        }
+        if (historyLog != null) {
+            historyLog.rewrite(getHistory().stream().map(Task::getId).toList());
         }
     }
 
-    public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
+    // Дожидается, пока все уже выполненные операции и просмотры окажутся на диске
+    public void flush() {
+        if (config.isJournaled()) {
+            journal.flush();
+        }
+        if (historyLog != null) {
+            historyLog.flush();
+        }
+    }
 
-        try {
-            if (!file.exists() || file.length() == 0) {
-                return manager;
+    @Override
+    public void close() {
+        SnapshotCompactor compactor;
+        synchronized (this) {
+            closed = true;
+            compactor = this.compactor;
+        }
+        // Компактизация, которая уже идёт, ждёт монитор менеджера: завершаем её без него
+        if (compactor != null) {
+            compactor.shutdown();
+        }
+        journal.close();
+        if (historyLog != null) {
+            historyLog.close();
+        }
+    }
+
+    // Просмотр дописывается в журнал просмотров; запись идёт пачками в фоне
+
+    @Override
+    public Task getTask(int id) {
+        return viewed(super.getTask(id));
+    }
+
+    @Override
+    public Epic getEpic(int id) {
+        return viewed(super.getEpic(id));
+    }
+
+    @Override
+    public Subtask getSubtask(int id) {
+        return viewed(super.getSubtask(id));
+    }
+
+    private <T extends Task> T viewed(T task) {
+        if (task != null && historyLog != null) {
+            historyLog.record(task.getId());
+        }
+        return task;
+    }
+
+    // Снимок пишется в файл по ходу обхода задач, без сборки в памяти
+    private void save() {
+        SnapshotWriter.writeAtomically(file, out -> writeSnapshot(out, allTasks()));
+        journal.truncate();
+    }
+
+    // Под блокировкой менеджера собираются только замороженные копии задач (неизменённые
+    // задачи отдают готовую копию) и переключается журнал. Кодирование, сжатие и запись
+    // снимка идут уже без неё и не задерживают писателей
+    long compact() {
+        synchronized (snapshotLock) {
+            List<Task> tasks;
+            long records;
+            synchronized (this) {
+                tasks = allTasks();
+                tasks.replaceAll(Task::freeze);
+                records = journal.getRecords();
+                journal.rotate();
             }
+            SnapshotWriter.writeAtomically(file, snapshotContent(tasks));
+            journal.dropRotated();
+            return records;
+        }
+    }
 
-            String content = Files.readString(file.toPath());
-            String[] lines = content.split("\n");
-            if (lines.length <= 1) {
-                return manager;
+    synchronized long pendingJournalRecords() {
+        return journal.getRecords();
+    }
+
+    // Для компактизации: в памяти держится готовое содержимое файла, при сжатии — уже сжатое
+    private byte[] snapshotContent(List<Task> tasks) {
+        if (config.isCompressed()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                writeSnapshot(out, tasks);
+            } catch (IOException e) {
+                throw new ManagerSaveException(String.format("Не удалось сжать снимок: %s", file.getAbsolutePath()));
             }
+            return out.toByteArray();
+        }
+        SnapshotWriter writer = new SnapshotWriter(config.getFormat());
+        addAll(writer, tasks);
+        return writer.toByteArray();
+    }
 
-            int maxId = 0;
+    private void writeSnapshot(OutputStream out, List<Task> tasks) throws IOException {
+        if (!config.isCompressed()) {
+            SnapshotWriter writer = new SnapshotWriter(config.getFormat(), out);
+            addAll(writer, tasks);
+            writer.finish();
+            return;
+        }
 
-            for (int i = 1; i < lines.length; i++) {
-                String line = lines[i].trim();
-                if (line.isEmpty()) continue;
+        long started = System.nanoTime();
+        SnapshotCompression.Output deflated = SnapshotCompression.compress(out, config.getCompressionLevel());
+        try {
+            SnapshotWriter writer = new SnapshotWriter(config.getFormat(), deflated);
+            addAll(writer, tasks);
+            writer.finish();
+            deflated.finish();
+            compressionStats.recordSave(config.getCompressionLevel(), deflated.rawBytes(),
+                    deflated.compressedBytes(), System.nanoTime() - started);
+        } finally {
+            deflated.release();
+        }
+    }
 
-                Task task = taskFromString(line);
-                if (task.getId() > maxId) {
-                    maxId = task.getId();
-                }
+    private static void addAll(SnapshotWriter writer, List<Task> tasks) {
+        for (Task task : tasks) {
+            writer.add(task);
+        }
+    }
 
-                if (task instanceof Epic epic) {
-                    manager.epics.put(epic.getId(), epic);
-                    manager.tasks.put(epic.getId(), epic);
-                } else if (task instanceof Subtask sub) {
-                    manager.subtasks.put(sub.getId(), sub);
-                    manager.tasks.put(sub.getId(), sub);
-                } else {
-                    manager.tasks.put(task.getId(), task);
-                }
-            }
+    // Все задачи в порядке снимка: задачи, эпики, подзадачи
+    private List<Task> allTasks() {
+        List<Task> all = new ArrayList<>(getAllTasks());
+        all.addAll(getAllEpics());
+        all.addAll(getAllSubtasks());
+        return all;
+    }
 
-            manager.nextId = maxId + 1;
+    private void persist(char operation, Task task) {
+        if (config.isJournaled()) {
+            journal.append(operation, task);
+            onJournalAppend();
+        } else {
+            save();
+        }
+    }
+
+    private void persistAll(char operation, List<? extends Task> tasks) {
+        if (config.isJournaled()) {
+            journal.appendAll(operation, tasks);
+            onJournalAppend();
+        } else {
+            save();
+        }
+    }
 
-            for (Subtask sub : manager.subtasks.values()) {
-                Epic epic = manager.epics.get(sub.getEpicId());
-                if (epic != null && !epic.getSubtaskIds().contains(sub.getId())) {
-                    epic.addSubtask(sub.getId());
+    private void persistDelete(List<Integer> ids) {
+        if (config.isJournaled()) {
+            journal.appendDeletes(ids);
+            onJournalAppend();
+        } else {
+            save();
+        }
+    }
+
+    private void persistChanges(List<TaskTransaction.Change> changes) {
+        if (config.isJournaled()) {
+            journal.appendChanges(changes);
+            onJournalAppend();
+        } else {
+            save();
+        }
+    }
+
+    private void persistClear(TaskType type) {
+        if (config.isJournaled()) {
+            journal.appendClear(type);
+            onJournalAppend();
+        } else {
+            save();
+        }
+    }
+
+    private void onJournalAppend() {
+        SnapshotCompactor compactor = compactor();
+        if (compactor != null) {
+            compactor.onAppend(journal.getBytes(), journal.getRecords());
+        }
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file) {
+        return loadFromFile(file, new StorageConfig());
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, StorageConfig config) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, config);
+        synchronized (manager) {
+            manager.restoreFromDisk();
+        }
+        // Журнал, оставшийся с прошлого запуска, компактор заберёт по таймеру
+        manager.compactor();
+        return manager;
+    }
+
+    private void restoreFromDisk() {
+        int parallelism = config.getLoadParallelism();
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            // Сжатый снимок не делится на фрагменты и читается одним потоком
+            if (pool != null && !SnapshotReader.isCompressed(file)) {
+                for (List<Task> chunk : new ParallelSnapshotLoader(pool).load(file)) {
+                    for (Task task : chunk) {
+                        restoreTask(task);
+                    }
                 }
+            } else {
+                SnapshotReader.read(file, this::restoreTask, compressionStats);
             }
 
-            for (Epic epic : manager.epics.values()) {
-                manager.updateEpicStatus(epic);
-            }
+            // Изменения после последнего снимка
+            CsvTaskCodec codec = new CsvTaskCodec();
+            journal.replay((record, length) -> applyJournalRecord(codec, record, length));
 
-            for (Epic epic : manager.epics.values()) {
-                manager.updateEpicTimes(epic);
+            finishRestore(pool);
+            if (historyLog != null) {
+                restoreHistory();
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
             }
-
-        } catch (IOException e) {
-            throw new ManagerSaveException(String.format("Не удалось сохранить данные в файл: %s", file.getAbsolutePath()));
         }
+    }
 
-        return manager;
+    // История восстанавливается по последним просмотрам задач, которые ещё есть, — столько,
+    // сколько в неё помещается. Журнал просмотров затем сжимается до восстановленного
+    private void restoreHistory() {
+        HistoryManager history = getHistoryManager();
+        int capacity = history instanceof InMemoryHistoryManager inMemory
+                ? inMemory.getCapacity() : InMemoryHistoryManager.DEFAULT_CAPACITY;
+        List<Integer> viewed = historyLog.readLast(capacity, id -> findTask(id) != null);
+        if (viewed.isEmpty()) {
+            return;
+        }
+        for (Integer id : viewed) {
+            history.add(findTask(id));
+        }
+        historyLog.rewrite(viewed);
     }
 
-    private static Task taskFromString(String value) {
-        String[] parts = value.split(",", -1);
-        if (parts.length < 8) {
-            throw new IllegalArgumentException(String.format("Неверный формат строки: %s", value));
-        }
-
-        int id = Integer.parseInt(parts[0]);
-        TaskType type = TaskType.valueOf(parts[1]);
-        String title = parts[2];
-        Status status = Status.valueOf(parts[3]);
-        String description = parts[4].isEmpty() ? null : parts[4];
-
-        String startTimeStr = parts[6];
-        long durationMinutes = Long.parseLong(parts[7]);
-
-        LocalDateTime startTime = null;
-        if (!startTimeStr.isEmpty()) {
-            startTime = LocalDateTime.parse(startTimeStr, TASK_DATE_TIME_FORMATTER);
-        }
-        Duration duration = Duration.ofMinutes(durationMinutes);
-
-        switch (type) {
-            case TASK:
-                Task task = new Task(title, description, status);
-                task.setId(id);
-                task.setStartTime(startTime);
-                task.setDuration(duration);
-                return task;
-            case EPIC:
-                Epic epic = new Epic(title, description, status);
-                epic.setId(id);
-                epic.setStartTime(startTime);
-                epic.setDuration(duration);
-                return epic;
-            case SUBTASK:
-                int epicId = parts[5].isEmpty() ? 0 : Integer.parseInt(parts[5]);
-                Subtask subtask = new Subtask(title, description, status, epicId);
-                subtask.setId(id);
-                subtask.setStartTime(startTime);
-                subtask.setDuration(duration);
-                return subtask;
-            default:
-                throw new IllegalArgumentException(String.format("Неизвестный тип задачи: %s", type));
+    // Запись журнала: символ операции, запятая, затем строка задачи, id или тип
+    private void applyJournalRecord(CsvTaskCodec codec, byte[] record, int length) {
+        char operation = (char) record[0];
+
+        switch (operation) {
+            case TaskJournal.CREATE, TaskJournal.UPDATE -> restoreTask(codec.decode(record, 2, length - 2));
+            case TaskJournal.DELETE -> forgetTask(CsvTaskCodec.parseInt(record, 2, length - 2));
+            case TaskJournal.CLEAR -> forgetAll(CsvTaskCodec.parseType(record, 2, length - 2));
+            default -> throw new IllegalArgumentException(String.format("Неизвестная операция журнала: %s", operation));
         }
     }
 
     @Override
-    public Task createTask(Task task) {
+    public synchronized Task createTask(Task task) {
         Task created = super.createTask(task);
-        save();
+        persist(TaskJournal.CREATE, created);
         return created;
     }
 
     @Override
-    public Epic createEpic(Epic epic) {
+    public synchronized Epic createEpic(Epic epic) {
         Epic created = super.createEpic(epic);
-        save();
+        persist(TaskJournal.CREATE, created);
         return created;
     }
 
     @Override
-    public Subtask createSubtask(Subtask subtask) {
+    public synchronized Subtask createSubtask(Subtask subtask) {
         Subtask created = super.createSubtask(subtask);
         if (created != null) {
-            save();
+            persist(TaskJournal.CREATE, created);
         }
         return created;
     }
 
     @Override
-    public Task updateTask(Task task) {
+    public synchronized Task updateTask(Task task) {
         Task updated = super.updateTask(task);
         if (updated != null) {
-            save();
+            persist(TaskJournal.UPDATE, updated);
         }
         return updated;
     }
 
     @Override
-    public Epic updateEpic(Epic epic) {
+    public synchronized Epic updateEpic(Epic epic) {
         Epic updated = super.updateEpic(epic);
         if (updated != null) {
-            save();
+            persist(TaskJournal.UPDATE, updated);
         }
         return updated;
     }
 
     @Override
-    public Subtask updateSubtask(Subtask subtask) {
+    public synchronized Subtask updateSubtask(Subtask subtask) {
         Subtask updated = super.updateSubtask(subtask);
         if (updated != null) {
-            save();
+            persist(TaskJournal.UPDATE, updated);
         }
         return updated;
     }
 
     @Override
-    public boolean deleteTask(int id) {
+    public synchronized boolean deleteTask(int id) {
         boolean deleted = super.deleteTask(id);
         if (deleted) {
-            save();
+            persistDelete(List.of(id));
         }
         return deleted;
     }
 
     @Override
-    public boolean deleteEpic(int id) {
+    public synchronized boolean deleteEpic(int id) {
+        Epic epic = epics.get(id);
+        List<Integer> ids = new ArrayList<>();
+        if (epic != null) {
+            ids.addAll(epic.getSubtaskIds());
+            ids.add(id);
+        }
+
         boolean deleted = super.deleteEpic(id);
         if (deleted) {
-            save();
+            persistDelete(ids);
         }
         return deleted;
     }
 
     @Override
-    public boolean deleteSubtask(int id) {
+    public synchronized boolean deleteSubtask(int id) {
         boolean deleted = super.deleteSubtask(id);
         if (deleted) {
-            save();
+            persistDelete(List.of(id));
+        }
+        return deleted;
+    }
+
+    // Пакет пишется одной записью в журнал или одним снимком
+
+    @Override
+    public synchronized List<Task> createAll(List<? extends Task> tasks) {
+        List<Task> created = super.createAll(tasks);
+        persistAll(TaskJournal.CREATE, created.stream().filter(Objects::nonNull).toList());
+        return created;
+    }
+
+    @Override
+    public synchronized List<Task> updateAll(List<? extends Task> tasks) {
+        List<Task> updated = super.updateAll(tasks);
+        persistAll(TaskJournal.UPDATE, updated.stream().filter(Objects::nonNull).toList());
+        return updated;
+    }
+
+    @Override
+    public synchronized List<Integer> deleteAll(Collection<Integer> ids) {
+        List<Integer> deleted = super.deleteAll(ids);
+        if (!deleted.isEmpty()) {
+            persistDelete(deleted);
         }
         return deleted;
     }
+
+    // Транзакция пишется целиком одной записью в журнал или одним снимком; если она
+    // откатилась, на диск ничего не попадает
+    @Override
+    protected synchronized List<TaskTransaction.Change> commitTransaction(List<TaskTransaction.Change> changes) {
+        List<TaskTransaction.Change> applied = super.commitTransaction(changes);
+        if (!applied.isEmpty()) {
+            persistChanges(applied);
+        }
+        return applied;
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        super.deleteAllTasks();
+        persistClear(TaskType.TASK);
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        super.deleteAllEpics();
+        persistClear(TaskType.EPIC);
+    }
+
+    @Override
+    public synchronized void deleteAllSubtasks() {
+        super.deleteAllSubtasks();
+        persistClear(TaskType.SUBTASK);
+    }
 }
\ No newline at end of file
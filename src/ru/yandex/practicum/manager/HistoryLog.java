@@ -0,0 +1,90 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.exceptions.ManagerSaveException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+// Журнал просмотров: только на дозапись, 4 байта (id задачи) на просмотр, файл лежит рядом
+// со снимком; включается через StorageConfig.setHistoryPersisted. Каждый просмотр сразу
+// кодируется в буфер очереди AppendLog, а его фоновый поток пишет накопившееся одной записью
+// и без fsync, так что чтение задачи не ждёт диска и менеджер не обязательно закрывать;
+// при сбое теряются только просмотры, ещё не отданные ОС.
+// При загрузке файл читается с конца, пока не наберётся нужное число разных id
+class HistoryLog implements AutoCloseable {
+    private static final int READ_CHUNK = 64 * 1024;
+
+    private final Path path;
+    private final AppendLog log;
+
+    HistoryLog(File snapshotFile) {
+        this.path = Path.of(snapshotFile.getPath() + ".history");
+        this.log = new AppendLog(path, DurabilityPolicy.osBuffered(), true);
+    }
+
+    void record(int id) {
+        log.appendInt(id);
+    }
+
+    // Дожидается записи всех поставленных в очередь просмотров
+    void flush() {
+        log.flush();
+    }
+
+    // Последние limit разных id, для которых known верно, от давнего просмотра к последнему
+    List<Integer> readLast(int limit, IntPredicate known) {
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+        List<Integer> newestFirst = new ArrayList<>(limit);
+        Set<Integer> seen = new HashSet<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Недописанный при сбое хвост короче записи и пропускается
+            long end = channel.size() - channel.size() % Integer.BYTES;
+            ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK);
+            while (end > 0 && newestFirst.size() < limit) {
+                long start = Math.max(0, end - READ_CHUNK);
+                buffer.clear().limit((int) (end - start));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, start + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                for (int i = buffer.position() / Integer.BYTES - 1; i >= 0 && newestFirst.size() < limit; i--) {
+                    int id = buffer.getInt(i * Integer.BYTES);
+                    if (seen.add(id) && known.test(id)) {
+                        newestFirst.add(id);
+                    }
+                }
+                end = start;
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось прочитать историю: %s", path.toAbsolutePath()));
+        }
+        return newestFirst.reversed();
+    }
+
+    // Оставляет в файле только эти просмотры, чтобы он не рос от запуска к запуску
+    void rewrite(List<Integer> ids) {
+        ByteBuffer content = ByteBuffer.allocate(ids.size() * Integer.BYTES);
+        for (Integer id : ids) {
+            content.putInt(id);
+        }
+        log.reset(() -> SnapshotWriter.writeAtomically(path.toFile(), content.array()));
+    }
+
+    @Override
+    public void close() {
+        log.close();
+    }
+}
@@ -2,10 +2,16 @@ package ru.yandex.practicum.manager;
 
 import ru.yandex.practicum.models.Task;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface HistoryManager {
 
     void add(Task task);
 
+    void remove(int id);
+
     List<Task> getHistory();
-}
\ No newline at end of file
+
+    // Просмотры от давнего к последнему, без копирования
+    Stream<Task> stream();
+}
@@ -1,48 +1,139 @@
 package ru.yandex.practicum.manager;
 
 import ru.yandex.practicum.models.*;
+import ru.yandex.practicum.util.IntObjectMap;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+// История просмотров: двусвязный список узлов от давнего просмотра (head) к последнему (tail)
+// и индекс id -> узел. Повторный просмотр переносит узел в конец, удаление и вытеснение
+// самого давнего при заполнении — O(1); вытесненный узел переиспользуется для нового id.
+// В узле лежит замороженная версия задачи: пока задача не менялась, повторный просмотр
+// ничего не выделяет
 public class InMemoryHistoryManager implements HistoryManager {
-    private static final int HISTORY_LIMIT = 10;
-    private final List<Task> history;
+    static final int DEFAULT_CAPACITY = 10;
+
+    private static final class Node {
+        Task task;
+        Node prev;
+        Node next;
+    }
+
+    private final int capacity;
+    private final IntObjectMap<Node> nodes;
+    private Node head;
+    private Node tail;
+    // Меняется при каждом изменении списка, чтобы обход stream() замечал их
+    private int modCount;
 
     public InMemoryHistoryManager() {
-        this.history = new ArrayList<>();
+        this(DEFAULT_CAPACITY);
+    }
+
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+        this.nodes = new IntObjectMap<>(Math.min(capacity, 1024));
+    }
+
+    public int getCapacity() {
+        return capacity;
     }
 
     @Override
     public void add(Task task) {
         if (task == null) return;
 
-        history.removeIf(t -> t.getId() == task.getId());
-
-        Task copy;
-        if (task instanceof Subtask) {
-            Subtask subtask = (Subtask) task;
-            copy = new Subtask(subtask.getTitle(), subtask.getDescription(), subtask.getStatus(), subtask.getEpicId());
-            copy.setId(subtask.getId());
-        } else if (task instanceof Epic) {
-            Epic epic = (Epic) task;
-            copy = new Epic(epic.getTitle(), epic.getDescription(), epic.getStatus());
-            copy.setId(epic.getId());
-            copy.setStatus(epic.getStatus());
+        Node node = nodes.get(task.getId());
+        if (node != null) {
+            unlink(node);
+        } else if (nodes.size() == capacity) {
+            node = head;
+            nodes.remove(node.task.getId());
+            unlink(node);
+            nodes.put(task.getId(), node);
         } else {
-            copy = new Task(task.getTitle(), task.getDescription(), task.getStatus());
-            copy.setId(task.getId());
-            copy.setStatus(task.getStatus());
+            node = new Node();
+            nodes.put(task.getId(), node);
         }
+        node.task = task.freeze();
+        linkLast(node);
+        modCount++;
+    }
 
-        history.add(copy);
-
-        if (history.size() > 10) {
-            history.removeFirst();
+    @Override
+    public void remove(int id) {
+        Node node = nodes.remove(id);
+        if (node != null) {
+            unlink(node);
+            node.task = null;
+            modCount++;
         }
     }
 
     @Override
     public List<Task> getHistory() {
-        return new ArrayList<>(history);
+        List<Task> history = new ArrayList<>(nodes.size());
+        for (Node node = head; node != null; node = node.next) {
+            history.add(node.task);
+        }
+        return history;
+    }
+
+    // Обход от давнего просмотра к последнему без копирования; изменение истории во время
+    // обхода даёт ConcurrentModificationException
+    @Override
+    public Stream<Task> stream() {
+        Spliterator<Task> spliterator = new Spliterators.AbstractSpliterator<>(nodes.size(),
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private final int expectedModCount = modCount;
+            private Node next = head;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Task> action) {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next == null) {
+                    return false;
+                }
+                Task task = next.task;
+                next = next.next;
+                action.accept(task);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    private void linkLast(Node node) {
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
     }
-}
\ No newline at end of file
+}
@@ -2,16 +2,24 @@ package ru.yandex.practicum.manager;
 
 import ru.yandex.practicum.exceptions.TaskIntersectionException;
 import ru.yandex.practicum.models.*;
+import ru.yandex.practicum.util.IntObjectMap;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 public class InMemoryTaskManager implements TaskManager {
-    protected final Map<Integer, Task> tasks;
-    protected final Map<Integer, Epic> epics;
-    protected final Map<Integer, Subtask> subtasks;
+    // Каждый вид хранится отдельно, поэтому операции над всеми задачами одного вида
+    // не просматривают остальные; directory — общий справочник id -> задача любого вида
+    protected final IntObjectMap<Task> tasks;
+    protected final IntObjectMap<Epic> epics;
+    protected final IntObjectMap<Subtask> subtasks;
+    private final IntObjectMap<Task> directory;
     protected int nextId;
     private final HistoryManager historyManager;
     private final TreeSet<Task> prioritizedTasks = new TreeSet<>(
@@ -19,12 +27,21 @@ public class InMemoryTaskManager implements TaskManager {
                     .comparing(Task::getStartTime, Comparator.nullsLast(Comparator.naturalOrder()))
                     .thenComparing(Task::getId)
     );
+    // Задачи и подзадачи с ненулевой длительностью, для проверки пересечений
+    private final IntervalIndex intervals = new IntervalIndex();
+    // Необязательный календарь слотов: быстрый ответ на проверку пересечений для выровненных задач
+    private SlotCalendar slotCalendar;
+    // Частота чтений задач по id (null — не считается)
+    private AccessStatistics accessStatistics = new AccessStatistics();
+    // Пересечения, найденные при последнем восстановлении из хранилища
+    private List<TaskConflict> restoreConflicts = List.of();
 
     public InMemoryTaskManager(HistoryManager historyManager) {
         this.historyManager = historyManager;
-        this.tasks = new HashMap<>();
-        this.epics = new HashMap<>();
-        this.subtasks = new HashMap<>();
+        this.tasks = new IntObjectMap<>();
+        this.epics = new IntObjectMap<>();
+        this.subtasks = new IntObjectMap<>();
+        this.directory = new IntObjectMap<>();
         this.nextId = 1;
     }
 
@@ -36,28 +53,53 @@ public class InMemoryTaskManager implements TaskManager {
         return nextId++;
     }
 
+    // id новой задачи: заданный сохраняется, если он ещё свободен, а счётчик сдвигается за него,
+    // чтобы следующие id с ним не совпали; новый id обходит занятые
+    private int claimId(int requested) {
+        if (requested == 0) {
+            while (directory.containsKey(nextId)) {
+                nextId++;
+            }
+            return generateId();
+        }
+        checkIdFree(requested);
+        if (requested >= nextId) {
+            nextId = requested + 1;
+        }
+        return requested;
+    }
+
+    private void checkIdFree(int id) {
+        if (directory.containsKey(id)) {
+            throw new IllegalArgumentException("Задача с id " + id + " уже существует");
+        }
+    }
+
     // === ru.yandex.practicum.models.Task ===
 
     @Override
     public List<Task> getAllTasks() {
-        return tasks.values().stream()
-                .filter(task -> !(task instanceof Subtask) && !(task instanceof Epic))
-                .collect(Collectors.toList());
+        return tasks.values();
     }
 
     @Override
     public void deleteAllTasks() {
-        tasks.values().removeIf(task -> task instanceof Task && !(task instanceof Epic || task instanceof Subtask));
+        for (int i = 0; i < tasks.size(); i++) {
+            unindex(tasks.valueAt(i));
+            directory.remove(tasks.keyAt(i));
+            historyManager.remove(tasks.keyAt(i));
+        }
+        tasks.clear();
     }
 
     @Override
     public Task getTask(int id) {
         Task task = tasks.get(id);
-        if (task != null && task instanceof Task && !(task instanceof Epic || task instanceof Subtask)) {
+        if (task != null) {
             historyManager.add(task);
-            return task;
+            recordAccess(id);
         }
-        return null;
+        return task;
     }
 
     @Override
@@ -68,19 +110,18 @@ public class InMemoryTaskManager implements TaskManager {
             );
         }
 
+        return insertTask(task, claimId(task.getId()));
+    }
+
+    private Task insertTask(Task task, int id) {
         Task copy = new Task(task.getTitle(), task.getDescription(), task.getStatus());
-        if (task.getId() == 0) {
-            copy.setId(generateId());
-        } else {
-            copy.setId(task.getId());
-        }
+        copy.setId(id);
         copy.setStartTime(task.getStartTime());
         copy.setDuration(task.getDuration());
 
         tasks.put(copy.getId(), copy);
-        if (copy.getStartTime() != null) {
-            prioritizedTasks.add(copy);
-        }
+        directory.put(copy.getId(), copy);
+        index(copy);
         return copy;
     }
 
@@ -90,37 +131,33 @@ public class InMemoryTaskManager implements TaskManager {
             throw new TaskIntersectionException("Невозможно обновить задачу: она пересекается по времени.");
         }
 
-        if (tasks.containsKey(updatedTask.getId())) {
-            Task existing = tasks.get(updatedTask.getId());
-            if (existing != null && !(existing instanceof Epic || existing instanceof Subtask)) {
-                if (existing.getStartTime() != null) {
-                    prioritizedTasks.remove(existing);
-                }
+        Task existing = tasks.get(updatedTask.getId());
+        if (existing != null) {
+            applyTaskUpdate(existing, updatedTask);
+        }
+        return existing;
+    }
 
-                existing.setTitle(updatedTask.getTitle());
-                existing.setDescription(updatedTask.getDescription());
-                existing.setStatus(updatedTask.getStatus());
-                existing.setStartTime(updatedTask.getStartTime());
-                existing.setDuration(updatedTask.getDuration());
+    private void applyTaskUpdate(Task existing, Task updatedTask) {
+        unindex(existing);
 
-                if (existing.getStartTime() != null) {
-                    prioritizedTasks.add(existing);
-                }
+        existing.setTitle(updatedTask.getTitle());
+        existing.setDescription(updatedTask.getDescription());
+        existing.setStatus(updatedTask.getStatus());
+        existing.setStartTime(updatedTask.getStartTime());
+        existing.setDuration(updatedTask.getDuration());
 
-                return existing;
-            }
-        }
-        return null;
+        index(existing);
     }
 
     @Override
     public boolean deleteTask(int id) {
-        Task task = tasks.get(id);
-        if (task != null && !(task instanceof Epic || task instanceof Subtask)) {
-            if (task.getStartTime() != null) {
-                prioritizedTasks.remove(task);
-            }
-            return tasks.remove(id) != null;
+        Task task = tasks.remove(id);
+        if (task != null) {
+            directory.remove(id);
+            unindex(task);
+            historyManager.remove(id);
+            return true;
         }
         return false;
     }
@@ -129,17 +166,23 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Epic> getAllEpics() {
-        return new ArrayList<>(epics.values());
+        return epics.values();
     }
 
     @Override
     public void deleteAllEpics() {
-        for (Epic epic : epics.values()) {
-            epic.clearSubtasks();
+        for (int i = 0; i < epics.size(); i++) {
+            epics.valueAt(i).clearSubtasks();
+            directory.remove(epics.keyAt(i));
+            historyManager.remove(epics.keyAt(i));
+        }
+        for (int i = 0; i < subtasks.size(); i++) {
+            unindex(subtasks.valueAt(i));
+            directory.remove(subtasks.keyAt(i));
+            historyManager.remove(subtasks.keyAt(i));
         }
         epics.clear();
         subtasks.clear();
-        tasks.entrySet().removeIf(entry -> entry.getValue() instanceof Epic || entry.getValue() instanceof Subtask);
     }
 
     @Override
@@ -147,20 +190,21 @@ public class InMemoryTaskManager implements TaskManager {
         Epic epic = epics.get(id);
         if (epic != null) {
             historyManager.add(epic);
+            recordAccess(id);
         }
         return epic;
     }
 
     @Override
     public Epic createEpic(Epic epic) {
+        return insertEpic(epic, claimId(epic.getId()));
+    }
+
+    private Epic insertEpic(Epic epic, int id) {
         Epic copy = new Epic(epic.getTitle(), epic.getDescription(), epic.getStatus());
-        if (epic.getId() == 0) {
-            copy.setId(generateId());
-        } else {
-            copy.setId(epic.getId());
-        }
+        copy.setId(id);
         epics.put(copy.getId(), copy);
-        tasks.put(copy.getId(), copy);
+        directory.put(copy.getId(), copy);
         return copy;
     }
 
@@ -178,100 +222,74 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public boolean deleteEpic(int id) {
-        Epic epic = epics.remove(id);
+        Epic epic = epics.get(id);
         if (epic != null) {
-            tasks.remove(id);
-
-            // Удаляем все подзадачи эпика
-            List<Integer> subtaskIdsToRemove = new ArrayList<>(epic.getSubtaskIds());
-            for (Integer subId : subtaskIdsToRemove) {
-                subtasks.remove(subId);
-                tasks.remove(subId);
-            }
-
-            epic.clearSubtasks();
+            List<Integer> removedIds = new ArrayList<>();
+            removeEpic(epic, removedIds);
+            historyManager.remove(id);
+            removedIds.forEach(historyManager::remove);
             return true;
         }
         return false;
     }
 
-    void updateEpicStatus(Epic epic) {
-        List<Subtask> subtasks = getEpicSubtasks(epic.getId());
-
-        if (subtasks.isEmpty()) {
-            epic.setStatus(Status.NEW);
-            return;
-        }
-
-        boolean allNew = true;
-        boolean allDone = true;
-
-        for (Subtask subtask : subtasks) {
-            if (subtask.getStatus() != Status.NEW) allNew = false;
-            if (subtask.getStatus() != Status.DONE) allDone = false;
+    // Удаляет эпик вместе с подзадачами; их id, если передан список, дописываются в него
+    private void removeEpic(Epic epic, List<Integer> removedIds) {
+        epics.remove(epic.getId());
+        directory.remove(epic.getId());
+
+        for (Integer subId : epic.getSubtaskIds()) {
+            Subtask subtask = subtasks.remove(subId);
+            if (subtask != null) {
+                unindex(subtask);
+                directory.remove(subId);
+                if (removedIds != null) {
+                    removedIds.add(subId);
+                }
+            }
         }
+        epic.clearSubtasks();
+    }
 
-        if (allDone) {
-            epic.setStatus(Status.DONE);
-        } else if (allNew) {
-            epic.setStatus(Status.NEW);
-        } else {
-            epic.setStatus(Status.IN_PROGRESS);
-        }
+    // Статус и время эпика берутся из сводки, которую эпик ведёт по своим подзадачам
+    void updateEpicStatus(Epic epic) {
+        epic.setStatus(epic.getSubtasksStatus());
     }
 
     protected void updateEpicTimes(Epic epic) {
         if (epic == null) return;
 
-        List<Subtask> epicSubtasks = epic.getSubtaskIds().stream()
-                .map(subtasks::get)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
-        if (epicSubtasks.isEmpty()) {
-            epic.setStartTime(null);
-            epic.setDuration(Duration.ZERO);
-            epic.setEndTime(null);
-            return;
-        }
-
-        LocalDateTime minStart = epicSubtasks.stream()
-                .map(Subtask::getStartTime)
-                .filter(Objects::nonNull)
-                .min(LocalDateTime::compareTo)
-                .orElse(null);
-
-        LocalDateTime maxEnd = epicSubtasks.stream()
-                .map(Subtask::getEndTime)
-                .filter(Objects::nonNull)
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
-
-        Duration totalDuration = epicSubtasks.stream()
-                .map(Subtask::getDuration)
-                .reduce(Duration.ZERO, Duration::plus);
+        epic.setStartTime(epic.getSubtasksStartTime());
+        epic.setDuration(epic.getSubtasksDuration());
+        epic.setEndTime(epic.getSubtasksEndTime());
+    }
 
-        epic.setStartTime(minStart);
-        epic.setDuration(totalDuration);
-        epic.setEndTime(maxEnd);
+    private void refreshEpic(Epic epic) {
+        updateEpicStatus(epic);
+        updateEpicTimes(epic);
     }
 
     // === ru.yandex.practicum.models.Subtask ===
 
     @Override
     public List<Subtask> getAllSubtasks() {
-        return new ArrayList<>(subtasks.values());
+        return subtasks.values();
     }
 
     @Override
     public void deleteAllSubtasks() {
-        for (Epic epic : epics.values()) {
+        for (int i = 0; i < epics.size(); i++) {
+            Epic epic = epics.valueAt(i);
             epic.clearSubtasks();
             updateEpicStatus(epic);
             updateEpicTimes(epic);
         }
+        for (int i = 0; i < subtasks.size(); i++) {
+            unindex(subtasks.valueAt(i));
+            directory.remove(subtasks.keyAt(i));
+            historyManager.remove(subtasks.keyAt(i));
+        }
         subtasks.clear();
-        tasks.values().removeIf(task -> task instanceof Subtask);
     }
 
     @Override
@@ -279,6 +297,7 @@ public class InMemoryTaskManager implements TaskManager {
         Subtask subtask = subtasks.get(id);
         if (subtask != null) {
             historyManager.add(subtask);
+            recordAccess(id);
         }
         return subtasks.get(id);
     }
@@ -298,32 +317,27 @@ public class InMemoryTaskManager implements TaskManager {
             );
         }
 
+        Subtask copy = insertSubtask(subtask, claimId(subtask.getId()));
+        refreshEpic(epics.get(copy.getEpicId()));
+        return copy;
+    }
+
+    // Эпик получает подзадачу в сводку, но статус и время эпика пересчитывает вызывающий
+    private Subtask insertSubtask(Subtask subtask, int id) {
         Subtask copy = new Subtask(
                 subtask.getTitle(),
                 subtask.getDescription(),
                 subtask.getStatus(),
                 subtask.getEpicId()
         );
-        if (subtask.getId() == 0) {
-            copy.setId(generateId());
-        } else {
-            copy.setId(subtask.getId());
-        }
+        copy.setId(id);
         copy.setStartTime(subtask.getStartTime());
         copy.setDuration(subtask.getDuration());
 
         subtasks.put(copy.getId(), copy);
-        tasks.put(copy.getId(), copy);
-
-        Epic epic = epics.get(copy.getEpicId());
-        epic.addSubtask(copy.getId());
-        updateEpicStatus(epic);
-        updateEpicTimes(epic);
-
-        if (copy.getStartTime() != null) {
-            prioritizedTasks.add(copy);
-        }
-
+        directory.put(copy.getId(), copy);
+        epics.get(copy.getEpicId()).addSubtask(copy);
+        index(copy);
         return copy;
     }
 
@@ -336,8 +350,19 @@ public class InMemoryTaskManager implements TaskManager {
             throw new TaskIntersectionException("Невозможно обновить задачу: она пересекается по времени.");
         }
 
-        if (subtask.getStartTime() != null) {
-            prioritizedTasks.remove(subtask);
+        Set<Epic> touched = new LinkedHashSet<>();
+        applySubtaskUpdate(subtask, updatedSubtask, touched);
+        touched.forEach(this::refreshEpic);
+        return subtask;
+    }
+
+    // Прежний и новый эпики подзадачи попадают в touched, их пересчитывает вызывающий
+    private void applySubtaskUpdate(Subtask subtask, Subtask updatedSubtask, Set<Epic> touched) {
+        unindex(subtask);
+        Epic oldEpic = epics.get(subtask.getEpicId());
+        if (oldEpic != null) {
+            oldEpic.removeSubtask(subtask.getId());
+            touched.add(oldEpic);
         }
 
         subtask.setTitle(updatedSubtask.getTitle());
@@ -345,61 +370,44 @@ public class InMemoryTaskManager implements TaskManager {
         subtask.setStatus(updatedSubtask.getStatus());
         subtask.setStartTime(updatedSubtask.getStartTime());
         subtask.setDuration(updatedSubtask.getDuration());
+        subtask.setEpicId(updatedSubtask.getEpicId());
 
-        int oldEpicId = subtask.getEpicId();
-        int newEpicId = updatedSubtask.getEpicId();
-
-        if (oldEpicId != newEpicId) {
-            Epic oldEpic = epics.get(oldEpicId);
-            if (oldEpic != null) {
-                oldEpic.removeSubtask(subtask.getId());
-                updateEpicStatus(oldEpic);
-                updateEpicTimes(oldEpic);
-            }
-
-            Epic newEpic = epics.get(newEpicId);
-            if (newEpic != null) {
-                newEpic.addSubtask(subtask.getId());
-                updateEpicStatus(newEpic);
-                updateEpicTimes(newEpic);
-            }
-            subtask.setEpicId(newEpicId);
-        } else {
-            Epic epic = epics.get(oldEpicId);
-            if (epic != null) {
-                updateEpicStatus(epic);
-                updateEpicTimes(epic);
-            }
-        }
-
-        if (subtask.getStartTime() != null) {
-            prioritizedTasks.add(subtask);
+        Epic newEpic = epics.get(subtask.getEpicId());
+        if (newEpic != null) {
+            newEpic.addSubtask(subtask);
+            touched.add(newEpic);
         }
 
-        return subtask;
+        index(subtask);
     }
 
     @Override
     public boolean deleteSubtask(int id) {
-        Subtask subtask = subtasks.remove(id);
+        Subtask subtask = subtasks.get(id);
         if (subtask != null) {
-            tasks.remove(id);
-
-            if (subtask.getStartTime() != null) {
-                prioritizedTasks.remove(subtask);
-            }
-
-            Epic epic = epics.get(subtask.getEpicId());
+            Epic epic = removeSubtask(subtask);
             if (epic != null) {
-                epic.removeSubtask(id);
-                updateEpicStatus(epic);
-                updateEpicTimes(epic);
+                refreshEpic(epic);
             }
+            historyManager.remove(id);
             return true;
         }
         return false;
     }
 
+    // Возвращает эпик подзадачи: его статус и время пересчитывает вызывающий
+    private Epic removeSubtask(Subtask subtask) {
+        subtasks.remove(subtask.getId());
+        directory.remove(subtask.getId());
+        unindex(subtask);
+
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic != null) {
+            epic.removeSubtask(subtask.getId());
+        }
+        return epic;
+    }
+
 
     @Override
     public List<Subtask> getEpicSubtasks(int epicId) {
@@ -413,42 +421,701 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
 
+    // === Страницы и потоки ===
+
+    // Курсоры по задачам, эпикам и подзадачам — позиции в хранилище: страницы идут без сортировки
+    // и поиска, новые задачи курсор не сбивают, а после удаления он устаревает.
+    // Курсор по времени — время начала и id, его изменения не сбивают.
+    // Потоки читают хранилище напрямую; удаление во время обхода даёт ConcurrentModificationException
+
+    @Override
+    public Page<Task> getTasks(String cursor, int limit) {
+        return pageByPosition(tasks, cursor, limit);
+    }
+
+    @Override
+    public Page<Epic> getEpics(String cursor, int limit) {
+        return pageByPosition(epics, cursor, limit);
+    }
+
+    @Override
+    public Page<Subtask> getSubtasks(String cursor, int limit) {
+        return pageByPosition(subtasks, cursor, limit);
+    }
+
+    @Override
+    public Page<Task> getPrioritizedTasks(String cursor, int limit) {
+        SortedSet<Task> tail = cursor == null ? prioritizedTasks
+                : prioritizedTasks.tailSet(Page.cursorProbe(cursor), false);
+        return Page.of(tail.iterator(), limit, Page::timeCursor);
+    }
+
+    private static <T extends Task> Page<T> pageByPosition(IntObjectMap<T> store, String cursor, int limit) {
+        Page.checkLimit(limit);
+        int from = cursor == null ? 0 : Page.cursorPosition(cursor, store.layoutVersion());
+        int count = Math.max(0, Math.min(limit, store.size() - from));
+        List<T> items = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            items.add(store.valueAt(i));
+        }
+        String next = from + count < store.size() ? Page.positionCursor(store.layoutVersion(), from + count) : null;
+        return new Page<>(items, next);
+    }
+
+    @Override
+    public Stream<Task> streamTasks() {
+        return tasks.stream();
+    }
+
+    @Override
+    public Stream<Epic> streamEpics() {
+        return epics.stream();
+    }
+
+    @Override
+    public Stream<Subtask> streamSubtasks() {
+        return subtasks.stream();
+    }
+
+    @Override
+    public Stream<Task> streamPrioritizedTasks() {
+        return prioritizedTasks.stream();
+    }
+
+    // === Пакетные операции ===
+
+    // Эпики пакета создаются первыми, поэтому подзадачи пакета могут ссылаться на них по заданному id.
+    // Подзадача без эпика, как и в createSubtask, не создаётся: на её месте в ответе null.
+    // Пересечение по времени или занятый id отменяет весь пакет, до него ничего не меняется
+    @Override
+    public List<Task> createAll(List<? extends Task> batch) {
+        Set<Integer> batchEpicIds = new HashSet<>();
+        for (Task task : batch) {
+            if (task instanceof Epic && task.getId() != 0) {
+                batchEpicIds.add(task.getId());
+            }
+        }
+        List<Task> accepted = new ArrayList<>();
+        for (Task task : batch) {
+            if (!(task instanceof Subtask subtask) || canCreate(subtask, batchEpicIds)) {
+                accepted.add(task);
+            }
+        }
+        checkBatch(accepted, Set.of(),
+                "Невозможно создать задачи: они пересекаются по времени друг с другом или с другими задачами.");
+        int[] ids = planIds(batch, batchEpicIds);
+
+        Task[] created = new Task[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i) instanceof Epic epic) {
+                created[i] = insertEpic(epic, ids[i]);
+            }
+        }
+        Set<Epic> touched = new LinkedHashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Task task = batch.get(i);
+            if (ids[i] == 0 || task instanceof Epic) {
+                continue;
+            }
+            if (task instanceof Subtask subtask) {
+                created[i] = insertSubtask(subtask, ids[i]);
+                touched.add(epics.get(subtask.getEpicId()));
+            } else {
+                created[i] = insertTask(task, ids[i]);
+            }
+        }
+        touched.forEach(this::refreshEpic);
+        return Arrays.asList(created);
+    }
+
+    // id всех задач пакета выдаются до первой вставки, в том же порядке: сначала эпики, затем остальные.
+    // Заданный id должен быть свободен и не повторяться, новый обходит и занятые, и заданные в пакете,
+    // поэтому вставка уже не упадёт на середине. Подзадача, которая не будет создана, получает 0
+    private int[] planIds(List<? extends Task> batch, Set<Integer> batchEpicIds) {
+        Set<Integer> requested = new HashSet<>();
+        for (Task task : batch) {
+            if (task.getId() != 0 && (!(task instanceof Subtask subtask) || canCreate(subtask, batchEpicIds))) {
+                checkIdFree(task.getId());
+                if (!requested.add(task.getId())) {
+                    throw new IllegalArgumentException("id " + task.getId() + " повторяется в пакете");
+                }
+            }
+        }
+        int[] ids = new int[batch.size()];
+        int next = nextId;
+        for (boolean epicsPass : new boolean[] {true, false}) {
+            for (int i = 0; i < batch.size(); i++) {
+                Task task = batch.get(i);
+                if (task instanceof Epic != epicsPass
+                        || task instanceof Subtask subtask && !canCreate(subtask, batchEpicIds)) {
+                    continue;
+                }
+                if (task.getId() != 0) {
+                    ids[i] = task.getId();
+                } else {
+                    while (directory.containsKey(next) || requested.contains(next)) {
+                        next++;
+                    }
+                    ids[i] = next++;
+                }
+                next = Math.max(next, ids[i] + 1);
+            }
+        }
+        nextId = Math.max(nextId, next);
+        return ids;
+    }
+
+    // Задачи, которых нет в менеджере, пропускаются: на их месте в ответе null
+    @Override
+    public List<Task> updateAll(List<? extends Task> batch) {
+        Task[] stored = new Task[batch.size()];
+        List<Task> timed = new ArrayList<>();
+        Set<Integer> replaced = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Task task = batch.get(i);
+            stored[i] = switch (task) {
+                case Epic epic -> epics.get(epic.getId());
+                case Subtask subtask -> subtasks.get(subtask.getId());
+                default -> tasks.get(task.getId());
+            };
+            if (stored[i] != null && !(task instanceof Epic)) {
+                timed.add(task);
+                replaced.add(task.getId());
+            }
+        }
+        checkBatch(timed, replaced, "Невозможно обновить задачи: они пересекаются по времени.");
+
+        Set<Epic> touched = new LinkedHashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Task task = batch.get(i);
+            if (stored[i] instanceof Epic epic) {
+                epic.setTitle(task.getTitle());
+                epic.setDescription(task.getDescription());
+                touched.add(epic);
+            } else if (stored[i] instanceof Subtask subtask) {
+                applySubtaskUpdate(subtask, (Subtask) task, touched);
+            } else if (stored[i] != null) {
+                applyTaskUpdate(stored[i], task);
+            }
+        }
+        touched.forEach(this::refreshEpic);
+        return Arrays.asList(stored);
+    }
+
+    // Удаляет задачи любого вида; возвращает id всех удалённых, включая подзадачи удалённых эпиков
+    @Override
+    public List<Integer> deleteAll(Collection<Integer> ids) {
+        List<Integer> removed = new ArrayList<>();
+        Set<Epic> touched = new LinkedHashSet<>();
+        for (Integer id : ids) {
+            Task task = directory.get(id);
+            if (task instanceof Epic epic) {
+                removeEpic(epic, removed);
+                touched.remove(epic);
+            } else if (task instanceof Subtask subtask) {
+                Epic epic = removeSubtask(subtask);
+                if (epic != null) {
+                    touched.add(epic);
+                }
+            } else if (task != null) {
+                removeTask(task);
+            } else {
+                continue;
+            }
+            removed.add(id);
+        }
+        touched.forEach(this::refreshEpic);
+        removed.forEach(historyManager::remove);
+        return removed;
+    }
+
+    private void removeTask(Task task) {
+        tasks.remove(task.getId());
+        directory.remove(task.getId());
+        unindex(task);
+    }
+
+    private boolean canCreate(Subtask subtask, Set<Integer> batchEpicIds) {
+        return subtask.getEpicId() != subtask.getId()
+                && (epics.containsKey(subtask.getEpicId()) || batchEpicIds.contains(subtask.getEpicId()));
+    }
+
+    private void checkBatch(List<? extends Task> batch, Set<Integer> replaced, String message) {
+        if (intervals.overlapsBatch(batch, replaced)) {
+            throw new TaskIntersectionException(message);
+        }
+    }
+
+    // === Транзакции ===
+
+    @Override
+    public TaskTransaction beginTransaction() {
+        // id выдаются под тем же монитором, что и в синхронизированных наследниках
+        return new TaskTransaction(() -> {
+            synchronized (this) {
+                return generateId();
+            }
+        }, this::commitTransaction);
+    }
+
+    // Применяет шаги транзакции по очереди. Если шаг упёрся в пересечение по времени, уже
+    // применённые шаги откатываются в обратном порядке, и менеджер остаётся таким, как до commit.
+    // Шаги, которые и отдельным вызовом ничего бы не сделали (нет задачи, нет эпика), пропускаются.
+    // Возвращает применённые шаги с задачами из менеджера; удаление эпика — вместе с подзадачами
+    protected List<TaskTransaction.Change> commitTransaction(List<TaskTransaction.Change> changes) {
+        Deque<Runnable> undo = new ArrayDeque<>();
+        Set<Epic> touched = new LinkedHashSet<>();
+        List<TaskTransaction.Change> applied = new ArrayList<>();
+        try {
+            for (TaskTransaction.Change change : changes) {
+                switch (change.operation()) {
+                    case CREATE -> createInTransaction(change.task(), undo, touched, applied);
+                    case UPDATE -> updateInTransaction(change.task(), undo, touched, applied);
+                    case DELETE -> deleteInTransaction(change.id(), undo, touched, applied);
+                }
+            }
+        } catch (RuntimeException e) {
+            while (!undo.isEmpty()) {
+                undo.pop().run();
+            }
+            touched.forEach(this::refreshEpic);
+            throw e;
+        }
+        touched.forEach(this::refreshEpic);
+        // Из истории удалённые задачи уходят, только когда транзакция применилась целиком
+        for (TaskTransaction.Change change : applied) {
+            if (change.operation() == TaskTransaction.Operation.DELETE) {
+                historyManager.remove(change.id());
+            }
+        }
+        return applied;
+    }
+
+    private void createInTransaction(Task task, Deque<Runnable> undo, Set<Epic> touched,
+                                     List<TaskTransaction.Change> applied) {
+        Task created;
+        if (task instanceof Epic epic) {
+            Epic copy = insertEpic(epic, claimId(epic.getId()));
+            undo.push(() -> removeEpic(copy, null));
+            created = copy;
+        } else if (task instanceof Subtask subtask) {
+            if (!canCreate(subtask, Set.of())) {
+                return;
+            }
+            if (hasIntersectionsWith(subtask)) {
+                throw new TaskIntersectionException(
+                        "Невозможно создать подзадачу: она пересекается по времени с другой задачей."
+                );
+            }
+            Subtask copy = insertSubtask(subtask, claimId(subtask.getId()));
+            touched.add(epics.get(copy.getEpicId()));
+            undo.push(() -> removeSubtask(copy));
+            created = copy;
+        } else {
+            if (hasIntersectionsWith(task)) {
+                throw new TaskIntersectionException(
+                        "Невозможно создать задачу: она пересекается по времени с другой задачей."
+                );
+            }
+            Task copy = insertTask(task, claimId(task.getId()));
+            undo.push(() -> removeTask(copy));
+            created = copy;
+        }
+        applied.add(new TaskTransaction.Change(TaskTransaction.Operation.CREATE, created, created.getId()));
+    }
+
+    private void updateInTransaction(Task task, Deque<Runnable> undo, Set<Epic> touched,
+                                     List<TaskTransaction.Change> applied) {
+        Task stored = switch (task) {
+            case Epic epic -> epics.get(epic.getId());
+            case Subtask subtask -> subtasks.get(subtask.getId());
+            default -> tasks.get(task.getId());
+        };
+        if (stored == null) {
+            return;
+        }
+
+        Task before = stored.freeze();
+        if (stored instanceof Epic epic) {
+            epic.setTitle(task.getTitle());
+            epic.setDescription(task.getDescription());
+            touched.add(epic);
+            undo.push(() -> {
+                epic.setTitle(before.getTitle());
+                epic.setDescription(before.getDescription());
+            });
+        } else {
+            if (hasIntersectionsWith(task)) {
+                throw new TaskIntersectionException("Невозможно обновить задачу: она пересекается по времени.");
+            }
+            if (stored instanceof Subtask subtask) {
+                applySubtaskUpdate(subtask, (Subtask) task, touched);
+                undo.push(() -> applySubtaskUpdate(subtask, (Subtask) before, touched));
+            } else {
+                applyTaskUpdate(stored, task);
+                undo.push(() -> applyTaskUpdate(stored, before));
+            }
+        }
+        applied.add(new TaskTransaction.Change(TaskTransaction.Operation.UPDATE, stored, stored.getId()));
+    }
+
+    private void deleteInTransaction(int id, Deque<Runnable> undo, Set<Epic> touched,
+                                     List<TaskTransaction.Change> applied) {
+        Task task = directory.get(id);
+        if (task instanceof Epic epic) {
+            List<Subtask> epicSubtasks = getEpicSubtasks(id);
+            List<Integer> removedIds = new ArrayList<>();
+            removeEpic(epic, removedIds);
+            undo.push(() -> {
+                reinsert(epic);
+                epicSubtasks.forEach(this::reinsert);
+                touched.add(epic);
+            });
+            for (Integer subId : removedIds) {
+                applied.add(new TaskTransaction.Change(TaskTransaction.Operation.DELETE, null, subId));
+            }
+        } else if (task instanceof Subtask subtask) {
+            Epic epic = removeSubtask(subtask);
+            if (epic != null) {
+                touched.add(epic);
+            }
+            undo.push(() -> reinsert(subtask));
+        } else if (task != null) {
+            removeTask(task);
+            undo.push(() -> reinsert(task));
+        } else {
+            return;
+        }
+        applied.add(new TaskTransaction.Change(TaskTransaction.Operation.DELETE, null, id));
+    }
+
+    // Возвращает на место задачу, удалённую в этой же транзакции; статус и время эпика
+    // пересчитывает вызывающий
+    private void reinsert(Task task) {
+        if (task instanceof Epic epic) {
+            epics.put(epic.getId(), epic);
+        } else if (task instanceof Subtask subtask) {
+            subtasks.put(subtask.getId(), subtask);
+            Epic epic = epics.get(subtask.getEpicId());
+            if (epic != null) {
+                epic.addSubtask(subtask);
+            }
+        } else {
+            tasks.put(task.getId(), task);
+        }
+        directory.put(task.getId(), task);
+        if (!(task instanceof Epic)) {
+            index(task);
+        }
+    }
+
+    // === Восстановление из хранилища ===
+
+    // Кладёт задачу в хранилище как есть, без проверок; связи эпиков достраивает finishRestore
+    protected void restoreTask(Task task) {
+        forgetTask(task.getId());
+        if (task.getId() >= nextId) {
+            nextId = task.getId() + 1;
+        }
+
+        if (task instanceof Epic epic) {
+            epics.put(epic.getId(), epic);
+        } else if (task instanceof Subtask sub) {
+            subtasks.put(sub.getId(), sub);
+        } else {
+            tasks.put(task.getId(), task);
+        }
+        directory.put(task.getId(), task);
+    }
+
+    protected void forgetTask(int id) {
+        Task task = directory.remove(id);
+        if (task instanceof Epic) {
+            epics.remove(id);
+        } else if (task instanceof Subtask) {
+            subtasks.remove(id);
+        } else if (task != null) {
+            tasks.remove(id);
+        }
+    }
+
+    // Убирает при восстановлении все задачи одного вида; вместе с эпиками уходят и подзадачи
+    protected void forgetAll(TaskType type) {
+        List<IntObjectMap<? extends Task>> stores = switch (type) {
+            case TASK -> List.of(tasks);
+            case EPIC -> List.of(epics, subtasks);
+            case SUBTASK -> List.of(subtasks);
+        };
+        for (IntObjectMap<? extends Task> store : stores) {
+            for (int i = 0; i < store.size(); i++) {
+                directory.remove(store.keyAt(i));
+            }
+            store.clear();
+        }
+    }
+
+    // Задача любого вида по id
+    protected Task findTask(int id) {
+        return directory.get(id);
+    }
+
+    // Связи эпиков с подзадачами, статусы и время эпиков, индекс по времени;
+    // если передан пул, эпики считаются и сортировка идёт параллельно
+    protected void finishRestore(ForkJoinPool pool) {
+        IntObjectMap<List<Subtask>> subtasksByEpic = new IntObjectMap<>(epics.size());
+        for (int i = 0; i < subtasks.size(); i++) {
+            Subtask sub = subtasks.valueAt(i);
+            if (epics.containsKey(sub.getEpicId())) {
+                List<Subtask> list = subtasksByEpic.get(sub.getEpicId());
+                if (list == null) {
+                    list = new ArrayList<>();
+                    subtasksByEpic.put(sub.getEpicId(), list);
+                }
+                list.add(sub);
+            }
+        }
+
+        if (pool == null) {
+            for (int i = 0; i < epics.size(); i++) {
+                Epic epic = epics.valueAt(i);
+                rebuildEpic(epic, subtasksByEpic.get(epic.getId()));
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, epics.size()).parallel()
+                    .mapToObj(epics::valueAt)
+                    .forEach(epic -> rebuildEpic(epic, subtasksByEpic.get(epic.getId()))))
+                    .join();
+        }
+
+        rebuildPrioritized(pool != null);
+    }
+
+    // Сортирует задачи один раз и строит дерево за линейное время; тем же проходом
+    // по отсортированному массиву находит все задачи, пересекающиеся с более ранними.
+    // Порядок prioritizedTasks: время начала, затем id. Обычно время целое в секундах и все
+    // задачи укладываются в 2^32 секунд, тогда ключ (секунды, id) пакуется в long и сортировка
+    // и поиск пересечений идут по примитивам; иначе — компаратором и через LocalDateTime
+    private void rebuildPrioritized(boolean parallel) {
+        List<Task> timed = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.valueAt(i).getStartTime() != null) {
+                timed.add(tasks.valueAt(i));
+            }
+        }
+        for (int i = 0; i < subtasks.size(); i++) {
+            if (subtasks.valueAt(i).getStartTime() != null) {
+                timed.add(subtasks.valueAt(i));
+            }
+        }
+        Task[] sorted = timed.toArray(new Task[0]);
+
+        long[] starts = new long[sorted.length];
+        long minStart = Long.MAX_VALUE;
+        long maxStart = Long.MIN_VALUE;
+        boolean packable = true;
+        for (int i = 0; i < sorted.length; i++) {
+            Task task = sorted[i];
+            starts[i] = task.getStartTime().toEpochSecond(ZoneOffset.UTC);
+            minStart = Math.min(minStart, starts[i]);
+            maxStart = Math.max(maxStart, starts[i]);
+            packable &= task.getStartTime().getNano() == 0 && task.getDuration().getNano() == 0;
+        }
+        packable &= sorted.length == 0 || maxStart - minStart < (1L << 32);
+
+        List<TaskConflict> conflicts = new ArrayList<>();
+        if (packable) {
+            // Младшие 31 бит ключа — позиция в исходном массиве, так задача достаётся без поиска по id
+            long[] keys = new long[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                keys[i] = (starts[i] - minStart) << 31 | i;
+            }
+            if (parallel) {
+                Arrays.parallelSort(keys);
+            } else {
+                Arrays.sort(keys);
+            }
+
+            Task[] source = sorted;
+            sorted = new Task[source.length];
+            Task reach = null;
+            long reachEnd = 0;
+            int runStart = 0;
+            for (int i = 0; i < keys.length; i++) {
+                Task task = source[(int) (keys[i] & Integer.MAX_VALUE)];
+                sorted[i] = task;
+                long start = (keys[i] >>> 31) + minStart;
+                if (i > 0 && keys[i] >>> 31 != keys[i - 1] >>> 31) {
+                    sortById(sorted, runStart, i);
+                    runStart = i;
+                }
+
+                long duration = task.getDuration().getSeconds();
+                if (duration == 0) {
+                    continue;
+                }
+                if (reach != null && start < reachEnd) {
+                    conflicts.add(new TaskConflict(reach, task));
+                }
+                if (reach == null || start + duration > reachEnd) {
+                    reach = task;
+                    reachEnd = start + duration;
+                }
+            }
+            sortById(sorted, runStart, sorted.length);
+        } else {
+            if (parallel) {
+                Arrays.parallelSort(sorted, prioritizedTasks.comparator());
+            } else {
+                Arrays.sort(sorted, prioritizedTasks.comparator());
+            }
+
+            Task reach = null;
+            LocalDateTime reachEnd = null;
+            for (Task task : sorted) {
+                LocalDateTime end = task.getEndTime();
+                if (end == null) {
+                    continue;
+                }
+                if (reach != null && task.getStartTime().isBefore(reachEnd)) {
+                    conflicts.add(new TaskConflict(reach, task));
+                }
+                if (reach == null || end.isAfter(reachEnd)) {
+                    reach = task;
+                    reachEnd = end;
+                }
+            }
+        }
+
+        prioritizedTasks.clear();
+        prioritizedTasks.addAll(new SortedArrayView<>(sorted, prioritizedTasks.comparator()));
+        intervals.rebuild(sorted);
+        setSlotCalendar(slotCalendar);
+        restoreConflicts = conflicts;
+    }
+
+    // Задачи с одинаковым временем начала упорядочены по id
+    private static void sortById(Task[] sorted, int from, int to) {
+        if (to - from > 1) {
+            Arrays.sort(sorted, from, to, Comparator.comparingInt(Task::getId));
+        }
+    }
+
+    // Задачи из хранилища, пересекающиеся по времени: при загрузке они не отбрасываются,
+    // а попадают сюда, чтобы их можно было поправить
+    public List<TaskConflict> getRestoreConflicts() {
+        return new ArrayList<>(restoreConflicts);
+    }
+
+    private void rebuildEpic(Epic epic, List<Subtask> epicSubtasks) {
+        if (epicSubtasks != null) {
+            for (Subtask subtask : epicSubtasks) {
+                epic.addSubtask(subtask);
+            }
+        }
+        updateEpicStatus(epic);
+        updateEpicTimes(epic);
+    }
+
     @Override
     public List<Task> getHistory() {
         return historyManager.getHistory();
     }
 
-    private boolean isIntersect(Task a, Task b) {
-        if (a == null || b == null) return false;
-        if (a.getStartTime() == null || b.getStartTime() == null) return false;
+    protected HistoryManager getHistoryManager() {
+        return historyManager;
+    }
+
+    @Override
+    public Stream<Task> streamHistory() {
+        return historyManager.stream();
+    }
 
-        LocalDateTime aEnd = a.getEndTime();
-        LocalDateTime bEnd = b.getEndTime();
+    // Задача добавляется в индексы по времени после того, как её время выставлено
+    private void index(Task task) {
+        if (task.getStartTime() != null) {
+            prioritizedTasks.add(task);
+        }
+        intervals.add(task);
+        if (slotCalendar != null) {
+            slotCalendar.reserve(task);
+        }
+    }
 
-        if (aEnd == null || bEnd == null) return false;
+    // и убирается из них до того, как время поменяется
+    private void unindex(Task task) {
+        if (task.getStartTime() != null) {
+            prioritizedTasks.remove(task);
+        }
+        intervals.remove(task.getId());
+        if (slotCalendar != null) {
+            slotCalendar.release(task.getId());
+        }
+    }
 
-        return a.getStartTime().isBefore(bEnd) && b.getStartTime().isBefore(aEnd);
+    @Override
+    public AccessStatistics getAccessStatistics() {
+        return accessStatistics;
+    }
+
+    public void setAccessStatistics(AccessStatistics accessStatistics) {
+        this.accessStatistics = accessStatistics;
+    }
+
+    private void recordAccess(int id) {
+        if (accessStatistics != null) {
+            accessStatistics.record(id);
+        }
+    }
+
+    public SlotCalendar getSlotCalendar() {
+        return slotCalendar;
+    }
+
+    // Подключает календарь слотов (null — отключает) и бронирует в нём уже созданные задачи
+    public void setSlotCalendar(SlotCalendar slotCalendar) {
+        this.slotCalendar = slotCalendar;
+        if (slotCalendar != null) {
+            slotCalendar.clear();
+            for (Task task : prioritizedTasks) {
+                slotCalendar.reserve(task);
+            }
+        }
     }
 
     private boolean hasIntersectionsWith(Task task) {
-        if (task == null || task.getStartTime() == null) {
+        if (task == null || !IntervalIndex.isIndexable(task)) {
             return false;
         }
-
-        return getAllExecutableTasks().stream()
-                .filter(t -> !t.equals(task))
-                .anyMatch(existing -> isIntersect(task, existing));
+        if (slotCalendar != null) {
+            // Сама задача пересечением не считается
+            Task stored = directory.get(task.getId());
+            SlotCalendar.Check check = slotCalendar.check(task.getStartTime(), task.getEndTime(),
+                    task.equals(stored) ? stored.getId() : 0);
+            if (check != SlotCalendar.Check.UNKNOWN) {
+                return check == SlotCalendar.Check.CONFLICT;
+            }
+        }
+        return intervals.overlaps(task.getStartTime(), task.getEndTime(), task.getId());
     }
 
-    private List<Task> getAllExecutableTasks() {
-        List<Task> all = new ArrayList<>();
-        all.addAll(getAllTasks());
-        all.addAll(getAllSubtasks());
-        return all;
+    @Override
+    public List<Task> getOverlappingTasks(LocalDateTime start, LocalDateTime end) {
+        List<Task> overlapping = new ArrayList<>();
+        if (start != null && end != null && start.isBefore(end)) {
+            intervals.collect(start, end, overlapping);
+        }
+        return overlapping;
     }
 
     @Override
     public List<Task> getPrioritizedTasks() {
         return new ArrayList<>(prioritizedTasks);
     }
+
+    // Версии здесь не ведутся: менеджер однопоточный, и снимок собирается копированием за O(n log n).
+    // Снимок за O(1) даёт ConcurrentTaskManager
+    @Override
+    public TaskSnapshot snapshot() {
+        return TaskSnapshot.copyOf(this);
+    }
 }
\ No newline at end of file
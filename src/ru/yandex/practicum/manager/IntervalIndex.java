@@ -0,0 +1,278 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.Epic;
+import ru.yandex.practicum.models.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Индекс задач по интервалам [начало, конец): AVL-дерево по (начало, id), в каждом узле
+// хранится наибольший конец в поддереве. Границы копируются в узел при добавлении,
+// поэтому задачу нужно убрать из индекса до изменения её времени
+final class IntervalIndex {
+
+    private static final class Node {
+        final Task task;
+        final int id;
+        final LocalDateTime start;
+        final LocalDateTime end;
+        LocalDateTime maxEnd;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(Task task) {
+            this.task = task;
+            this.id = task.getId();
+            this.start = task.getStartTime();
+            this.end = task.getEndTime();
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    // Начало, с которым задача лежит в дереве: по нему узел находится при удалении
+    private final Map<Integer, LocalDateTime> starts = new HashMap<>();
+
+    // В индекс попадают только задачи с началом и ненулевой длительностью
+    static boolean isIndexable(Task task) {
+        return task.getStartTime() != null && task.getEndTime() != null;
+    }
+
+    int size() {
+        return starts.size();
+    }
+
+    void add(Task task) {
+        remove(task.getId());
+        if (!isIndexable(task)) {
+            return;
+        }
+        starts.put(task.getId(), task.getStartTime());
+        root = insert(root, new Node(task));
+    }
+
+    void remove(int id) {
+        LocalDateTime start = starts.remove(id);
+        if (start != null) {
+            root = delete(root, start, id);
+        }
+    }
+
+    void clear() {
+        root = null;
+        starts.clear();
+    }
+
+    // Строит сбалансированное дерево за линейное время из задач, уже упорядоченных по (начало, id)
+    void rebuild(Task[] sorted) {
+        clear();
+        int count = 0;
+        Task[] indexable = new Task[sorted.length];
+        for (Task task : sorted) {
+            if (isIndexable(task)) {
+                indexable[count++] = task;
+                starts.put(task.getId(), task.getStartTime());
+            }
+        }
+        root = build(indexable, 0, count);
+    }
+
+    // Пересекается ли [start, end) с какой-либо задачей, кроме задачи с id exceptId.
+    // Поддеревья, где все задачи кончаются не позже start или начинаются не раньше end,
+    // не обходятся, поэтому при непересекающихся задачах в индексе это O(log n)
+    boolean overlaps(LocalDateTime start, LocalDateTime end, int exceptId) {
+        return overlaps(root, start, end, exceptId);
+    }
+
+    // Пересекается ли пакет задач сам с собой или с задачами индекса — за одну сортировку:
+    // задачи пакета между собой проверяются проходом по отсортированным с запоминанием самого
+    // позднего конца, с индексом — поиском по дереву. Задачи индекса, которые пакет заменяет
+    // (replaced), и сама задача в счёт не идут; эпики пакета не рассматриваются
+    boolean overlapsBatch(List<? extends Task> batch, Set<Integer> replaced) {
+        List<Task> timed = new ArrayList<>();
+        for (Task task : batch) {
+            if (!(task instanceof Epic) && isIndexable(task)) {
+                timed.add(task);
+            }
+        }
+        timed.sort(Comparator.comparing(Task::getStartTime));
+
+        LocalDateTime reach = null;
+        List<Task> overlapping = new ArrayList<>();
+        for (Task task : timed) {
+            if (reach != null && task.getStartTime().isBefore(reach)) {
+                return true;
+            }
+            if (reach == null || task.getEndTime().isAfter(reach)) {
+                reach = task.getEndTime();
+            }
+
+            overlapping.clear();
+            collect(task.getStartTime(), task.getEndTime(), overlapping);
+            for (Task other : overlapping) {
+                if (other.getId() != task.getId() && !replaced.contains(other.getId())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Все задачи, пересекающиеся с [start, end), в порядке начала
+    void collect(LocalDateTime start, LocalDateTime end, List<Task> out) {
+        collect(root, start, end, out);
+    }
+
+    private static boolean overlaps(Node node, LocalDateTime start, LocalDateTime end, int exceptId) {
+        if (node == null || !node.maxEnd.isAfter(start)) {
+            return false;
+        }
+        if (overlaps(node.left, start, end, exceptId)) {
+            return true;
+        }
+        if (!node.start.isBefore(end)) {
+            // Правее начала ещё позже
+            return false;
+        }
+        if (node.end.isAfter(start) && node.id != exceptId) {
+            return true;
+        }
+        return overlaps(node.right, start, end, exceptId);
+    }
+
+    private static void collect(Node node, LocalDateTime start, LocalDateTime end, List<Task> out) {
+        if (node == null || !node.maxEnd.isAfter(start)) {
+            return;
+        }
+        collect(node.left, start, end, out);
+        if (!node.start.isBefore(end)) {
+            return;
+        }
+        if (node.end.isAfter(start)) {
+            out.add(node.task);
+        }
+        collect(node.right, start, end, out);
+    }
+
+    private static int compare(LocalDateTime start, int id, Node node) {
+        int byStart = start.compareTo(node.start);
+        return byStart != 0 ? byStart : Integer.compare(id, node.id);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return balance(node);
+    }
+
+    private static Node delete(Node node, LocalDateTime start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+        return balance(node);
+    }
+
+    private static Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private static Node build(Task[] sorted, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        Node node = new Node(sorted[mid]);
+        node.left = build(sorted, from, mid);
+        node.right = build(sorted, mid + 1, to);
+        update(node);
+        return node;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        LocalDateTime maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int skew = height(node.left) - height(node.right);
+        if (skew > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (skew < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+}
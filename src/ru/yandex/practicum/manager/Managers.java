@@ -9,4 +9,14 @@ public class Managers {
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
-}
\ No newline at end of file
+
+    // История на capacity последних просмотренных задач
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
+    // Потокобезопасная история: своя у каждой сессии, capacity просмотров на сессию
+    public static ShardedHistoryManager getSessionHistory(int capacity) {
+        return new ShardedHistoryManager(capacity);
+    }
+}
@@ -0,0 +1,177 @@
+package ru.yandex.practicum.manager;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Потоковое чтение записей через окно MappedByteBuffer, которое сдвигается по файлу.
+// Кроме окна в памяти держится только буфер под одну запись, размер файла не важен.
+// Отображение освобождает только сборщик мусора, close() его не снимает: так читаются снимки,
+// а журнал, который сразу после чтения переносят и удаляют, читает StreamRecordReader
+final class MappedRecordReader implements AutoCloseable {
+    enum Framing {
+        // Записи разделены переводом строки
+        LINES,
+        // Каждой записи предшествует длина (varint)
+        LENGTH_PREFIXED
+    }
+
+    static final int DEFAULT_WINDOW_SIZE = 8 * 1024 * 1024;
+
+    private final FileChannel channel;
+    // Граница чтения: конец файла или конец фрагмента при параллельной загрузке
+    private final long fileSize;
+    private final Framing framing;
+    private final int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLength;
+    private long position;
+    private int prefixLength;
+
+    private byte[] record = new byte[256];
+    private int recordLength;
+
+    MappedRecordReader(Path path, Framing framing, long startOffset) throws IOException {
+        this(path, framing, startOffset, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedRecordReader(Path path, Framing framing, long startOffset, int windowSize) throws IOException {
+        this(path, framing, startOffset, Long.MAX_VALUE, windowSize);
+    }
+
+    MappedRecordReader(Path path, Framing framing, long startOffset, long endOffset, int windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = Math.min(endOffset, channel.size());
+        this.framing = framing;
+        this.windowSize = windowSize;
+        this.position = startOffset;
+    }
+
+    byte[] data() {
+        return record;
+    }
+
+    int length() {
+        return recordLength;
+    }
+
+    // Смещение начала следующей записи в файле
+    long position() {
+        return position;
+    }
+
+    boolean next() throws IOException {
+        if (position >= fileSize) {
+            return false;
+        }
+        return framing == Framing.LINES ? nextLine() : nextPrefixed();
+    }
+
+    private boolean nextLine() throws IOException {
+        ensureMapped(position, 1);
+        while (true) {
+            int from = (int) (position - windowStart);
+            for (int i = from; i < windowLength; i++) {
+                if (window.get(i) == '\n') {
+                    copyRecord(from, i - from);
+                    position = windowStart + i + 1;
+                    return true;
+                }
+            }
+            if (windowStart + windowLength >= fileSize) {
+                // Последняя строка без перевода строки
+                copyRecord(from, windowLength - from);
+                position = fileSize;
+                return true;
+            }
+            // Строка не поместилась: окно с её начала, а если и так не влезла — вдвое больше
+            int size = windowStart == position ? windowLength * 2 : windowSize;
+            map(position, size);
+        }
+    }
+
+    // Переходит к следующей записи, не копируя её
+    boolean skip() throws IOException {
+        if (framing == Framing.LINES) {
+            return next();
+        }
+        if (position >= fileSize) {
+            return false;
+        }
+        int length = readLengthPrefix();
+        if (position + prefixLength + length > fileSize) {
+            throw new IOException("Обрезанная запись в конце файла");
+        }
+        position += prefixLength + length;
+        return true;
+    }
+
+    private boolean nextPrefixed() throws IOException {
+        int length = readLengthPrefix();
+        long start = position + prefixLength;
+        if (start + length > fileSize) {
+            throw new IOException("Обрезанная запись в конце файла");
+        }
+        ensureMapped(start, length);
+        copyRecord((int) (start - windowStart), length);
+        position = start + length;
+        return true;
+    }
+
+    // Читает varint-длину записи с текущей позиции, размер самого префикса кладёт в prefixLength
+    private int readLengthPrefix() throws IOException {
+        ensureMapped(position, 5);
+        int from = (int) (position - windowStart);
+        int length = 0;
+        int shift = 0;
+        prefixLength = 0;
+        while (true) {
+            if (from + prefixLength >= windowLength) {
+                throw new IOException("Обрезанная запись в конце файла");
+            }
+            byte b = window.get(from + prefixLength++);
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return length;
+            }
+            shift += 7;
+            if (shift > 28) {
+                throw new IOException("Повреждённая длина записи");
+            }
+        }
+    }
+
+    // Гарантирует, что [from, from + size) (или до конца файла) лежит в окне
+    private void ensureMapped(long from, int size) throws IOException {
+        long end = Math.min(fileSize, from + size);
+        if (window == null || from < windowStart || end > windowStart + windowLength) {
+            map(from, Math.max(size, windowSize));
+        }
+    }
+
+    private void map(long from, int size) throws IOException {
+        long length = Math.min(size, fileSize - from);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+        windowStart = from;
+        windowLength = (int) length;
+    }
+
+    private void copyRecord(int from, int length) {
+        if (record.length < length) {
+            record = Arrays.copyOf(record, Math.max(length, record.length * 2));
+        }
+        window.get(from, record, 0, length);
+        recordLength = length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
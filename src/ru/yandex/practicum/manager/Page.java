@@ -0,0 +1,123 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.Status;
+import ru.yandex.practicum.models.Task;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+// Страница выборки и курсор на следующую. Курсор — непрозрачная строка, которую менеджер выдал
+// сам; её передают в следующий запрос как есть. Курсоры бывают двух видов:
+// по ключу (id или время начала и id) — переживают любые изменения, страница продолжается
+// с первой задачи после последней выданной; по позиции в хранилище — устаревают после удаления
+// задач и тогда дают ConcurrentModificationException
+public final class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    // null — страниц больше нет
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    // Первые limit элементов; курсор строится по последнему, если за ним что-то осталось
+    static <T> Page<T> of(Iterator<? extends T> tail, int limit, Function<? super T, String> cursorOf) {
+        checkLimit(limit);
+        List<T> items = new ArrayList<>(Math.min(limit, 64));
+        while (items.size() < limit && tail.hasNext()) {
+            items.add(tail.next());
+        }
+        String next = tail.hasNext() ? cursorOf.apply(items.getLast()) : null;
+        return new Page<>(items, next);
+    }
+
+    static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным: " + limit);
+        }
+    }
+
+    static String positionCursor(int layoutVersion, int position) {
+        return "p" + Integer.toString(layoutVersion, 36) + "." + Integer.toString(position, 36);
+    }
+
+    // Позиция, с которой продолжать; курсор, выданный до удаления задач, уже не годится
+    static int cursorPosition(String cursor, int layoutVersion) {
+        String[] parts = parse(cursor, 'p', 2);
+        try {
+            if (Integer.parseInt(parts[0], 36) != layoutVersion) {
+                throw new ConcurrentModificationException("Курсор устарел: после его выдачи задачи удалялись");
+            }
+            return Integer.parseInt(parts[1], 36);
+        } catch (NumberFormatException e) {
+            throw invalid(cursor);
+        }
+    }
+
+    static String idCursor(Task last) {
+        return "i" + Integer.toString(last.getId(), 36);
+    }
+
+    // id последней выданной задачи
+    static int cursorId(String cursor) {
+        try {
+            return Integer.parseInt(parse(cursor, 'i', 1)[0], 36);
+        } catch (NumberFormatException e) {
+            throw invalid(cursor);
+        }
+    }
+
+    static String timeCursor(Task last) {
+        LocalDateTime start = last.getStartTime();
+        return "t" + Long.toString(start.toEpochSecond(ZoneOffset.UTC), 36)
+                + "." + Integer.toString(start.getNano(), 36)
+                + "." + Integer.toString(last.getId(), 36);
+    }
+
+    // Задача-образец с временем начала и id последней выданной, для поиска в упорядоченных множествах
+    static Task cursorProbe(String cursor) {
+        String[] parts = parse(cursor, 't', 3);
+        try {
+            Task probe = new Task(null, null, Status.NEW);
+            probe.setStartTime(LocalDateTime.ofEpochSecond(Long.parseLong(parts[0], 36),
+                    Integer.parseInt(parts[1], 36), ZoneOffset.UTC));
+            probe.setId(Integer.parseInt(parts[2], 36));
+            return probe;
+        } catch (RuntimeException e) {
+            throw invalid(cursor);
+        }
+    }
+
+    private static String[] parse(String cursor, char kind, int parts) {
+        if (cursor.isEmpty() || cursor.charAt(0) != kind) {
+            throw invalid(cursor);
+        }
+        String[] split = cursor.substring(1).split("\\.", -1);
+        if (split.length != parts) {
+            throw invalid(cursor);
+        }
+        return split;
+    }
+
+    private static IllegalArgumentException invalid(String cursor) {
+        return new IllegalArgumentException("Некорректный курсор страницы: " + cursor);
+    }
+}
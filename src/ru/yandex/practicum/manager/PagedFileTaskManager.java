@@ -0,0 +1,201 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.*;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Вариант файлового менеджера, который хранит задачи в страницах одного файла и при
+// сохранении перезаписывает только записи задач, изменённых с прошлого сброса
+public class PagedFileTaskManager extends InMemoryTaskManager implements AutoCloseable {
+
+    private final PagedRecordStore store;
+    // id задач, тронутых с последнего flush
+    private final Set<Integer> dirty = new LinkedHashSet<>();
+
+    private PagedFileTaskManager(File file) {
+        this.store = new PagedRecordStore(file.toPath());
+    }
+
+    // Открывает файл страниц и поднимает из него задачи; несуществующий файл — пустой менеджер
+    public static PagedFileTaskManager loadFromFile(File file) {
+        PagedFileTaskManager manager = new PagedFileTaskManager(file);
+        synchronized (manager) {
+            manager.store.load(manager::restoreTask);
+            manager.finishRestore(null);
+        }
+        return manager;
+    }
+
+    // Записывает в файл все изменённые задачи; удалённые освобождают свои слоты.
+    // Файл не синхронизируется с диском, поэтому сбой ОС может потерять последние изменения
+    public synchronized void flush() {
+        for (Integer id : dirty) {
+            Task task = findTask(id);
+            if (task != null) {
+                store.put(task);
+            } else {
+                store.remove(id);
+            }
+        }
+        dirty.clear();
+        store.flush();
+    }
+
+    public synchronized long getLastFlushBytes() {
+        return store.getLastFlushBytes();
+    }
+
+    public synchronized int getLastFlushPages() {
+        return store.getLastFlushPages();
+    }
+
+    synchronized int getSlotCount() {
+        return store.getSlotCount();
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        store.close();
+    }
+
+    private <T extends Task> T touched(T task) {
+        if (task != null) {
+            dirty.add(task.getId());
+            flush();
+        }
+        return task;
+    }
+
+    private boolean touched(boolean deleted, int id) {
+        if (deleted) {
+            dirty.add(id);
+            flush();
+        }
+        return deleted;
+    }
+
+    // Статус и время эпика вычисляются по подзадачам при загрузке, поэтому изменения
+    // подзадач запись самого эпика не трогают
+
+    @Override
+    public synchronized Task createTask(Task task) {
+        return touched(super.createTask(task));
+    }
+
+    @Override
+    public synchronized Epic createEpic(Epic epic) {
+        return touched(super.createEpic(epic));
+    }
+
+    @Override
+    public synchronized Subtask createSubtask(Subtask subtask) {
+        return touched(super.createSubtask(subtask));
+    }
+
+    @Override
+    public synchronized Task updateTask(Task task) {
+        return touched(super.updateTask(task));
+    }
+
+    @Override
+    public synchronized Epic updateEpic(Epic epic) {
+        return touched(super.updateEpic(epic));
+    }
+
+    @Override
+    public synchronized Subtask updateSubtask(Subtask subtask) {
+        return touched(super.updateSubtask(subtask));
+    }
+
+    @Override
+    public synchronized boolean deleteTask(int id) {
+        return touched(super.deleteTask(id), id);
+    }
+
+    @Override
+    public synchronized boolean deleteEpic(int id) {
+        Epic epic = epics.get(id);
+        if (epic != null) {
+            dirty.addAll(epic.getSubtaskIds());
+        }
+        return touched(super.deleteEpic(id), id);
+    }
+
+    @Override
+    public synchronized boolean deleteSubtask(int id) {
+        return touched(super.deleteSubtask(id), id);
+    }
+
+    @Override
+    public synchronized List<Task> createAll(List<? extends Task> tasks) {
+        return touchedAll(super.createAll(tasks));
+    }
+
+    @Override
+    public synchronized List<Task> updateAll(List<? extends Task> tasks) {
+        return touchedAll(super.updateAll(tasks));
+    }
+
+    @Override
+    public synchronized List<Integer> deleteAll(Collection<Integer> ids) {
+        List<Integer> deleted = super.deleteAll(ids);
+        dirty.addAll(deleted);
+        flush();
+        return deleted;
+    }
+
+    @Override
+    protected synchronized List<TaskTransaction.Change> commitTransaction(List<TaskTransaction.Change> changes) {
+        List<TaskTransaction.Change> applied = super.commitTransaction(changes);
+        for (TaskTransaction.Change change : applied) {
+            dirty.add(change.id());
+        }
+        flush();
+        return applied;
+    }
+
+    private List<Task> touchedAll(List<Task> batch) {
+        for (Task task : batch) {
+            if (task != null) {
+                dirty.add(task.getId());
+            }
+        }
+        flush();
+        return batch;
+    }
+
+    @Override
+    public synchronized void deleteAllTasks() {
+        for (Task task : getAllTasks()) {
+            dirty.add(task.getId());
+        }
+        super.deleteAllTasks();
+        flush();
+    }
+
+    @Override
+    public synchronized void deleteAllEpics() {
+        for (int i = 0; i < epics.size(); i++) {
+            dirty.add(epics.keyAt(i));
+        }
+        for (int i = 0; i < subtasks.size(); i++) {
+            dirty.add(subtasks.keyAt(i));
+        }
+        super.deleteAllEpics();
+        flush();
+    }
+
+    @Override
+    public synchronized void deleteAllSubtasks() {
+        for (int i = 0; i < subtasks.size(); i++) {
+            dirty.add(subtasks.keyAt(i));
+        }
+        super.deleteAllSubtasks();
+        flush();
+    }
+}
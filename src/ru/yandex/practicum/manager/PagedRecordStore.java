@@ -0,0 +1,290 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.exceptions.ManagerSaveException;
+import ru.yandex.practicum.models.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Хранилище записей в страницах одного файла. Страница 0 — заголовок, дальше идут
+// слоты по SLOT_SIZE байт. Запись занимает подряд идущие слоты: длина тела (4 байта),
+// номер записи (8 байт), затем тело BinaryTaskCodec. Свободные слоты заполнены нулями,
+// занятые отмечены в карте used. Номер растёт с каждой записью: если после сбоя в файле
+// остались две копии задачи, при загрузке побеждает более новая
+class PagedRecordStore implements AutoCloseable {
+    static final int PAGE_SIZE = 4096;
+    static final int SLOT_SIZE = 128;
+    static final byte[] MAGIC = {'K', 'P', 'G', 2};
+
+    private static final int LENGTH_SIZE = 4;
+    private static final int HEADER_SIZE = LENGTH_SIZE + 8;
+    private static final int SCAN_BLOCK = 1 << 20;
+
+    private record Extent(int slot, int count) {
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final BinaryTaskCodec codec = new BinaryTaskCodec();
+    private final RecordBuffer buffer = new RecordBuffer(SLOT_SIZE);
+    private final Map<Integer, Extent> index = new HashMap<>();
+    private final BitSet used = new BitSet();
+    // Число слотов в файле, включая свободные
+    private int slotCount;
+    // Ни один слот левее не свободен
+    private int freeHint;
+    // Номер следующей записи
+    private long nextStamp = 1;
+
+    private final BitSet touchedPages = new BitSet();
+    private long pendingBytes;
+    private long lastFlushBytes;
+    private int lastFlushPages;
+
+    PagedRecordStore(Path path) {
+        this.path = path;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (channel.size() < PAGE_SIZE) {
+                writeHeader();
+            } else {
+                checkHeader();
+                slotCount = (int) ((channel.size() - PAGE_SIZE) / SLOT_SIZE);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось открыть файл: %s", path.toAbsolutePath()));
+        }
+    }
+
+    long getLastFlushBytes() {
+        return lastFlushBytes;
+    }
+
+    int getLastFlushPages() {
+        return lastFlushPages;
+    }
+
+    int getSlotCount() {
+        return slotCount;
+    }
+
+    // Читает все записи файла и строит индекс id -> слоты. Задачи отдаются после чтения всего
+    // файла: копия задачи может встретиться дальше по файлу, и тогда решает номер записи
+    void load(Consumer<Task> consumer) {
+        Map<Integer, Task> latest = new LinkedHashMap<>();
+        Map<Integer, Long> stamps = new HashMap<>();
+        try {
+            ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK);
+            int blockFirst = 0;
+            int blockSlots = 0;
+            int slot = 0;
+            while (slot < slotCount) {
+                if (slot >= blockFirst + blockSlots) {
+                    blockFirst = slot;
+                    blockSlots = fill(block, slot);
+                }
+                int length = block.getInt((slot - blockFirst) * SLOT_SIZE);
+                if (length == 0) {
+                    slot++;
+                    continue;
+                }
+
+                int count = length > 0 ? slotsFor(length) : 0;
+                if (count == 0 || slot + count > slotCount) {
+                    throw new ManagerSaveException(String.format("Повреждённая запись в слоте %d: %s",
+                            slot, path.toAbsolutePath()));
+                }
+                if (slot + count > blockFirst + blockSlots) {
+                    // Запись не поместилась в текущий блок — перечитываем начиная с неё
+                    if (count * SLOT_SIZE > block.capacity()) {
+                        block = ByteBuffer.allocate(count * SLOT_SIZE);
+                    }
+                    blockFirst = slot;
+                    blockSlots = fill(block, slot);
+                }
+
+                int offset = (slot - blockFirst) * SLOT_SIZE;
+                long stamp = block.getLong(offset + LENGTH_SIZE);
+                Task task = codec.decode(block.array(), offset + HEADER_SIZE, length);
+                Extent extent = new Extent(slot, count);
+                used.set(slot, slot + count);
+                nextStamp = Math.max(nextStamp, stamp + 1);
+                Long previousStamp = stamps.get(task.getId());
+                if (previousStamp == null || previousStamp < stamp) {
+                    // Старая копия осталась после сбоя между записью новой и освобождением старой
+                    Extent previous = index.put(task.getId(), extent);
+                    if (previous != null) {
+                        release(previous);
+                    }
+                    stamps.put(task.getId(), stamp);
+                    latest.put(task.getId(), task);
+                } else {
+                    release(extent);
+                }
+                slot += count;
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось прочитать файл: %s", path.toAbsolutePath()));
+        }
+        latest.values().forEach(consumer);
+    }
+
+    // Записывает задачу: на место старой, если хватает слотов, иначе в свободный участок.
+    // Во втором случае старые слоты освобождаются только после записи новых, поэтому сбой
+    // между шагами оставляет в файле две копии, а не ни одной
+    void put(Task task) {
+        buffer.clear();
+        buffer.writeBytes(new byte[HEADER_SIZE], 0, HEADER_SIZE);
+        codec.encodeBody(task, buffer);
+        int length = buffer.size() - HEADER_SIZE;
+        ByteBuffer record = ByteBuffer.wrap(buffer.array(), 0, buffer.size());
+        record.putInt(0, length);
+        record.putLong(LENGTH_SIZE, nextStamp++);
+
+        int count = slotsFor(length);
+        Extent old = index.get(task.getId());
+        Extent extent = old;
+        if (extent == null || extent.count() != count) {
+            extent = new Extent(allocate(count), count);
+            index.put(task.getId(), extent);
+        }
+
+        // Хвост последнего слота обнуляем, чтобы в файле не оставалось старых данных
+        int padded = count * SLOT_SIZE;
+        while (buffer.size() < padded) {
+            buffer.writeByte(0);
+        }
+        write(ByteBuffer.wrap(buffer.array(), 0, padded), extent.slot());
+        if (old != null && old != extent) {
+            release(old);
+        }
+    }
+
+    void remove(int id) {
+        Extent extent = index.remove(id);
+        if (extent != null) {
+            release(extent);
+        }
+    }
+
+    // Завершает серию записей: отрезает свободный хвост и обновляет статистику.
+    // Записи уже переданы ОС, но на диск принудительно не сбрасываются (channel.force не
+    // вызывается): после сбоя питания последние изменения могут пропасть
+    void flush() {
+        int end = used.length();
+        if (end < slotCount) {
+            try {
+                channel.truncate(slotOffset(end));
+            } catch (IOException e) {
+                throw new ManagerSaveException(String.format("Не удалось сохранить файл: %s", path.toAbsolutePath()));
+            }
+            slotCount = end;
+        }
+        lastFlushBytes = pendingBytes;
+        lastFlushPages = touchedPages.cardinality();
+        pendingBytes = 0;
+        touchedPages.clear();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось закрыть файл: %s", path.toAbsolutePath()));
+        }
+    }
+
+    private int allocate(int count) {
+        int from = freeHint;
+        while (true) {
+            int start = used.nextClearBit(from);
+            int next = used.nextSetBit(start);
+            if (next == -1 || next - start >= count) {
+                used.set(start, start + count);
+                if (start == freeHint) {
+                    freeHint = used.nextClearBit(start);
+                }
+                slotCount = Math.max(slotCount, start + count);
+                return start;
+            }
+            from = next;
+        }
+    }
+
+    private void release(Extent extent) {
+        write(ByteBuffer.allocate(extent.count() * SLOT_SIZE), extent.slot());
+        used.clear(extent.slot(), extent.slot() + extent.count());
+        freeHint = Math.min(freeHint, extent.slot());
+    }
+
+    private void write(ByteBuffer data, int slot) {
+        long position = slotOffset(slot);
+        int length = data.remaining();
+        try {
+            while (data.hasRemaining()) {
+                channel.write(data, position + data.position());
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось сохранить файл: %s", path.toAbsolutePath()));
+        }
+        pendingBytes += length;
+        touchedPages.set((int) (position / PAGE_SIZE), (int) ((position + length - 1) / PAGE_SIZE) + 1);
+    }
+
+    // Заполняет блок слотами начиная с заданного, возвращает число прочитанных слотов
+    private int fill(ByteBuffer block, int slot) throws IOException {
+        block.clear();
+        long available = slotOffset(slotCount) - slotOffset(slot);
+        if (available < block.capacity()) {
+            block.limit((int) available);
+        }
+        long position = slotOffset(slot);
+        while (block.hasRemaining()) {
+            if (channel.read(block, position + block.position()) < 0) {
+                break;
+            }
+        }
+        return block.position() / SLOT_SIZE;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        header.put(MAGIC).putInt(PAGE_SIZE).putInt(SLOT_SIZE).clear();
+        channel.truncate(0);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private void checkHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 8);
+        channel.read(header, 0);
+        header.flip();
+        for (byte b : MAGIC) {
+            if (header.get() != b) {
+                throw new ManagerSaveException(String.format("Неизвестный формат файла: %s", path.toAbsolutePath()));
+            }
+        }
+        if (header.getInt() != PAGE_SIZE || header.getInt() != SLOT_SIZE) {
+            throw new ManagerSaveException(String.format("Неподдерживаемый размер страниц: %s", path.toAbsolutePath()));
+        }
+    }
+
+    private static int slotsFor(int length) {
+        return (HEADER_SIZE + length + SLOT_SIZE - 1) / SLOT_SIZE;
+    }
+
+    private static long slotOffset(int slot) {
+        return PAGE_SIZE + (long) slot * SLOT_SIZE;
+    }
+}
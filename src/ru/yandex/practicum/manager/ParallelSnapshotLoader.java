@@ -0,0 +1,159 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.exceptions.ManagerSaveException;
+import ru.yandex.practicum.models.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Делит снимок на фрагменты по границам записей и разбирает их параллельно.
+// Результат — списки задач по фрагментам в порядке следования в файле
+final class ParallelSnapshotLoader {
+    static final long DEFAULT_MIN_CHUNK_BYTES = 1024 * 1024;
+
+    private final ForkJoinPool pool;
+    private final long minChunkBytes;
+
+    ParallelSnapshotLoader(ForkJoinPool pool) {
+        this(pool, DEFAULT_MIN_CHUNK_BYTES);
+    }
+
+    ParallelSnapshotLoader(ForkJoinPool pool, long minChunkBytes) {
+        this.pool = pool;
+        this.minChunkBytes = minChunkBytes;
+    }
+
+    List<List<Task>> load(File file) {
+        if (!file.exists() || file.length() == 0) {
+            return List.of();
+        }
+        Path path = file.toPath();
+        StorageFormat format = SnapshotReader.detectFormat(file);
+
+        try {
+            long[] bounds = format == StorageFormat.BINARY ? binaryBounds(path) : csvBounds(path);
+
+            List<ForkJoinTask<List<Task>>> parts = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                parts.add(pool.submit(() -> parseChunk(path, format, start, end)));
+            }
+
+            List<List<Task>> result = new ArrayList<>(parts.size());
+            for (ForkJoinTask<List<Task>> part : parts) {
+                result.add(part.join());
+            }
+            return result;
+        } catch (IOException | UncheckedIOException e) {
+            throw new ManagerSaveException(String.format("Не удалось прочитать файл: %s", file.getAbsolutePath()));
+        }
+    }
+
+    private int chunkCount(long bytes) {
+        long byParallelism = pool.getParallelism() * 4L;
+        long bySize = Math.max(1, bytes / Math.max(1, minChunkBytes));
+        return (int) Math.min(byParallelism, bySize);
+    }
+
+    private long[] csvBounds(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = nextLineStart(channel, 1);
+            int chunks = chunkCount(size - start);
+
+            long[] bounds = new long[chunks + 1];
+            bounds[0] = start;
+            for (int i = 1; i < chunks; i++) {
+                long approx = start + (size - start) * i / chunks;
+                bounds[i] = Math.max(bounds[i - 1], nextLineStart(channel, approx));
+            }
+            bounds[chunks] = size;
+            return bounds;
+        }
+    }
+
+    // Начало строки, следующей за первым '\n' на позиции from - 1 или дальше
+    private static long nextLineStart(FileChannel channel, long from) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = Math.max(0, from - 1);
+        long size = channel.size();
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // У двоичных записей границу можно найти только проходом по префиксам длины, сами записи не читаются
+    private long[] binaryBounds(Path path) throws IOException {
+        try (MappedRecordReader reader = new MappedRecordReader(path, MappedRecordReader.Framing.LENGTH_PREFIXED,
+                BinaryTaskCodec.MAGIC.length)) {
+            long start = BinaryTaskCodec.MAGIC.length;
+            long size = path.toFile().length();
+            int chunks = chunkCount(size - start);
+
+            List<Long> bounds = new ArrayList<>();
+            bounds.add(start);
+            long next = start + (size - start) / chunks;
+            while (reader.skip()) {
+                if (reader.position() >= next && reader.position() < size) {
+                    bounds.add(reader.position());
+                    next = start + (size - start) * (bounds.size()) / chunks;
+                }
+            }
+            bounds.add(size);
+
+            long[] result = new long[bounds.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = bounds.get(i);
+            }
+            return result;
+        }
+    }
+
+    private static List<Task> parseChunk(Path path, StorageFormat format, long start, long end) {
+        List<Task> tasks = new ArrayList<>();
+        MappedRecordReader.Framing framing = format == StorageFormat.BINARY
+                ? MappedRecordReader.Framing.LENGTH_PREFIXED
+                : MappedRecordReader.Framing.LINES;
+
+        try (MappedRecordReader reader = new MappedRecordReader(path, framing, start, end,
+                MappedRecordReader.DEFAULT_WINDOW_SIZE)) {
+            if (format == StorageFormat.BINARY) {
+                BinaryTaskCodec codec = new BinaryTaskCodec();
+                while (reader.next()) {
+                    tasks.add(codec.decode(reader.data(), 0, reader.length()));
+                }
+            } else {
+                CsvTaskCodec codec = new CsvTaskCodec();
+                while (reader.next()) {
+                    if (!CsvTaskCodec.isBlank(reader.data(), 0, reader.length())) {
+                        tasks.add(codec.decode(reader.data(), 0, reader.length()));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tasks;
+    }
+}
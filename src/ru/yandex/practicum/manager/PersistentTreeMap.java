@@ -0,0 +1,267 @@
+package ru.yandex.practicum.manager;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Неизменяемое упорядоченное отображение: AVL-дерево, в котором put и remove копируют только
+// путь от корня до изменённого узла (O(log n)), а остальные узлы делят с прежней версией.
+// Прежняя версия остаётся целой, пока на неё есть ссылки, и уходит сборщику мусора потом.
+// В узле хранится размер поддерева, поэтому элементы доступны по порядковому номеру
+final class PersistentTreeMap<K, V> {
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final int height;
+        final int size;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+
+    PersistentTreeMap(Comparator<? super K> comparator) {
+        this(comparator, null);
+    }
+
+    private PersistentTreeMap(Comparator<? super K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(key, node.key);
+            if (cmp == 0) {
+                return node.value;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    PersistentTreeMap<K, V> put(K key, V value) {
+        return new PersistentTreeMap<>(comparator, insert(root, key, value));
+    }
+
+    PersistentTreeMap<K, V> remove(K key) {
+        Node<K, V> updated = delete(root, key);
+        return updated == root ? this : new PersistentTreeMap<>(comparator, updated);
+    }
+
+    PersistentTreeMap<K, V> clear() {
+        return new PersistentTreeMap<>(comparator);
+    }
+
+    // Значения в порядке ключей — представление без копирования
+    List<V> values() {
+        return new Values<>(root, 0, size());
+    }
+
+    // Значения с ключами из [from, to)
+    List<V> values(K from, K to) {
+        int start = rank(from);
+        return new Values<>(root, start, Math.max(rank(to), start));
+    }
+
+    // Значения с ключами не меньше from
+    List<V> valuesFrom(K from) {
+        return new Values<>(root, rank(from), size());
+    }
+
+    // Число ключей меньше заданного
+    private int rank(K key) {
+        int rank = 0;
+        Node<K, V> node = root;
+        while (node != null) {
+            if (comparator.compare(key, node.key) <= 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    private Node<K, V> insert(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        int cmp = comparator.compare(key, node.key);
+        if (cmp == 0) {
+            return new Node<>(key, value, node.left, node.right);
+        }
+        if (cmp < 0) {
+            return balance(node.key, node.value, insert(node.left, key, value), node.right);
+        }
+        return balance(node.key, node.value, node.left, insert(node.right, key, value));
+    }
+
+    private Node<K, V> delete(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = comparator.compare(key, node.key);
+        if (cmp < 0) {
+            Node<K, V> left = delete(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (cmp > 0) {
+            Node<K, V> right = delete(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<K, V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, deleteMin(node.right));
+    }
+
+    private static <K, V> Node<K, V> deleteMin(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, deleteMin(node.left), node.right);
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int skew = height(left) - height(right);
+        if (skew > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.key, left.value, left.left, left.right);
+            }
+            return rotateRight(key, value, left, right);
+        }
+        if (skew < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.key, right.value, right.left, right.right);
+            }
+            return rotateLeft(key, value, left, right);
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static <K, V> Node<K, V> rotateRight(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    // Позиции [from, to) дерева; get — O(log n), обход — O(1) на элемент в среднем
+    private static final class Values<V> extends AbstractList<V> {
+        private final Node<?, V> root;
+        private final int from;
+        private final int to;
+
+        Values(Node<?, V> root, int from, int to) {
+            this.root = root;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public V get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException(String.format("Индекс %d вне списка размера %d", index, size()));
+            }
+            Node<?, V> node = root;
+            int rank = from + index;
+            while (true) {
+                int leftSize = PersistentTreeMap.size(node.left);
+                if (rank < leftSize) {
+                    node = node.left;
+                } else if (rank == leftSize) {
+                    return node.value;
+                } else {
+                    rank -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            // В стеке — узлы, значения которых ещё впереди, а правые поддеревья не начаты
+            Deque<Node<?, V>> stack = new ArrayDeque<>();
+            Node<?, V> node = root;
+            int rank = from;
+            while (node != null && from < to) {
+                int leftSize = PersistentTreeMap.size(node.left);
+                if (rank < leftSize) {
+                    stack.push(node);
+                    node = node.left;
+                } else if (rank == leftSize) {
+                    stack.push(node);
+                    break;
+                } else {
+                    rank -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+
+            return new Iterator<>() {
+                private int remaining = to - from;
+
+                @Override
+                public boolean hasNext() {
+                    return remaining > 0;
+                }
+
+                @Override
+                public V next() {
+                    if (remaining == 0) {
+                        throw new NoSuchElementException();
+                    }
+                    Node<?, V> current = stack.pop();
+                    for (Node<?, V> next = current.right; next != null; next = next.left) {
+                        stack.push(next);
+                    }
+                    remaining--;
+                    return current.value;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.Task;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// История просмотров, которой можно пользоваться из нескольких потоков: у каждой сессии
+// (пользователя, соединения — любой ключ) своя упорядоченная история без повторов.
+// Сессии разложены по SHARDS сегментам, у каждого свой монитор, поэтому просмотры разных
+// сессий почти не ждут друг друга. Поток работает с сессией, к которой привязан через
+// openSession; без привязки — с общей сессией по умолчанию.
+// С этой историей чтение задач InMemoryTaskManager из многих потоков (пока никто не пишет)
+// безопасно и не упирается в одну блокировку
+public class ShardedHistoryManager implements HistoryManager {
+    private static final int SHARDS = 64;
+    private static final Object DEFAULT_SESSION = new Object();
+
+    // Привязка потока к сессии; close() возвращает прежнюю
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class Shard {
+        final Map<Object, InMemoryHistoryManager> sessions = new HashMap<>();
+    }
+
+    private final int capacity;
+    private final Shard[] shards = new Shard[SHARDS];
+    private final ThreadLocal<Object> currentSession = ThreadLocal.withInitial(() -> DEFAULT_SESSION);
+
+    public ShardedHistoryManager() {
+        this(InMemoryHistoryManager.DEFAULT_CAPACITY);
+    }
+
+    public ShardedHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    public Scope openSession(Object session) {
+        Object previous = currentSession.get();
+        currentSession.set(session);
+        return () -> currentSession.set(previous);
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) return;
+
+        Object session = currentSession.get();
+        Shard shard = shardFor(session);
+        synchronized (shard) {
+            shard.sessions.computeIfAbsent(session, key -> new InMemoryHistoryManager(capacity)).add(task);
+        }
+    }
+
+    // Задача уходит из истории всех сессий
+    @Override
+    public void remove(int id) {
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                for (InMemoryHistoryManager history : shard.sessions.values()) {
+                    history.remove(id);
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return getHistory(currentSession.get());
+    }
+
+    public List<Task> getHistory(Object session) {
+        Shard shard = shardFor(session);
+        synchronized (shard) {
+            InMemoryHistoryManager history = shard.sessions.get(session);
+            return history == null ? List.of() : history.getHistory();
+        }
+    }
+
+    // История сессии меняется и из других потоков, поэтому поток идёт по копии
+    @Override
+    public Stream<Task> stream() {
+        return getHistory().stream();
+    }
+
+    // Забывает историю завершённой сессии
+    public void endSession(Object session) {
+        Shard shard = shardFor(session);
+        synchronized (shard) {
+            shard.sessions.remove(session);
+        }
+    }
+
+    public int getSessionCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                count += shard.sessions.size();
+            }
+        }
+        return count;
+    }
+
+    private Shard shardFor(Object session) {
+        int hash = session.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (SHARDS - 1)];
+    }
+}
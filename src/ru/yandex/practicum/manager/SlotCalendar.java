@@ -0,0 +1,245 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.Task;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+// Календарь занятости: горизонт планирования разбит на дни, день — на слоты одинаковой длины,
+// занятость дня хранится битовой картой long[], которая заводится при первой брони в этот день.
+// Задача, выровненная по слотам и целиком лежащая в горизонте, занимает свои биты единолично.
+// Остальные задачи только увеличивают счётчик «неточных» задач в затронутых днях:
+// проверка в таких днях отвечает UNKNOWN, и менеджер проверяет пересечения точно
+public class SlotCalendar {
+
+    public enum Check {
+        FREE,
+        CONFLICT,
+        UNKNOWN
+    }
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int slotMinutes;
+    private final int slotsPerDay;
+    private final LocalDate firstDay;
+    private final int days;
+
+    // Что именно заняла задача: слоты [from, to) или, если exact == false, дни [from, to]
+    // в счётчике inexact. Освобождается ровно это, даже если время задачи успели поменять
+    private record Reservation(long from, long to, boolean exact) {
+    }
+
+    private final long[][] occupancy;
+    private final int[] inexact;
+    private final Map<Integer, Reservation> reservations = new HashMap<>();
+
+    private long fastChecks;
+    private long fallbackChecks;
+
+    public SlotCalendar(Duration slot, LocalDate firstDay, int days) {
+        if (slot.isNegative() || slot.isZero() || slot.toSecondsPart() != 0 || slot.toNanosPart() != 0
+                || MINUTES_PER_DAY % slot.toMinutes() != 0) {
+            throw new IllegalArgumentException("Длина слота должна быть целым числом минут и делить сутки без остатка");
+        }
+        if (days <= 0) {
+            throw new IllegalArgumentException("Горизонт планирования должен быть не меньше одного дня");
+        }
+        this.slotMinutes = (int) slot.toMinutes();
+        this.slotsPerDay = MINUTES_PER_DAY / slotMinutes;
+        this.firstDay = firstDay;
+        this.days = days;
+        this.occupancy = new long[days][];
+        this.inexact = new int[days];
+    }
+
+    public Duration getSlot() {
+        return Duration.ofMinutes(slotMinutes);
+    }
+
+    public LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    // Сколько проверок решено по битовой карте и сколько ушло на точную проверку
+    public long getFastChecks() {
+        return fastChecks;
+    }
+
+    public long getFallbackChecks() {
+        return fallbackChecks;
+    }
+
+    // Может ли [start, end) пересечься с чем-то, кроме задачи selfId (0 — исключать нечего)
+    Check check(LocalDateTime start, LocalDateTime end, int selfId) {
+        if (!isExact(start, end)) {
+            fallbackChecks++;
+            return Check.UNKNOWN;
+        }
+        long from = slotOf(start);
+        long to = slotOf(end);
+        long selfFrom = 0;
+        long selfTo = 0;
+        Reservation self = reservations.get(selfId);
+        if (self != null && self.exact()) {
+            selfFrom = self.from();
+            selfTo = self.to();
+        }
+
+        for (int day = (int) (from / slotsPerDay); day <= (to - 1) / slotsPerDay; day++) {
+            if (inexact[day] > 0) {
+                fallbackChecks++;
+                return Check.UNKNOWN;
+            }
+        }
+        fastChecks++;
+        for (int day = (int) (from / slotsPerDay); day <= (to - 1) / slotsPerDay; day++) {
+            long[] words = occupancy[day];
+            if (words == null) {
+                continue;
+            }
+            int dayStart = day * slotsPerDay;
+            int lo = (int) Math.max(from - dayStart, 0);
+            int hi = (int) Math.min(to - dayStart, slotsPerDay);
+            int selfLo = (int) Math.max(selfFrom - dayStart, 0);
+            int selfHi = (int) Math.min(selfTo - dayStart, slotsPerDay);
+            for (int word = lo >>> 6; word <= (hi - 1) >>> 6; word++) {
+                long busy = words[word] & rangeMask(word, lo, hi) & ~rangeMask(word, selfLo, selfHi);
+                if (busy != 0) {
+                    return Check.CONFLICT;
+                }
+            }
+        }
+        return Check.FREE;
+    }
+
+    void reserve(Task task) {
+        release(task.getId());
+        if (!IntervalIndex.isIndexable(task)) {
+            return;
+        }
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        // Выровненная задача, которая налезает на уже занятые биты (например, пересечение,
+        // пришедшее из файла), тоже считается неточной: иначе освобождение одной задачи
+        // сняло бы биты другой
+        if (isExact(start, end) && !occupied(slotOf(start), slotOf(end))) {
+            Reservation reservation = new Reservation(slotOf(start), slotOf(end), true);
+            setSlots(reservation.from(), reservation.to(), true);
+            reservations.put(task.getId(), reservation);
+            return;
+        }
+
+        // Затронутые интервалом дни внутри горизонта
+        long fromDay = Math.max(ChronoUnit.DAYS.between(firstDay, start.toLocalDate()), 0);
+        long toDay = Math.min(ChronoUnit.DAYS.between(firstDay, end.minusNanos(1).toLocalDate()), days - 1);
+        Reservation reservation = new Reservation(fromDay, toDay, false);
+        countInexact(reservation, 1);
+        reservations.put(task.getId(), reservation);
+    }
+
+    void release(int id) {
+        Reservation reservation = reservations.remove(id);
+        if (reservation == null) {
+            return;
+        }
+        if (reservation.exact()) {
+            setSlots(reservation.from(), reservation.to(), false);
+        } else {
+            countInexact(reservation, -1);
+        }
+    }
+
+    void clear() {
+        for (int day = 0; day < days; day++) {
+            occupancy[day] = null;
+            inexact[day] = 0;
+        }
+        reservations.clear();
+    }
+
+    // Начало и конец на границах слотов и весь интервал внутри горизонта
+    private boolean isExact(LocalDateTime start, LocalDateTime end) {
+        return isSlotBoundary(start) && isSlotBoundary(end)
+                && !start.toLocalDate().isBefore(firstDay)
+                && slotOf(end) <= (long) days * slotsPerDay;
+    }
+
+    private boolean isSlotBoundary(LocalDateTime time) {
+        return time.getSecond() == 0 && time.getNano() == 0
+                && (time.getHour() * 60 + time.getMinute()) % slotMinutes == 0;
+    }
+
+    // Номер слота от начала горизонта
+    private long slotOf(LocalDateTime time) {
+        long day = ChronoUnit.DAYS.between(firstDay, time.toLocalDate());
+        return day * slotsPerDay + (time.getHour() * 60 + time.getMinute()) / slotMinutes;
+    }
+
+    private boolean occupied(long from, long to) {
+        for (int day = (int) (from / slotsPerDay); day <= (to - 1) / slotsPerDay; day++) {
+            long[] words = occupancy[day];
+            if (words == null) {
+                continue;
+            }
+            int dayStart = day * slotsPerDay;
+            int lo = (int) Math.max(from - dayStart, 0);
+            int hi = (int) Math.min(to - dayStart, slotsPerDay);
+            for (int word = lo >>> 6; word <= (hi - 1) >>> 6; word++) {
+                if ((words[word] & rangeMask(word, lo, hi)) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void setSlots(long from, long to, boolean busy) {
+        for (int day = (int) (from / slotsPerDay); day <= (to - 1) / slotsPerDay; day++) {
+            long[] words = occupancy[day];
+            if (words == null) {
+                if (!busy) {
+                    continue;
+                }
+                words = new long[(slotsPerDay + 63) >>> 6];
+                occupancy[day] = words;
+            }
+            int dayStart = day * slotsPerDay;
+            int lo = (int) Math.max(from - dayStart, 0);
+            int hi = (int) Math.min(to - dayStart, slotsPerDay);
+            for (int word = lo >>> 6; word <= (hi - 1) >>> 6; word++) {
+                if (busy) {
+                    words[word] |= rangeMask(word, lo, hi);
+                } else {
+                    words[word] &= ~rangeMask(word, lo, hi);
+                }
+            }
+        }
+    }
+
+    private void countInexact(Reservation reservation, int delta) {
+        for (long day = reservation.from(); day <= reservation.to(); day++) {
+            inexact[(int) day] += delta;
+        }
+    }
+
+    // Биты слова word, попадающие в слоты [lo, hi) дня
+    private static long rangeMask(int word, int lo, int hi) {
+        int wordStart = word << 6;
+        int from = Math.max(lo - wordStart, 0);
+        int to = Math.min(hi - wordStart, 64);
+        if (from >= to) {
+            return 0;
+        }
+        long high = to == 64 ? -1L : (1L << to) - 1;
+        return high & (-1L << from);
+    }
+}
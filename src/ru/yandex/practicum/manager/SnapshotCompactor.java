@@ -0,0 +1,77 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.exceptions.ManagerSaveException;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Фоновая компактизация: по триггерам пишет свежий снимок и отбрасывает поглощённую часть журнала
+class SnapshotCompactor {
+    private final FileBackedTaskManager manager;
+    private final CompactionPolicy policy;
+    private final CompactionStats stats;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean scheduled;
+
+    SnapshotCompactor(FileBackedTaskManager manager, CompactionPolicy policy) {
+        this.manager = manager;
+        this.policy = policy;
+        this.stats = new CompactionStats();
+        this.scheduled = new AtomicBoolean(false);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Duration interval = policy.getMaxInterval();
+        if (interval != null && !interval.isZero()) {
+            long millis = interval.toMillis();
+            executor.scheduleAtFixedRate(() -> {
+                if (manager.pendingJournalRecords() > 0) {
+                    runCompaction();
+                }
+            }, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    CompactionStats getStats() {
+        return stats;
+    }
+
+    // Вызывается писателем после каждой записи в журнал, сама компактизация идёт в фоне
+    void onAppend(long journalBytes, long journalRecords) {
+        if (policy.isExceeded(journalBytes, journalRecords) && scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                scheduled.set(false);
+                runCompaction();
+            });
+        }
+    }
+
+    void compactNow() {
+        long start = System.nanoTime();
+        long records = manager.compact();
+        stats.recordSuccess(System.nanoTime() - start, manager.getFile().length(), records);
+    }
+
+    private void runCompaction() {
+        try {
+            compactNow();
+        } catch (ManagerSaveException e) {
+            stats.recordFailure();
+        }
+    }
+
+    void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.manager;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Сжатый снимок: заголовок MAGIC, затем поток deflate (zlib) с обычным снимком CSV или двоичным.
+// Данные сжимаются и распаковываются по ходу записи и чтения, целиком в памяти не собираются
+final class SnapshotCompression {
+    static final byte[] MAGIC = {'K', 'D', 'F', 1};
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private SnapshotCompression() {
+    }
+
+    static boolean hasMagic(byte[] header, int length) {
+        if (length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Пишет заголовок и возвращает поток, который сжимает всё записанное в out
+    static Output compress(OutputStream out, int level) throws IOException {
+        out.write(MAGIC);
+        return new Output(out, new Deflater(level));
+    }
+
+    // Пропускает заголовок (он уже проверен) и возвращает распаковывающий поток
+    static Input decompress(InputStream in) throws IOException {
+        in.skipNBytes(MAGIC.length);
+        return new Input(in, new Inflater());
+    }
+
+    static final class Output extends DeflaterOutputStream {
+        private Output(OutputStream out, Deflater deflater) {
+            super(out, deflater, BUFFER_SIZE);
+        }
+
+        long rawBytes() {
+            return def.getBytesRead();
+        }
+
+        long compressedBytes() {
+            return MAGIC.length + def.getBytesWritten();
+        }
+
+        // Дописывает остаток потока deflate; сам out не закрывает
+        @Override
+        public void finish() throws IOException {
+            super.finish();
+            flush();
+        }
+
+        // Освобождает память Deflater, поток out остаётся открытым
+        void release() {
+            def.end();
+        }
+    }
+
+    static final class Input extends InflaterInputStream {
+        private Input(InputStream in, Inflater inflater) {
+            super(new BufferedInputStream(in, BUFFER_SIZE), inflater, BUFFER_SIZE);
+        }
+
+        long rawBytes() {
+            return inf.getBytesWritten();
+        }
+
+        long compressedBytes() {
+            return MAGIC.length + inf.getBytesRead();
+        }
+
+        @Override
+        public void close() throws IOException {
+            inf.end();
+            super.close();
+        }
+    }
+}
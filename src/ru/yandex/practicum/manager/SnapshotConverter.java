@@ -0,0 +1,27 @@
+package ru.yandex.practicum.manager;
+
+import java.io.File;
+
+// Перекладывает снимок из одного формата в другой; формат источника определяется по заголовку
+public class SnapshotConverter {
+
+    private SnapshotConverter() {
+    }
+
+    public static void csvToBinary(File source, File target) {
+        convert(source, target, StorageFormat.BINARY);
+    }
+
+    public static void binaryToCsv(File source, File target) {
+        convert(source, target, StorageFormat.CSV);
+    }
+
+    // Записи идут из источника прямо в файл, весь снимок в памяти не собирается
+    public static void convert(File source, File target, StorageFormat targetFormat) {
+        SnapshotWriter.writeAtomically(target, out -> {
+            SnapshotWriter writer = new SnapshotWriter(targetFormat, out);
+            SnapshotReader.read(source, writer::add);
+            writer.finish();
+        });
+    }
+}
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.exceptions.ManagerSaveException;
+import ru.yandex.practicum.models.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.function.Consumer;
+
+// Читает снимок любого поддерживаемого формата; формат определяется по заголовку.
+// Записи разбираются по одной прямо из отображённого в память файла, сжатый снимок —
+// по ходу распаковки
+final class SnapshotReader {
+
+    private SnapshotReader() {
+    }
+
+    // Формат записей несжатого снимка
+    static StorageFormat detectFormat(File file) {
+        byte[] header = readHeader(file);
+        return BinaryTaskCodec.hasMagic(header, header.length) ? StorageFormat.BINARY : StorageFormat.CSV;
+    }
+
+    static boolean isCompressed(File file) {
+        byte[] header = readHeader(file);
+        return SnapshotCompression.hasMagic(header, header.length);
+    }
+
+    private static byte[] readHeader(File file) {
+        if (!file.exists() || file.length() == 0) {
+            return new byte[0];
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return in.readNBytes(BinaryTaskCodec.MAGIC.length);
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось прочитать файл: %s", file.getAbsolutePath()));
+        }
+    }
+
+    static void read(File file, Consumer<Task> sink) {
+        read(file, sink, null);
+    }
+
+    // Для сжатого снимка размеры и время чтения записываются в stats, если он передан
+    static void read(File file, Consumer<Task> sink, CompressionStats stats) {
+        if (!file.exists() || file.length() == 0) {
+            return;
+        }
+        try {
+            if (isCompressed(file)) {
+                readCompressed(file, sink, stats);
+            } else if (detectFormat(file) == StorageFormat.BINARY) {
+                readBinary(file, sink);
+            } else {
+                readCsv(file, sink);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось прочитать файл: %s", file.getAbsolutePath()));
+        }
+    }
+
+    private static void readCsv(File file, Consumer<Task> sink) throws IOException {
+        CsvTaskCodec codec = new CsvTaskCodec();
+        try (MappedRecordReader reader = new MappedRecordReader(file.toPath(), MappedRecordReader.Framing.LINES, 0)) {
+            // Первая строка — заголовок
+            if (!reader.next()) {
+                return;
+            }
+            while (reader.next()) {
+                if (CsvTaskCodec.isBlank(reader.data(), 0, reader.length())) continue;
+
+                sink.accept(codec.decode(reader.data(), 0, reader.length()));
+            }
+        }
+    }
+
+    private static void readBinary(File file, Consumer<Task> sink) throws IOException {
+        BinaryTaskCodec codec = new BinaryTaskCodec();
+        try (MappedRecordReader reader = new MappedRecordReader(file.toPath(),
+                MappedRecordReader.Framing.LENGTH_PREFIXED, BinaryTaskCodec.MAGIC.length)) {
+            while (reader.next()) {
+                sink.accept(codec.decode(reader.data(), 0, reader.length()));
+            }
+        }
+    }
+
+    private static void readCompressed(File file, Consumer<Task> sink, CompressionStats stats) throws IOException {
+        long started = System.nanoTime();
+        try (SnapshotCompression.Input in = SnapshotCompression.decompress(Files.newInputStream(file.toPath()))) {
+            byte[] header = in.readNBytes(BinaryTaskCodec.MAGIC.length);
+            if (BinaryTaskCodec.hasMagic(header, header.length)) {
+                BinaryTaskCodec codec = new BinaryTaskCodec();
+                StreamRecordReader reader = new StreamRecordReader(in, MappedRecordReader.Framing.LENGTH_PREFIXED);
+                while (reader.next()) {
+                    sink.accept(codec.decode(reader.data(), 0, reader.length()));
+                }
+            } else if (header.length > 0) {
+                CsvTaskCodec codec = new CsvTaskCodec();
+                StreamRecordReader reader = new StreamRecordReader(in, MappedRecordReader.Framing.LINES);
+                // Остаток строки заголовка
+                reader.next();
+                while (reader.next()) {
+                    if (CsvTaskCodec.isBlank(reader.data(), 0, reader.length())) continue;
+
+                    sink.accept(codec.decode(reader.data(), 0, reader.length()));
+                }
+            }
+            if (stats != null) {
+                stats.recordLoad(in.rawBytes(), in.compressedBytes(), System.nanoTime() - started);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.exceptions.ManagerSaveException;
+import ru.yandex.practicum.models.Task;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Собирает снимок в выбранном формате: целиком в памяти или, если передан поток,
+// сбрасывая в него готовые записи порциями
+final class SnapshotWriter {
+    static final String CSV_HEADER = "id,type,title,status,description,epic,startTime,duration";
+
+    private static final int DRAIN_BYTES = 64 * 1024;
+
+    interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private final StorageFormat format;
+    private final OutputStream out;
+    private final RecordBuffer buffer;
+    private final BinaryTaskCodec binaryCodec;
+    private final CsvTaskCodec csvCodec;
+
+    SnapshotWriter(StorageFormat format) {
+        this(format, null);
+    }
+
+    SnapshotWriter(StorageFormat format, OutputStream out) {
+        this.format = format;
+        this.out = out;
+        this.buffer = new RecordBuffer(64 * 1024);
+        this.binaryCodec = format == StorageFormat.BINARY ? new BinaryTaskCodec() : null;
+        this.csvCodec = format == StorageFormat.CSV ? new CsvTaskCodec() : null;
+
+        if (format == StorageFormat.BINARY) {
+            buffer.writeBytes(BinaryTaskCodec.MAGIC, 0, BinaryTaskCodec.MAGIC.length);
+        } else {
+            byte[] header = (CSV_HEADER + "\n").getBytes(StandardCharsets.UTF_8);
+            buffer.writeBytes(header, 0, header.length);
+        }
+    }
+
+    void add(Task task) {
+        if (format == StorageFormat.BINARY) {
+            binaryCodec.encode(task, buffer);
+        } else {
+            csvCodec.encode(task, buffer);
+            buffer.writeByte('\n');
+        }
+        if (out != null && buffer.size() >= DRAIN_BYTES) {
+            drain();
+        }
+    }
+
+    // Отдаёт в поток то, что ещё осталось в буфере
+    void finish() {
+        drain();
+    }
+
+    private void drain() {
+        try {
+            buffer.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    byte[] toByteArray() {
+        return buffer.toByteArray();
+    }
+
+    static void writeAtomically(File file, byte[] content) {
+        writeAtomically(file, out -> out.write(content));
+    }
+
+    // Пишет во временный файл и атомарно подменяет снимок
+    static void writeAtomically(File file, Content content) {
+        Path target = file.toPath();
+        Path temp = Path.of(file.getPath() + ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), DRAIN_BYTES)) {
+                content.writeTo(out);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            throw new ManagerSaveException(String.format("Не удалось сохранить данные в файл: %s", file.getAbsolutePath()));
+        }
+    }
+}
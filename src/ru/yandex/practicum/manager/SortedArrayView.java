@@ -0,0 +1,122 @@
+package ru.yandex.practicum.manager;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+// Обёртка над уже отсортированным массивом без повторов: TreeSet.addAll строит по ней дерево
+// за один линейный проход, а не n вставками. Поиск и диапазоны — двоичным поиском по массиву
+final class SortedArrayView<T> extends AbstractSet<T> implements SortedSet<T> {
+    private final T[] items;
+    private final Comparator<? super T> comparator;
+    // Диапазон массива [from, to), который видит это представление
+    private final int from;
+    private final int to;
+
+    SortedArrayView(T[] items, Comparator<? super T> comparator) {
+        this(items, comparator, 0, items.length);
+    }
+
+    private SortedArrayView(T[] items, Comparator<? super T> comparator, int from, int to) {
+        this.items = items;
+        this.comparator = comparator;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < to;
+            }
+
+            @Override
+            public T next() {
+                if (next >= to) {
+                    throw new NoSuchElementException();
+                }
+                return items[next++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return to - from;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        int index = lowerBound((T) o);
+        return index < to && compare(items[index], (T) o) == 0;
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public T first() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return items[from];
+    }
+
+    @Override
+    public T last() {
+        if (from == to) {
+            throw new NoSuchElementException();
+        }
+        return items[to - 1];
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("Начало диапазона больше конца");
+        }
+        return new SortedArrayView<>(items, comparator, lowerBound(fromElement), lowerBound(toElement));
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return new SortedArrayView<>(items, comparator, from, lowerBound(toElement));
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return new SortedArrayView<>(items, comparator, lowerBound(fromElement), to);
+    }
+
+    // Позиция первого элемента диапазона, не меньшего key
+    private int lowerBound(T key) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(items[mid], key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(T a, T b) {
+        return comparator != null ? comparator.compare(a, b) : ((Comparable<? super T>) a).compareTo(b);
+    }
+}
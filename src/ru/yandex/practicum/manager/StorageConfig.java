@@ -0,0 +1,127 @@
+package ru.yandex.practicum.manager;
+
+import java.util.zip.Deflater;
+
+public class StorageConfig {
+    // Режим журнала: каждая операция дописывает одну запись вместо перезаписи всего файла
+    private boolean journaled;
+    // Фоновая компактизация журнала в снимок, null — выключена
+    private CompactionPolicy compactionPolicy;
+    // Запись журнала отдельным потоком пачками; требует режима журнала
+    private boolean writeBehind;
+    private DurabilityPolicy durabilityPolicy;
+    // Формат записи снимка; при чтении формат определяется по заголовку файла
+    private StorageFormat format;
+    // Число потоков разбора снимка при загрузке; 1 — последовательная загрузка
+    private int loadParallelism;
+    // Сжатие снимка потоком deflate; при чтении сжатый снимок определяется по заголовку
+    private boolean compressed;
+    private int compressionLevel;
+    // Журнал просмотров рядом со снимком: история переживает перезапуск. Выключен по умолчанию:
+    // включённый держит фоновый поток записи и файл .history
+    private boolean historyPersisted;
+
+    public StorageConfig() {
+        this.journaled = false;
+        this.compactionPolicy = null;
+        this.writeBehind = false;
+        this.durabilityPolicy = DurabilityPolicy.osBuffered();
+        this.format = StorageFormat.CSV;
+        this.loadParallelism = 1;
+        this.compressed = false;
+        this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        this.historyPersisted = false;
+    }
+
+    public static StorageConfig journaled() {
+        StorageConfig config = new StorageConfig();
+        config.setJournaled(true);
+        return config;
+    }
+
+    public static StorageConfig writeBehind(DurabilityPolicy durabilityPolicy) {
+        StorageConfig config = journaled();
+        config.setWriteBehind(true);
+        config.setDurabilityPolicy(durabilityPolicy);
+        return config;
+    }
+
+    public boolean isJournaled() {
+        return journaled;
+    }
+
+    public void setJournaled(boolean journaled) {
+        this.journaled = journaled;
+    }
+
+    public CompactionPolicy getCompactionPolicy() {
+        return compactionPolicy;
+    }
+
+    public void setCompactionPolicy(CompactionPolicy compactionPolicy) {
+        this.compactionPolicy = compactionPolicy;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public DurabilityPolicy getDurabilityPolicy() {
+        return durabilityPolicy;
+    }
+
+    public void setDurabilityPolicy(DurabilityPolicy durabilityPolicy) {
+        this.durabilityPolicy = durabilityPolicy;
+    }
+
+    public StorageFormat getFormat() {
+        return format;
+    }
+
+    public void setFormat(StorageFormat format) {
+        this.format = format;
+    }
+
+    public int getLoadParallelism() {
+        return loadParallelism;
+    }
+
+    public void setLoadParallelism(int loadParallelism) {
+        if (loadParallelism < 1) {
+            throw new IllegalArgumentException("Число потоков загрузки должно быть положительным");
+        }
+        this.loadParallelism = loadParallelism;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+                && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Уровень сжатия должен быть от 0 до 9 или -1 (по умолчанию)");
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    public boolean isHistoryPersisted() {
+        return historyPersisted;
+    }
+
+    public void setHistoryPersisted(boolean historyPersisted) {
+        this.historyPersisted = historyPersisted;
+    }
+}
@@ -0,0 +1,6 @@
+package ru.yandex.practicum.manager;
+
+public enum StorageFormat {
+    CSV,
+    BINARY
+}
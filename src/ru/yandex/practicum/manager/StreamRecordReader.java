@@ -0,0 +1,122 @@
+package ru.yandex.practicum.manager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+// Чтение записей из потока (например, распаковываемого) с теми же правилами разбиения,
+// что и у MappedRecordReader. В памяти держится только блок чтения и одна запись
+final class StreamRecordReader implements AutoCloseable {
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final MappedRecordReader.Framing framing;
+
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private int blockPos;
+    private int blockLimit;
+    private long consumed;
+
+    private byte[] record = new byte[256];
+    private int recordLength;
+
+    StreamRecordReader(InputStream in, MappedRecordReader.Framing framing) {
+        this.in = in;
+        this.framing = framing;
+    }
+
+    byte[] data() {
+        return record;
+    }
+
+    int length() {
+        return recordLength;
+    }
+
+    // Сколько байт потока уже прочитано
+    long position() {
+        return consumed - (blockLimit - blockPos);
+    }
+
+    boolean next() throws IOException {
+        if (blockPos == blockLimit && !fill()) {
+            return false;
+        }
+        return framing == MappedRecordReader.Framing.LINES ? nextLine() : nextPrefixed();
+    }
+
+    private boolean nextLine() throws IOException {
+        recordLength = 0;
+        while (true) {
+            for (int i = blockPos; i < blockLimit; i++) {
+                if (block[i] == '\n') {
+                    append(blockPos, i - blockPos);
+                    blockPos = i + 1;
+                    return true;
+                }
+            }
+            append(blockPos, blockLimit - blockPos);
+            blockPos = blockLimit;
+            if (!fill()) {
+                // Последняя строка без перевода строки
+                return true;
+            }
+        }
+    }
+
+    private boolean nextPrefixed() throws IOException {
+        int length = 0;
+        int shift = 0;
+        while (true) {
+            if (blockPos == blockLimit && !fill()) {
+                throw new IOException("Обрезанная запись в конце файла");
+            }
+            byte b = block[blockPos++];
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+            if (shift > 28) {
+                throw new IOException("Повреждённая длина записи");
+            }
+        }
+
+        recordLength = 0;
+        while (recordLength < length) {
+            if (blockPos == blockLimit && !fill()) {
+                throw new IOException("Обрезанная запись в конце файла");
+            }
+            int chunk = Math.min(length - recordLength, blockLimit - blockPos);
+            append(blockPos, chunk);
+            blockPos += chunk;
+        }
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(block, 0, block.length);
+        if (read <= 0) {
+            blockPos = 0;
+            blockLimit = 0;
+            return false;
+        }
+        blockPos = 0;
+        blockLimit = read;
+        consumed += read;
+        return true;
+    }
+
+    private void append(int from, int length) {
+        if (record.length < recordLength + length) {
+            record = Arrays.copyOf(record, Math.max(recordLength + length, record.length * 2));
+        }
+        System.arraycopy(block, from, record, recordLength, length);
+        recordLength += length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.Task;
+
+// Пара задач, пересекающихся по времени; first начинается не позже second
+public class TaskConflict {
+    private final Task first;
+    private final Task second;
+
+    public TaskConflict(Task first, Task second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    public Task getFirst() {
+        return first;
+    }
+
+    public Task getSecond() {
+        return second;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TaskConflict{first=%d, second=%d}", first.getId(), second.getId());
+    }
+}
@@ -0,0 +1,285 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.exceptions.ManagerSaveException;
+import ru.yandex.practicum.models.Task;
+import ru.yandex.practicum.models.TaskType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Журнал изменений: одна строка на операцию, файл лежит рядом со снимком.
+// Пакет или транзакция из нескольких строк начинается заголовком "G,<число строк>":
+// группа, которую оборвал сбой, при чтении отбрасывается целиком
+class TaskJournal implements AutoCloseable {
+    static final char CREATE = 'C';
+    static final char UPDATE = 'U';
+    static final char DELETE = 'D';
+    static final char CLEAR = 'X';
+    static final char GROUP = 'G';
+    private static final int TAIL_CHUNK = 4096;
+
+    private final Path path;
+    // Сегмент, отложенный на время компактизации; удаляется после записи нового снимка
+    private final Path rotatedPath;
+    private final AppendLog log;
+    private final CsvTaskCodec codec = new CsvTaskCodec();
+    private final RecordBuffer buffer = new RecordBuffer(256);
+    private long bytes;
+    private long records;
+
+    interface RecordConsumer {
+        void accept(byte[] record, int length);
+    }
+
+    TaskJournal(File snapshotFile, DurabilityPolicy policy, boolean writeBehind) {
+        this.path = Path.of(snapshotFile.getPath() + ".journal");
+        this.rotatedPath = Path.of(snapshotFile.getPath() + ".journal.compacting");
+        this.log = new AppendLog(path, policy, writeBehind);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    long getRecords() {
+        return records;
+    }
+
+    void append(char operation, Task task) {
+        appendAll(operation, List.of(task));
+    }
+
+    // Записи пакета уходят в файл одним обращением: при синхронной записи — одна синхронизация
+    void appendAll(char operation, List<? extends Task> tasks) {
+        startGroup(tasks.size());
+        for (Task task : tasks) {
+            startRecord(operation);
+            codec.encode(task, buffer);
+            buffer.writeByte('\n');
+        }
+        commit(tasks.size());
+    }
+
+    void appendDelete(int id) {
+        appendDeletes(List.of(id));
+    }
+
+    void appendDeletes(List<Integer> ids) {
+        startGroup(ids.size());
+        for (Integer id : ids) {
+            startRecord(DELETE);
+            buffer.writeAsciiLong(id);
+            buffer.writeByte('\n');
+        }
+        commit(ids.size());
+    }
+
+    // Шаги транзакции подряд, в порядке применения, одним обращением к файлу
+    void appendChanges(List<TaskTransaction.Change> changes) {
+        startGroup(changes.size());
+        for (TaskTransaction.Change change : changes) {
+            switch (change.operation()) {
+                case CREATE, UPDATE -> {
+                    startRecord(change.operation() == TaskTransaction.Operation.CREATE ? CREATE : UPDATE);
+                    codec.encode(change.task(), buffer);
+                }
+                case DELETE -> {
+                    startRecord(DELETE);
+                    buffer.writeAsciiLong(change.id());
+                }
+            }
+            buffer.writeByte('\n');
+        }
+        commit(changes.size());
+    }
+
+    void appendClear(TaskType type) {
+        buffer.clear();
+        startRecord(CLEAR);
+        byte[] name = type.name().getBytes(StandardCharsets.US_ASCII);
+        buffer.writeBytes(name, 0, name.length);
+        buffer.writeByte('\n');
+        commit(1);
+    }
+
+    // Одиночную строку сбой может только оборвать до перевода строки, заголовок ей не нужен
+    private void startGroup(int count) {
+        buffer.clear();
+        if (count > 1) {
+            startRecord(GROUP);
+            buffer.writeAsciiLong(count);
+            buffer.writeByte('\n');
+        }
+    }
+
+    private void startRecord(char operation) {
+        buffer.writeByte(operation);
+        buffer.writeByte(',');
+    }
+
+    private void commit(int count) {
+        if (count == 0) {
+            return;
+        }
+        log.append(buffer.array(), 0, buffer.size());
+        bytes += buffer.size();
+        records += count;
+    }
+
+    void replay(RecordConsumer consumer) {
+        replay(rotatedPath, consumer);
+        replay(path, consumer);
+    }
+
+    private void replay(Path segment, RecordConsumer consumer) {
+        if (!Files.exists(segment)) {
+            return;
+        }
+        try {
+            dropTornTail(segment);
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось прочитать журнал: %s", segment.toAbsolutePath()));
+        }
+        // Строки группы копятся, пока не прочитаны все: неполная группа не применяется и отрезается
+        List<byte[]> group = new ArrayList<>();
+        int groupLeft = 0;
+        long groupStart = 0;
+        // Журнал читается обычными чтениями, а не через отображение в память: файл сразу после
+        // этого переносят и удаляют, а живое отображение (до сборки мусора) не даёт этого сделать в Windows
+        try (StreamRecordReader reader = new StreamRecordReader(Files.newInputStream(segment),
+                MappedRecordReader.Framing.LINES)) {
+            while (true) {
+                long lineStart = reader.position();
+                if (!reader.next()) {
+                    break;
+                }
+                byte[] data = reader.data();
+                int length = reader.length();
+                if (CsvTaskCodec.isBlank(data, 0, length)) {
+                    continue;
+                }
+                if (data[0] == GROUP) {
+                    group.clear();
+                    groupLeft = CsvTaskCodec.parseInt(data, 2, length - 2);
+                    groupStart = lineStart;
+                } else if (groupLeft > 0) {
+                    group.add(Arrays.copyOf(data, length));
+                    if (--groupLeft == 0) {
+                        for (byte[] record : group) {
+                            consumer.accept(record, record.length);
+                        }
+                        records += group.size();
+                        group.clear();
+                    }
+                } else {
+                    consumer.accept(data, length);
+                    records++;
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось прочитать журнал: %s", segment.toAbsolutePath()));
+        }
+        try {
+            if (groupLeft > 0) {
+                cut(segment, groupStart);
+            }
+            bytes += Files.size(segment);
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось прочитать журнал: %s", segment.toAbsolutePath()));
+        }
+    }
+
+    // Запись, которую оборвал сбой, не доходит до перевода строки. Она отбрасывается и отрезается
+    // от файла, иначе следующая дозапись или склейка сегментов в rotate() продолжила бы её строку
+    private static void dropTornTail(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long end = size;
+            ByteBuffer buffer = ByteBuffer.allocate(TAIL_CHUNK);
+            while (end > 0) {
+                long start = Math.max(0, end - TAIL_CHUNK);
+                buffer.clear().limit((int) (end - start));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, start + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                int newline = buffer.position() - 1;
+                while (newline >= 0 && buffer.get(newline) != '\n') {
+                    newline--;
+                }
+                if (newline >= 0) {
+                    end = start + newline + 1;
+                    break;
+                }
+                end = start;
+            }
+            if (end < size) {
+                channel.truncate(end);
+            }
+        }
+    }
+
+    private static void cut(Path segment, long end) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(end);
+        }
+    }
+
+    // Откладывает текущий журнал в сегмент компактизации, новые записи пойдут в пустой файл
+    void rotate() {
+        log.reset(() -> {
+            if (Files.exists(rotatedPath)) {
+                // Предыдущая компактизация не завершилась: её записи ещё не попали в снимок
+                if (Files.exists(path)) {
+                    Files.write(rotatedPath, Files.readAllBytes(path), StandardOpenOption.APPEND);
+                    Files.delete(path);
+                }
+            } else if (Files.exists(path)) {
+                Files.move(path, rotatedPath);
+            }
+        });
+        bytes = 0;
+        records = 0;
+    }
+
+    void dropRotated() {
+        try {
+            Files.deleteIfExists(rotatedPath);
+        } catch (IOException e) {
+            throw new ManagerSaveException(String.format("Не удалось очистить журнал: %s", rotatedPath.toAbsolutePath()));
+        }
+    }
+
+    // Вызывается после записи полного снимка: всё из журнала в нём уже есть
+    void truncate() {
+        log.reset(() -> {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(rotatedPath);
+        });
+        bytes = 0;
+        records = 0;
+    }
+
+    void flush() {
+        log.flush();
+    }
+
+    @Override
+    public void close() {
+        log.close();
+    }
+}
@@ -1,6 +1,9 @@
 package ru.yandex.practicum.manager;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 import ru.yandex.practicum.models.*;
 
 public interface TaskManager {
@@ -45,9 +48,50 @@ public interface TaskManager {
 
     boolean deleteSubtask(int id);
 
+    // Пакетные операции над задачами любых видов: пересечения проверяются для всего пакета сразу,
+    // затронутые эпики пересчитываются по одному разу. Заданный id задачи сохраняется, как и в create*;
+    // занятый или повторённый в пакете id отменяет весь пакет с IllegalArgumentException
+    List<Task> createAll(List<? extends Task> tasks);
+
+    List<Task> updateAll(List<? extends Task> tasks);
+
+    List<Integer> deleteAll(Collection<Integer> ids);
+
+    // Транзакция: изменения копятся в ней и применяются все сразу при commit
+    TaskTransaction beginTransaction();
+
+    // Постраничное чтение: cursor — из предыдущей страницы, null — с начала
+    Page<Task> getTasks(String cursor, int limit);
+
+    Page<Epic> getEpics(String cursor, int limit);
+
+    Page<Subtask> getSubtasks(String cursor, int limit);
+
+    Page<Task> getPrioritizedTasks(String cursor, int limit);
+
+    // Ленивый обход без копирования всего списка
+    Stream<Task> streamTasks();
+
+    Stream<Epic> streamEpics();
+
+    Stream<Subtask> streamSubtasks();
+
+    Stream<Task> streamPrioritizedTasks();
+
     // History
     List<Task> getHistory();
 
+    Stream<Task> streamHistory();
+
+    // Приблизительная частота чтений задач и самые читаемые; null, если не считается
+    AccessStatistics getAccessStatistics();
+
     //Priorities
     List<Task> getPrioritizedTasks();
+
+    // Задачи и подзадачи, пересекающиеся с [start, end)
+    List<Task> getOverlappingTasks(LocalDateTime start, LocalDateTime end);
+
+    // Согласованное неизменяемое состояние на текущий момент
+    TaskSnapshot snapshot();
 }
\ No newline at end of file
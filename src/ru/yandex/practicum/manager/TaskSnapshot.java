@@ -0,0 +1,205 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.*;
+
+import java.util.Comparator;
+import java.util.List;
+
+// Согласованное состояние менеджера на один момент. Версии неизменяемы и делят общие
+// части деревьев, поэтому запись новой версии стоит O(log n), а взять версию — O(1).
+// Задачи внутри — замороженные версии (Task.freeze()): их нельзя менять, и та же версия
+// задачи может лежать в истории и в соседних снимках.
+// Списки — представления деревьев, при выдаче ничего не копируется
+public final class TaskSnapshot {
+    private static final Comparator<Integer> BY_ID = Comparator.naturalOrder();
+    // Подзадачи эпика: ключ (id эпика, id подзадачи), чтобы подзадачи одного эпика шли подряд
+    private static final Comparator<Long> BY_EPIC = Comparator.naturalOrder();
+    private static final Comparator<Task> BY_START = Comparator
+            .comparing(Task::getStartTime)
+            .thenComparing(Task::getId);
+
+    private static final TaskSnapshot EMPTY = new TaskSnapshot(0, new PersistentTreeMap<>(BY_ID),
+            new PersistentTreeMap<>(BY_ID), new PersistentTreeMap<>(BY_ID), new PersistentTreeMap<>(BY_EPIC),
+            new PersistentTreeMap<>(BY_START));
+
+    private final long version;
+    private final PersistentTreeMap<Integer, Task> tasks;
+    private final PersistentTreeMap<Integer, Epic> epics;
+    private final PersistentTreeMap<Integer, Subtask> subtasks;
+    private final PersistentTreeMap<Long, Subtask> subtasksByEpic;
+    private final PersistentTreeMap<Task, Task> prioritized;
+
+    private TaskSnapshot(long version, PersistentTreeMap<Integer, Task> tasks, PersistentTreeMap<Integer, Epic> epics,
+                         PersistentTreeMap<Integer, Subtask> subtasks,
+                         PersistentTreeMap<Long, Subtask> subtasksByEpic, PersistentTreeMap<Task, Task> prioritized) {
+        this.version = version;
+        this.tasks = tasks;
+        this.epics = epics;
+        this.subtasks = subtasks;
+        this.subtasksByEpic = subtasksByEpic;
+        this.prioritized = prioritized;
+    }
+
+    static TaskSnapshot empty() {
+        return EMPTY;
+    }
+
+    // Снимок, собранный копированием всех задач менеджера; годится там, где во время сборки
+    // никто не пишет
+    static TaskSnapshot copyOf(TaskManager manager) {
+        TaskSnapshot snapshot = EMPTY;
+        for (Task task : manager.getAllTasks()) {
+            snapshot = snapshot.with(task.freeze());
+        }
+        for (Epic epic : manager.getAllEpics()) {
+            snapshot = snapshot.with(epic.freeze());
+        }
+        for (Subtask subtask : manager.getAllSubtasks()) {
+            snapshot = snapshot.with(subtask.freeze());
+        }
+        return snapshot;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Task> getAllTasks() {
+        return tasks.values();
+    }
+
+    public List<Epic> getAllEpics() {
+        return epics.values();
+    }
+
+    public List<Subtask> getAllSubtasks() {
+        return subtasks.values();
+    }
+
+    public Task getTask(int id) {
+        return tasks.get(id);
+    }
+
+    public Epic getEpic(int id) {
+        return epics.get(id);
+    }
+
+    public Subtask getSubtask(int id) {
+        return subtasks.get(id);
+    }
+
+    public List<Subtask> getEpicSubtasks(int epicId) {
+        return subtasksByEpic.values((long) epicId << 32, (long) (epicId + 1) << 32);
+    }
+
+    public List<Task> getPrioritizedTasks() {
+        return prioritized.values();
+    }
+
+    // Страницы по id и по времени начала: версия неизменна, поэтому курсор с прошлой страницы
+    // годится и для более новой версии — продолжение идёт с первой задачи после выданной
+
+    public Page<Task> getTasks(String cursor, int limit) {
+        return pageById(tasks, cursor, limit);
+    }
+
+    public Page<Epic> getEpics(String cursor, int limit) {
+        return pageById(epics, cursor, limit);
+    }
+
+    public Page<Subtask> getSubtasks(String cursor, int limit) {
+        return pageById(subtasks, cursor, limit);
+    }
+
+    public Page<Task> getPrioritizedTasks(String cursor, int limit) {
+        List<Task> tail = prioritized.values();
+        if (cursor != null) {
+            Task probe = Page.cursorProbe(cursor);
+            probe.setId(probe.getId() + 1);
+            tail = prioritized.valuesFrom(probe);
+        }
+        return Page.of(tail.iterator(), limit, Page::timeCursor);
+    }
+
+    private static <T extends Task> Page<T> pageById(PersistentTreeMap<Integer, T> store, String cursor, int limit) {
+        List<T> tail = cursor == null ? store.values() : store.valuesFrom(Page.cursorId(cursor) + 1);
+        return Page.of(tail.iterator(), limit, Page::idCursor);
+    }
+
+    // Новая версия, где задача (копия) добавлена или заменила прежнюю с тем же id
+    TaskSnapshot with(Task frozen) {
+        TaskSnapshot base = without(frozen.getId());
+        PersistentTreeMap<Integer, Task> tasks = base.tasks;
+        PersistentTreeMap<Integer, Epic> epics = base.epics;
+        PersistentTreeMap<Integer, Subtask> subtasks = base.subtasks;
+        PersistentTreeMap<Long, Subtask> subtasksByEpic = base.subtasksByEpic;
+        PersistentTreeMap<Task, Task> prioritized = base.prioritized;
+
+        if (frozen instanceof Epic epic) {
+            epics = epics.put(epic.getId(), epic);
+        } else if (frozen instanceof Subtask subtask) {
+            subtasks = subtasks.put(subtask.getId(), subtask);
+            subtasksByEpic = subtasksByEpic.put(epicKey(subtask), subtask);
+        } else {
+            tasks = tasks.put(frozen.getId(), frozen);
+        }
+        if (!(frozen instanceof Epic) && frozen.getStartTime() != null) {
+            prioritized = prioritized.put(frozen, frozen);
+        }
+        return new TaskSnapshot(version + 1, tasks, epics, subtasks, subtasksByEpic, prioritized);
+    }
+
+    // Новая версия без задачи с этим id (эпик удаляется без подзадач — их убирают отдельно)
+    TaskSnapshot without(int id) {
+        Task task = tasks.get(id);
+        Epic epic = task == null ? epics.get(id) : null;
+        Subtask subtask = task == null && epic == null ? subtasks.get(id) : null;
+        if (task == null && epic == null && subtask == null) {
+            return this;
+        }
+
+        PersistentTreeMap<Integer, Task> tasks = this.tasks;
+        PersistentTreeMap<Integer, Epic> epics = this.epics;
+        PersistentTreeMap<Integer, Subtask> subtasks = this.subtasks;
+        PersistentTreeMap<Long, Subtask> subtasksByEpic = this.subtasksByEpic;
+        PersistentTreeMap<Task, Task> prioritized = this.prioritized;
+        Task removed;
+        if (task != null) {
+            tasks = tasks.remove(id);
+            removed = task;
+        } else if (epic != null) {
+            epics = epics.remove(id);
+            removed = epic;
+        } else {
+            subtasks = subtasks.remove(id);
+            subtasksByEpic = subtasksByEpic.remove(epicKey(subtask));
+            removed = subtask;
+        }
+        if (!(removed instanceof Epic) && removed.getStartTime() != null) {
+            prioritized = prioritized.remove(removed);
+        }
+        return new TaskSnapshot(version + 1, tasks, epics, subtasks, subtasksByEpic, prioritized);
+    }
+
+    // Новая версия без всех задач вида type; вместе с эпиками уходят их подзадачи
+    TaskSnapshot withoutAll(TaskType type) {
+        PersistentTreeMap<Task, Task> prioritized = this.prioritized;
+        List<? extends Task> removed = type == TaskType.TASK ? tasks.values() : subtasks.values();
+        for (Task task : removed) {
+            if (task.getStartTime() != null) {
+                prioritized = prioritized.remove(task);
+            }
+        }
+        return switch (type) {
+            case TASK -> new TaskSnapshot(version + 1, tasks.clear(), epics, subtasks, subtasksByEpic, prioritized);
+            case EPIC -> new TaskSnapshot(version + 1, tasks, epics.clear(), subtasks.clear(), subtasksByEpic.clear(),
+                    prioritized);
+            case SUBTASK -> new TaskSnapshot(version + 1, tasks, epics, subtasks.clear(), subtasksByEpic.clear(),
+                    prioritized);
+        };
+    }
+
+    private static long epicKey(Subtask subtask) {
+        return (long) subtask.getEpicId() << 32 | (subtask.getId() & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+// Транзакция над менеджером: изменения копятся в наборе и до commit() никому не видны.
+// При commit менеджер применяет весь набор разом — либо все изменения, либо (если какое-то
+// упёрлось в пересечение по времени) ни одного; rollback() и close() без commit набор отбрасывают.
+// id новых задач выдаются сразу, чтобы следующие шаги транзакции могли на них ссылаться
+public class TaskTransaction implements AutoCloseable {
+
+    enum Operation {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    // Шаг транзакции: копия задачи на момент вызова (для DELETE — только id)
+    record Change(Operation operation, Task task, int id) {
+    }
+
+    private enum State {
+        ACTIVE,
+        COMMITTED,
+        ROLLED_BACK
+    }
+
+    private final IntSupplier idGenerator;
+    private final Consumer<List<Change>> committer;
+    private final List<Change> changes = new ArrayList<>();
+    private State state = State.ACTIVE;
+
+    TaskTransaction(IntSupplier idGenerator, Consumer<List<Change>> committer) {
+        this.idGenerator = idGenerator;
+        this.committer = committer;
+    }
+
+    public int createTask(Task task) {
+        return create(task);
+    }
+
+    public int createEpic(Epic epic) {
+        return create(epic);
+    }
+
+    public int createSubtask(Subtask subtask) {
+        return create(subtask);
+    }
+
+    public void updateTask(Task task) {
+        change(Operation.UPDATE, task.freeze(), task.getId());
+    }
+
+    public void updateEpic(Epic epic) {
+        updateTask(epic);
+    }
+
+    public void updateSubtask(Subtask subtask) {
+        updateTask(subtask);
+    }
+
+    // Эпик удаляется вместе с подзадачами
+    public void delete(int id) {
+        change(Operation.DELETE, null, id);
+    }
+
+    public int size() {
+        return changes.size();
+    }
+
+    public void commit() {
+        checkActive();
+        committer.accept(List.copyOf(changes));
+        state = State.COMMITTED;
+    }
+
+    public void rollback() {
+        checkActive();
+        changes.clear();
+        state = State.ROLLED_BACK;
+    }
+
+    public boolean isActive() {
+        return state == State.ACTIVE;
+    }
+
+    @Override
+    public void close() {
+        if (state == State.ACTIVE) {
+            rollback();
+        }
+    }
+
+    private int create(Task task) {
+        Task copy = task.copy();
+        if (copy.getId() == 0) {
+            copy.setId(idGenerator.getAsInt());
+        }
+        change(Operation.CREATE, copy, copy.getId());
+        return copy.getId();
+    }
+
+    private void change(Operation operation, Task task, int id) {
+        checkActive();
+        changes.add(new Change(operation, task, id));
+    }
+
+    private void checkActive() {
+        if (state != State.ACTIVE) {
+            throw new IllegalStateException("Транзакция уже завершена");
+        }
+    }
+}
@@ -1,46 +1,151 @@
 package ru.yandex.practicum.models;
+import ru.yandex.practicum.util.IntObjectMap;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class Epic extends Task {
-    private final List<Integer> subtaskIds;
+    // Для каждой подзадачи — её вклад в сводку на момент добавления: снять его при удалении
+    // можно, даже если объект подзадачи успели изменить
+    private record Contribution(Status status, LocalDateTime start, LocalDateTime end, Duration duration) {
+    }
+
+    private final IntObjectMap<Contribution> subtaskIds;
     private LocalDateTime endTime = null;
 
+    // Сводка по подзадачам, которая обновляется при каждом добавлении и удалении подзадачи:
+    // число подзадач в каждом статусе, суммарная длительность, начала и концы (с повторами)
+    private final int[] statusCounts = new int[Status.values().length];
+    private Duration subtasksDuration = Duration.ZERO;
+    private final TreeMap<LocalDateTime, Integer> subtaskStarts = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> subtaskEnds = new TreeMap<>();
+
     public Epic(String title, String description, Status status) {
         super(title, description, status);
-        this.subtaskIds = new ArrayList<>();
+        this.subtaskIds = new IntObjectMap<>();
     }
 
+    // По возрастанию id, то есть в порядке создания: удаление переносит в subtaskIds последнюю
+    // пару на место удалённой, и порядок самого отображения после этого другой
     public List<Integer> getSubtaskIds() {
-        return new ArrayList<>(subtaskIds);
+        int[] keys = subtaskIds.keys();
+        Arrays.sort(keys);
+        List<Integer> ids = new ArrayList<>(keys.length);
+        for (int id : keys) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    public int getSubtaskCount() {
+        return subtaskIds.size();
     }
 
-    public void addSubtask(int subtaskId) {
-        if (!subtaskIds.contains(subtaskId)) {
-            subtaskIds.add(subtaskId);
+    // Подзадача учитывается в сводке с теми статусом и временем, которые у неё сейчас
+    public void addSubtask(Subtask subtask) {
+        if (subtaskIds.containsKey(subtask.getId())) {
+            return;
         }
+        checkMutable();
+        Contribution contribution = new Contribution(subtask.getStatus(), subtask.getStartTime(),
+                subtask.getEndTime(), subtask.getDuration());
+        subtaskIds.put(subtask.getId(), contribution);
+
+        statusCounts[contribution.status().ordinal()]++;
+        subtasksDuration = subtasksDuration.plus(contribution.duration());
+        if (contribution.start() != null) {
+            subtaskStarts.merge(contribution.start(), 1, Integer::sum);
+        }
+        if (contribution.end() != null) {
+            subtaskEnds.merge(contribution.end(), 1, Integer::sum);
+        }
+        markChanged();
     }
 
     public void removeSubtask(int subtaskId) {
-        subtaskIds.remove(Integer.valueOf(subtaskId));
+        checkMutable();
+        Contribution contribution = subtaskIds.remove(subtaskId);
+        if (contribution == null) {
+            return;
+        }
+        statusCounts[contribution.status().ordinal()]--;
+        subtasksDuration = subtasksDuration.minus(contribution.duration());
+        if (contribution.start() != null) {
+            decrement(subtaskStarts, contribution.start());
+        }
+        if (contribution.end() != null) {
+            decrement(subtaskEnds, contribution.end());
+        }
+        markChanged();
+    }
+
+    private static void decrement(Map<LocalDateTime, Integer> times, LocalDateTime time) {
+        times.computeIfPresent(time, (key, count) -> count > 1 ? count - 1 : null);
     }
 
     public void clearSubtasks() {
+        checkMutable();
         subtaskIds.clear();
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = 0;
+        }
+        subtasksDuration = Duration.ZERO;
+        subtaskStarts.clear();
+        subtaskEnds.clear();
+        markChanged();
+    }
+
+    // Статус по подзадачам: все новые (или подзадач нет) — NEW, все выполнены — DONE
+    public Status getSubtasksStatus() {
+        int count = subtaskIds.size();
+        if (count == 0 || statusCounts[Status.NEW.ordinal()] == count) {
+            return Status.NEW;
+        }
+        if (statusCounts[Status.DONE.ordinal()] == count) {
+            return Status.DONE;
+        }
+        return Status.IN_PROGRESS;
+    }
+
+    public LocalDateTime getSubtasksStartTime() {
+        return subtaskStarts.isEmpty() ? null : subtaskStarts.firstKey();
+    }
+
+    public LocalDateTime getSubtasksEndTime() {
+        return subtaskEnds.isEmpty() ? null : subtaskEnds.lastKey();
+    }
+
+    public Duration getSubtasksDuration() {
+        return subtasksDuration;
     }
 
     public void setEndTime(LocalDateTime endTime) {
+        checkMutable();
         this.endTime = endTime;
+        markChanged();
     }
 
     public LocalDateTime getEndTime() {
         return endTime;
     }
 
+    // Копия без связей с подзадачами: статус и время — как сейчас у эпика
+    @Override
+    public Epic copy() {
+        Epic copy = new Epic(title, description, status);
+        copyTo(copy);
+        copy.setEndTime(endTime);
+        return copy;
+    }
+
     @Override
     public String toString() {
         return String.format("ru.yandex.practicum.models.Epic{id=%d, title='%s', status=%s, subtaskCount=%d}",
                 getId(), getTitle(), getStatus(), subtaskIds.size());
     }
-}
\ No newline at end of file
+}
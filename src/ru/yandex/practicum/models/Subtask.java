@@ -14,7 +14,16 @@ public class Subtask extends Task {
     }
 
     public void setEpicId(int epicId) {
+        checkMutable();
         this.epicId = epicId;
+        markChanged();
+    }
+
+    @Override
+    public Subtask copy() {
+        Subtask copy = new Subtask(title, description, status, epicId);
+        copyTo(copy);
+        return copy;
     }
 
     @Override
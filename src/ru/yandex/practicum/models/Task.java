@@ -1,5 +1,6 @@
 package ru.yandex.practicum.models;
 
+import java.lang.invoke.VarHandle;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Objects;
@@ -11,6 +12,15 @@ public class Task {
     protected Status status;
     protected LocalDateTime startTime = null;
     protected Duration duration = Duration.ZERO;
+    // Версия растёт после каждого изменения полей. Замороженная копия текущей версии создаётся
+    // один раз и общая для всех, кому нужно состояние на этот момент (история, снимки);
+    // копия помнит версию, с которой снята, и после изменения задачи уже не отдаётся
+    private volatile long version;
+    private boolean frozen;
+    private volatile FrozenCopy frozenCopy;
+
+    private record FrozenCopy(long version, Task task) {
+    }
 
     public Task(String title, String description, Status status) {
         this.title = title;
@@ -23,7 +33,9 @@ public class Task {
     }
 
     public void setStartTime(LocalDateTime startTime) {
+        checkMutable();
         this.startTime = startTime;
+        markChanged();
     }
 
     public Duration getDuration() {
@@ -31,7 +43,9 @@ public class Task {
     }
 
     public void setDuration(Duration duration) {
+        checkMutable();
         this.duration = duration != null ? duration : Duration.ZERO;
+        markChanged();
     }
 
     public LocalDateTime getEndTime() {
@@ -46,7 +60,9 @@ public class Task {
     }
 
     public void setId(int id) {
+        checkMutable();
         this.id = id;
+        markChanged();
     }
 
     public String getTitle() {
@@ -54,7 +70,9 @@ public class Task {
     }
 
     public void setTitle(String title) {
+        checkMutable();
         this.title = title;
+        markChanged();
     }
 
     public String getDescription() {
@@ -62,7 +80,9 @@ public class Task {
     }
 
     public void setDescription(String description) {
+        checkMutable();
         this.description = description;
+        markChanged();
     }
 
     public Status getStatus() {
@@ -70,7 +90,65 @@ public class Task {
     }
 
     public void setStatus(Status status) {
+        checkMutable();
         this.status = status;
+        markChanged();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    // Неизменяемая копия текущей версии; пока задача не менялась, возвращается одна и та же.
+    // Читатель может заморозить задачу, пока писатель её меняет: тогда версия после копирования
+    // уже другая, и смешанная копия не запоминается, а писатель при следующей заморозке снимет свою
+    public Task freeze() {
+        if (frozen) {
+            return this;
+        }
+        long before = version;
+        FrozenCopy cached = frozenCopy;
+        if (cached != null && cached.version() == before) {
+            return cached.task();
+        }
+        Task copy = copy();
+        copy.version = before;
+        copy.frozen = true;
+        VarHandle.loadLoadFence();
+        if (version == before) {
+            frozenCopy = new FrozenCopy(before, copy);
+        }
+        return copy;
+    }
+
+    // Изменяемая копия с теми же полями
+    public Task copy() {
+        Task copy = new Task(title, description, status);
+        copyTo(copy);
+        return copy;
+    }
+
+    protected void copyTo(Task copy) {
+        copy.setId(id);
+        copy.setStartTime(startTime);
+        copy.setDuration(duration);
+    }
+
+    // Вызывается до изменения полей
+    protected void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Замороженную версию задачи менять нельзя");
+        }
+    }
+
+    // Вызывается после изменения полей: копия, снятая до этого, устаревает
+    protected void markChanged() {
+        version++;
+        frozenCopy = null;
     }
 
     @Override
@@ -0,0 +1,250 @@
+package ru.yandex.practicum.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Отображение int -> V без упаковки ключей. Пары лежат плотно в массивах keys/values
+// (позиции 0..size-1), а хеш-таблица с открытой адресацией хранит для ключа позицию + 1
+// (0 — пустая ячейка). Поэтому обход — простой цикл по позициям без итератора:
+//
+//     for (int i = 0; i < map.size(); i++) { map.keyAt(i); map.valueAt(i); }
+//
+// Удаление переносит последнюю пару на место удалённой, так что порядок обхода —
+// порядок добавления, пока ничего не удаляли. Позиции остаются прежними, пока не меняется
+// layoutVersion(): добавление их не сдвигает, удаление и очистка — могут
+public final class IntObjectMap<V> {
+    private static final int MIN_TABLE = 8;
+
+    private int[] keys;
+    private Object[] values;
+    private int[] table;
+    private int size;
+    private int layoutVersion;
+
+    public IntObjectMap() {
+        this(0);
+    }
+
+    public IntObjectMap(int expectedSize) {
+        int capacity = Math.max(expectedSize, 4);
+        keys = new int[capacity];
+        values = new Object[capacity];
+        table = new int[tableSizeFor(capacity)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int layoutVersion() {
+        return layoutVersion;
+    }
+
+    public int keyAt(int position) {
+        checkPosition(position);
+        return keys[position];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int position) {
+        checkPosition(position);
+        return (V) values[position];
+    }
+
+    public boolean containsKey(int key) {
+        return positionOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int position = positionOf(key);
+        return position >= 0 ? (V) values[position] : null;
+    }
+
+    // Возвращает прежнее значение или null
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] != 0) {
+            int position = table[slot] - 1;
+            if (keys[position] == key) {
+                V previous = (V) values[position];
+                values[position] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        table[slot] = ++size;
+        // Таблица заполнена не больше чем наполовину
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return null;
+    }
+
+    // Возвращает удалённое значение или null
+    public V remove(int key) {
+        int position = positionOf(key);
+        return position >= 0 ? removeAt(position) : null;
+    }
+
+    public boolean removeIf(Predicate<? super V> filter) {
+        boolean removed = false;
+        // С конца: на место удалённой встаёт последняя пара, а она уже проверена
+        for (int i = size - 1; i >= 0; i--) {
+            if (filter.test(valueAt(i))) {
+                removeAt(i);
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(table, 0);
+        size = 0;
+        layoutVersion++;
+    }
+
+    public int[] keys() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add((V) values[i]);
+        }
+        return list;
+    }
+
+    // Ленивый обход по позициям без копирования; удаление во время обхода даёт
+    // ConcurrentModificationException, добавленные после начала обхода пары могут не попасть
+    public Stream<V> stream() {
+        Spliterator<V> spliterator = new Spliterators.AbstractSpliterator<>(size, Spliterator.ORDERED) {
+            private final int expectedLayout = layoutVersion;
+            private int position;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super V> action) {
+                if (layoutVersion != expectedLayout) {
+                    throw new ConcurrentModificationException();
+                }
+                if (position >= size) {
+                    return false;
+                }
+                action.accept(valueAt(position++));
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V removeAt(int position) {
+        V removed = (V) values[position];
+        deleteSlot(slotOf(keys[position]));
+
+        int last = size - 1;
+        if (position != last) {
+            // Последняя пара переезжает в освободившуюся позицию
+            table[slotOf(keys[last])] = position + 1;
+            keys[position] = keys[last];
+            values[position] = values[last];
+        }
+        values[last] = null;
+        size--;
+        layoutVersion++;
+        return removed;
+    }
+
+    private int positionOf(int key) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] != 0) {
+            int position = table[slot] - 1;
+            if (keys[position] == key) {
+                return position;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Ячейка таблицы для ключа, который точно есть в отображении
+    private int slotOf(int key) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[table[slot] - 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Удаление без надгробий: следующие ячейки цепочки сдвигаются назад, если их
+    // начальная ячейка не лежит между освободившейся и ими
+    private void deleteSlot(int slot) {
+        int mask = table.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[next] != 0) {
+            int home = hash(keys[table[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = 0;
+    }
+
+    private void rehash(int tableSize) {
+        table = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int position = 0; position < size; position++) {
+            int slot = hash(keys[position]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = position + 1;
+        }
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException(String.format("Позиция %d вне отображения размера %d", position, size));
+        }
+    }
+
+    // Как в HashMap: id обычно идут подряд и без перемешивания ложатся в соседние ячейки,
+    // а старшие биты подмешиваются для ключей, различающихся только в них
+    private static int hash(int key) {
+        return key ^ (key >>> 16);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Math.max(Integer.highestOneBit(capacity * 2 - 1) << 1, MIN_TABLE);
+    }
+}
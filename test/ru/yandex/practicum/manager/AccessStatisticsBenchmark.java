@@ -0,0 +1,31 @@
+package ru.yandex.practicum.manager;
+
+import java.util.Random;
+
+// Запуск: java ru.yandex.practicum.manager.AccessStatisticsBenchmark
+// Печатает наносекунды на одно AccessStatistics.record при перекошенном потоке чтений
+public class AccessStatisticsBenchmark {
+    private static final int READS = 1 << 20;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        int[] ids = new int[READS];
+        Random random = new Random(42);
+        for (int i = 0; i < READS; i++) {
+            // Половина чтений приходится на 32 горячие задачи из 100 000
+            ids[i] = random.nextBoolean() ? 1 + random.nextInt(32) : 1 + random.nextInt(100_000);
+        }
+
+        AccessStatistics statistics = new AccessStatistics();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int id : ids) {
+                statistics.record(id);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("record: %.2f нс%n", (double) best / READS);
+        System.out.println("top: " + statistics.getTop());
+    }
+}
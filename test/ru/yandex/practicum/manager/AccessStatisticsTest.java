@@ -0,0 +1,49 @@
+package ru.yandex.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessStatisticsTest {
+
+    @Test
+    void estimatesNeverUndercountAndTopFindsHotIds() {
+        AccessStatistics statistics = new AccessStatistics(256, 4);
+        int[] counts = new int[2000];
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            int id = random.nextInt(5) < 3 ? 1 + random.nextInt(4) : 5 + random.nextInt(1995);
+            counts[id]++;
+            statistics.record(id);
+        }
+
+        for (int id = 1; id < counts.length; id++) {
+            assertTrue(statistics.estimate(id) >= counts[id], "Оценка занижена для id " + id);
+        }
+        List<Integer> top = statistics.getTop().stream().map(AccessStatistics.Entry::id).sorted().toList();
+        assertEquals(List.of(1, 2, 3, 4), top);
+    }
+
+    @Test
+    void oldReadsDecayAndTopFollowsNewOnes() {
+        AccessStatistics statistics = new AccessStatistics(16, 1);
+        for (int i = 0; i < 100; i++) {
+            statistics.record(1);
+        }
+        assertEquals(100, statistics.estimate(1));
+
+        // Каждые 10 * 16 чтений счётчики делятся пополам
+        for (int i = 0; i < 640; i++) {
+            statistics.record(2);
+        }
+        assertTrue(statistics.estimate(1) <= 100 / 8);
+        assertEquals(2, statistics.getTop().getFirst().id());
+
+        statistics.clear();
+        assertEquals(0, statistics.estimate(2));
+        assertTrue(statistics.getTop().isEmpty());
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppendLogTest {
+
+    @Test
+    void intervalPolicySyncsIdleDirectLog() throws Exception {
+        Path file = Files.createTempFile("test", ".journal");
+        try (AppendLog log = new AppendLog(file, DurabilityPolicy.every(Duration.ofMillis(200)), false)) {
+            log.append(new byte[] {'a', '\n'});
+
+            // Новых записей нет, но fsync всё равно должен пройти в пределах интервала
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (log.hasUnsyncedWrites() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse(log.hasUnsyncedWrites());
+        }
+        Files.delete(file);
+    }
+}
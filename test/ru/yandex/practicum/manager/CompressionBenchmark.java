@@ -0,0 +1,65 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Запуск: java ru.yandex.practicum.manager.CompressionBenchmark [число подзадач]
+// Для каждого формата и уровня сжатия печатает размер снимка и скорость записи и чтения
+public class CompressionBenchmark {
+    private static final int[] LEVELS = {0, 1, 3, 6, 9};
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        File file = File.createTempFile("compression", ".snapshot");
+
+        for (StorageFormat format : StorageFormat.values()) {
+            for (int level : LEVELS) {
+                StorageConfig config = new StorageConfig();
+                config.setFormat(format);
+                config.setCompressed(true);
+                config.setCompressionLevel(level);
+                FileBackedTaskManager manager = new FileBackedTaskManager(file, config);
+                fill(manager, count);
+
+                // Прогрев, затем замер
+                manager.checkpoint();
+                manager.checkpoint();
+                FileBackedTaskManager.loadFromFile(file);
+                FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+
+                CompressionStats saved = manager.getCompressionStats();
+                CompressionStats read = loaded.getCompressionStats();
+                System.out.printf("%-6s уровень %d: %,d -> %,d байт (x%.1f), запись %d МБ/с, чтение %d МБ/с%n",
+                        format, level, saved.getLastRawBytes(), saved.getLastCompressedBytes(),
+                        saved.getLastRatio(), saved.getLastSaveThroughput() / 1_000_000,
+                        read.getLastLoadThroughput() / 1_000_000);
+            }
+        }
+        Files.delete(file.toPath());
+    }
+
+    // Задачи кладутся напрямую: проверка пересечений при создании здесь не нужна
+    private static void fill(FileBackedTaskManager manager, int count) {
+        int epicId = 0;
+        for (int i = 0; i < count; i++) {
+            // По сотне подзадач на эпик
+            if (i % 100 == 0) {
+                Epic epic = new Epic("Релиз " + i / 100, "Подготовка релиза", Status.NEW);
+                epic.setId(++epicId + count);
+                manager.restoreTask(epic);
+            }
+            Subtask sub = new Subtask("Подзадача " + i, "Проверить сборку и выложить артефакты",
+                    Status.values()[i % 3], epicId + count);
+            sub.setId(i + 1);
+            sub.setStartTime(LocalDateTime.of(2025, 1, 1, 9, 0).plusMinutes(i * 30L));
+            sub.setDuration(Duration.ofMinutes(25));
+            manager.restoreTask(sub);
+        }
+        manager.finishRestore(null);
+    }
+}
@@ -0,0 +1,381 @@
+package ru.yandex.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.exceptions.TaskIntersectionException;
+import ru.yandex.practicum.models.Epic;
+import ru.yandex.practicum.models.Status;
+import ru.yandex.practicum.models.Subtask;
+import ru.yandex.practicum.models.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends AbstractTaskManagerTest<ConcurrentTaskManager> {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 12, 1, 0, 0);
+
+    @Override
+    protected ConcurrentTaskManager createManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    @Test
+    void subtaskUpdatesKeepEpicState() {
+        Epic first = manager.createEpic(new Epic("Эпик 1", "Описание", Status.NEW));
+        Epic second = manager.createEpic(new Epic("Эпик 2", "Описание", Status.NEW));
+        Subtask subtask = manager.createSubtask(timed(new Subtask("Подзадача", "Описание", Status.DONE,
+                first.getId()), 0));
+        assertEquals(Status.DONE, first.getStatus());
+        assertEquals(START, first.getStartTime());
+
+        Subtask moved = timed(new Subtask("Подзадача", "Описание", Status.IN_PROGRESS, second.getId()), 2);
+        moved.setId(subtask.getId());
+        manager.updateSubtask(moved);
+
+        assertEquals(Status.NEW, first.getStatus());
+        assertNull(first.getStartTime());
+        assertEquals(Status.IN_PROGRESS, second.getStatus());
+        assertEquals(List.of(subtask), manager.getEpicSubtasks(second.getId()));
+        assertTrue(manager.getEpicSubtasks(first.getId()).isEmpty());
+        assertEquals(List.of(subtask), manager.getOverlappingTasks(START.plusHours(2), START.plusHours(3)));
+
+        manager.deleteEpic(second.getId());
+        assertTrue(manager.getAllSubtasks().isEmpty());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+    }
+
+    @Test
+    void parallelWritersOnDifferentEpics() throws Exception {
+        int threads = 8;
+        int perThread = 500;
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            epics.add(manager.createEpic(new Epic("Эпик " + i, "Описание", Status.NEW)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    Epic epic = epics.get(thread);
+                    for (int i = 0; i < perThread; i++) {
+                        // Часы потоков чередуются и не пересекаются
+                        Subtask sub = timed(new Subtask("Подзадача", "Описание", Status.NEW, epic.getId()),
+                                i * threads + thread);
+                        Subtask created = manager.createSubtask(sub);
+                        if (i % 2 == 0) {
+                            Subtask done = timed(new Subtask("Подзадача", "Описание", Status.DONE, epic.getId()),
+                                    i * threads + thread);
+                            done.setId(created.getId());
+                            manager.updateSubtask(done);
+                        } else if (i % 5 == 0) {
+                            manager.deleteSubtask(created.getId());
+                        }
+                        manager.getPrioritizedTasks();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int expected = perThread - perThread / 10;
+        assertEquals(threads * expected, manager.getAllSubtasks().size());
+        for (Epic epic : epics) {
+            assertEquals(expected, manager.getEpicSubtasks(epic.getId()).size());
+            assertEquals(expected, epic.getSubtaskCount());
+            assertEquals(Status.IN_PROGRESS, epic.getStatus());
+        }
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        assertEquals(threads * expected, prioritized.size());
+        for (int i = 1; i < prioritized.size(); i++) {
+            assertFalse(prioritized.get(i).getStartTime().isBefore(prioritized.get(i - 1).getEndTime()));
+        }
+
+        // Последняя версия совпадает с живым состоянием
+        TaskSnapshot snapshot = manager.snapshot();
+        assertEquals(threads * expected, snapshot.getAllSubtasks().size());
+        assertEquals(prioritized, snapshot.getPrioritizedTasks());
+        for (Epic epic : epics) {
+            assertEquals(expected, snapshot.getEpicSubtasks(epic.getId()).size());
+            assertEquals(Status.IN_PROGRESS, snapshot.getEpic(epic.getId()).getStatus());
+        }
+    }
+
+    @Test
+    void snapshotIsPointInTime() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Subtask subtask = manager.createSubtask(timed(new Subtask("Подзадача", "Описание", Status.NEW,
+                epic.getId()), 1));
+        Task task = manager.createTask(timed(new Task("Задача", "Описание", Status.NEW), 0));
+        TaskSnapshot before = manager.snapshot();
+        assertSame(before, manager.snapshot());
+
+        Subtask done = timed(new Subtask("Подзадача", "Готово", Status.DONE, epic.getId()), 5);
+        done.setId(subtask.getId());
+        manager.updateSubtask(done);
+        manager.deleteTask(task.getId());
+        manager.createSubtask(timed(new Subtask("Вторая", "Описание", Status.NEW, epic.getId()), 3));
+        TaskSnapshot after = manager.snapshot();
+
+        assertEquals(Status.NEW, before.getEpic(epic.getId()).getStatus());
+        assertEquals("Описание", before.getSubtask(subtask.getId()).getDescription());
+        assertEquals(List.of(task.getId(), subtask.getId()),
+                before.getPrioritizedTasks().stream().map(Task::getId).toList());
+        assertEquals(1, before.getEpicSubtasks(epic.getId()).size());
+
+        assertTrue(after.getVersion() > before.getVersion());
+        assertEquals(Status.IN_PROGRESS, after.getEpic(epic.getId()).getStatus());
+        assertNull(after.getTask(task.getId()));
+        assertEquals(2, after.getEpicSubtasks(epic.getId()).size());
+        assertEquals(START.plusHours(3), after.getPrioritizedTasks().getFirst().getStartTime());
+
+        manager.deleteAllSubtasks();
+        assertEquals(Status.NEW, manager.snapshot().getEpic(epic.getId()).getStatus());
+        assertTrue(manager.snapshot().getPrioritizedTasks().isEmpty());
+        assertEquals(2, after.getAllSubtasks().size());
+    }
+
+    @Test
+    void onlyOneOfConflictingWritersWins() throws Exception {
+        int threads = 8;
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            epics.add(manager.createEpic(new Epic("Эпик " + i, "Описание", Status.NEW)));
+        }
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int hour = 0; hour < 200; hour++) {
+                        // Все потоки пытаются занять одни и те же часы
+                        try {
+                            if (thread % 2 == 0) {
+                                manager.createTask(timed(new Task("Задача", "Описание", Status.NEW), hour));
+                            } else {
+                                manager.createSubtask(timed(new Subtask("Подзадача", "Описание", Status.NEW,
+                                        epics.get(thread).getId()), hour));
+                            }
+                            created.incrementAndGet();
+                        } catch (TaskIntersectionException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(200, created.get());
+        assertEquals(200 * (threads - 1), rejected.get());
+        assertEquals(200, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void usedIdsAreNeverReassigned() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", Status.NEW, epic.getId()));
+        Epic sameId = new Epic("Другой эпик", "Описание", Status.NEW);
+        sameId.setId(epic.getId());
+        assertThrows(IllegalArgumentException.class, () -> manager.createEpic(sameId));
+        assertEquals(List.of(subtask), manager.getEpicSubtasks(epic.getId()));
+
+        Task taken = new Task("Задача", "Описание", Status.NEW);
+        taken.setId(subtask.getId());
+        assertThrows(IllegalArgumentException.class, () -> manager.createAll(List.of(
+                new Task("Новая", "Описание", Status.NEW), taken)));
+        TaskTransaction transaction = manager.beginTransaction();
+        transaction.createTask(taken);
+        assertThrows(IllegalArgumentException.class, transaction::commit);
+        assertTrue(manager.getAllTasks().isEmpty());
+        assertEquals(subtask, manager.getSubtask(subtask.getId()));
+
+        Task explicit = new Task("Задача 10", "Описание", Status.NEW);
+        explicit.setId(10);
+        assertEquals(10, manager.createAll(List.of(explicit)).getFirst().getId());
+        assertEquals(11, manager.createTask(new Task("Следующая", "Описание", Status.NEW)).getId());
+    }
+
+    @Test
+    void rejectedBatchLeavesManagerUnchanged() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Task before = manager.createTask(new Task("Задача", "Описание", Status.NEW));
+        TaskSnapshot version = manager.snapshot();
+
+        Task taken = new Task("Занятый id", "Описание", Status.NEW);
+        taken.setId(before.getId());
+        assertThrows(IllegalArgumentException.class, () -> manager.createAll(List.of(
+                new Task("Новая", "Описание", Status.NEW),
+                new Subtask("Подзадача", "Описание", Status.NEW, epic.getId()),
+                taken)));
+        assertEquals(List.of(before), manager.getAllTasks());
+        assertTrue(manager.getEpicSubtasks(epic.getId()).isEmpty());
+        assertSame(version, manager.snapshot());
+
+        int next = before.getId() + 1;
+        Task explicit = new Task("Заданный id", "Описание", Status.NEW);
+        explicit.setId(next);
+        List<Task> created = manager.createAll(List.of(new Task("Новая", "Описание", Status.NEW), explicit));
+        assertEquals(next, created.get(1).getId());
+        assertNotEquals(next, created.get(0).getId());
+    }
+
+    @Test
+    void batchOperationsCheckTheWholeBatch() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        List<Task> created = manager.createAll(List.of(
+                timed(new Task("Задача", "Описание", Status.NEW), 0),
+                timed(new Subtask("Подзадача", "Описание", Status.NEW, epic.getId()), 1)));
+        assertThrows(TaskIntersectionException.class, () -> manager.createAll(List.of(
+                timed(new Task("Новая", "Описание", Status.NEW), 5),
+                timed(new Task("Занято", "Описание", Status.NEW), 1))));
+        assertEquals(1, manager.getAllTasks().size());
+
+        Task swappedTask = timed(new Task("Задача", "Описание", Status.NEW), 1);
+        swappedTask.setId(created.get(0).getId());
+        Subtask swappedSubtask = timed(new Subtask("Подзадача", "Описание", Status.DONE, epic.getId()), 0);
+        swappedSubtask.setId(created.get(1).getId());
+        manager.updateAll(List.of(swappedTask, swappedSubtask));
+
+        assertEquals(List.of(created.get(1), created.get(0)), manager.getPrioritizedTasks());
+        assertEquals(Status.DONE, epic.getStatus());
+
+        assertEquals(List.of(created.get(1).getId(), epic.getId(), created.get(0).getId()),
+                manager.deleteAll(List.of(epic.getId(), created.get(0).getId())));
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+        assertTrue(manager.snapshot().getAllSubtasks().isEmpty());
+    }
+
+    @Test
+    void transactionPublishesOneVersionOrNone() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Subtask subtask = manager.createSubtask(timed(new Subtask("Подзадача", "Описание", Status.NEW,
+                epic.getId()), 1));
+        Task task = manager.createTask(timed(new Task("Задача", "Описание", Status.NEW), 3));
+        TaskSnapshot before = manager.snapshot();
+
+        TaskTransaction failed = manager.beginTransaction();
+        failed.delete(epic.getId());
+        Task moved = timed(new Task("Задача", "Описание", Status.DONE), 1);
+        moved.setId(task.getId());
+        failed.updateTask(moved);
+        failed.createTask(timed(new Task("Мешает", "Описание", Status.NEW), 1));
+        assertThrows(TaskIntersectionException.class, failed::commit);
+        assertSame(before, manager.snapshot());
+        assertEquals(1, manager.getEpicSubtasks(epic.getId()).size());
+        assertEquals(List.of(subtask.getId(), task.getId()),
+                manager.getPrioritizedTasks().stream().map(Task::getId).toList());
+
+        TaskTransaction transaction = manager.beginTransaction();
+        transaction.delete(epic.getId());
+        transaction.updateTask(moved);
+        transaction.commit();
+        TaskSnapshot after = manager.snapshot();
+        assertNull(after.getEpic(epic.getId()));
+        assertNull(after.getSubtask(subtask.getId()));
+        assertEquals(Status.DONE, after.getTask(task.getId()).getStatus());
+        assertEquals(START.plusHours(1), after.getPrioritizedTasks().getFirst().getStartTime());
+    }
+
+    @Test
+    void deletedTasksLeaveHistory() {
+        Task task = manager.createTask(new Task("Задача", "Описание", Status.NEW));
+        Task other = manager.createTask(new Task("Другая", "Описание", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Subtask first = manager.createSubtask(new Subtask("Подзадача 1", "Описание", Status.NEW, epic.getId()));
+        Subtask second = manager.createSubtask(new Subtask("Подзадача 2", "Описание", Status.NEW, epic.getId()));
+        List.of(task, other, epic, first, second).forEach(this::view);
+
+        manager.deleteTask(task.getId());
+        manager.deleteSubtask(first.getId());
+        assertEquals(List.of(other, epic, second), manager.getHistory());
+        manager.deleteEpic(epic.getId());
+        assertEquals(List.of(other), manager.getHistory());
+        manager.deleteAll(List.of(other.getId()));
+        assertTrue(manager.getHistory().isEmpty());
+
+        Task viewed = manager.createTask(new Task("Просмотрена", "Описание", Status.NEW));
+        Epic viewedEpic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Subtask viewedSubtask = manager.createSubtask(new Subtask("Подзадача", "Описание", Status.NEW,
+                viewedEpic.getId()));
+        List.of(viewed, viewedEpic, viewedSubtask).forEach(this::view);
+        manager.deleteAllTasks();
+        manager.deleteAllSubtasks();
+        assertEquals(List.of(viewedEpic), manager.getHistory());
+        manager.deleteAllEpics();
+        assertTrue(manager.getHistory().isEmpty());
+
+        Task kept = manager.createTask(new Task("Задача", "Описание", Status.NEW));
+        Task removed = manager.createTask(new Task("Задача", "Описание", Status.NEW));
+        view(kept);
+        view(removed);
+        // Откатившаяся транзакция историю не трогает, применившаяся — убирает удалённое
+        TaskTransaction failed = manager.beginTransaction();
+        failed.delete(kept.getId());
+        failed.createTask(timed(new Task("Первая", "Описание", Status.NEW), 0));
+        failed.createTask(timed(new Task("Вторая", "Описание", Status.NEW), 0));
+        assertThrows(TaskIntersectionException.class, failed::commit);
+        assertEquals(List.of(kept, removed), manager.getHistory());
+        TaskTransaction transaction = manager.beginTransaction();
+        transaction.delete(removed.getId());
+        transaction.commit();
+        assertEquals(List.of(kept), manager.getHistory());
+    }
+
+    @Test
+    void pagesReadPublishedVersions() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(manager.createTask(timed(new Task("Задача " + i, "Описание", Status.NEW), 4 - i)).getId());
+        }
+
+        Page<Task> first = manager.getTasks(null, 2);
+        assertEquals(ids.subList(0, 2), first.getItems().stream().map(Task::getId).toList());
+        manager.deleteTask(ids.get(2));
+        Page<Task> second = manager.getTasks(first.getNextCursor(), 10);
+        assertEquals(ids.subList(3, 5), second.getItems().stream().map(Task::getId).toList());
+        assertFalse(second.hasNext());
+
+        Page<Task> early = manager.getPrioritizedTasks(null, 2);
+        assertEquals(List.of(ids.get(4), ids.get(3)), early.getItems().stream().map(Task::getId).toList());
+        Page<Task> late = manager.getPrioritizedTasks(early.getNextCursor(), 2);
+        assertEquals(List.of(ids.get(1), ids.get(0)), late.getItems().stream().map(Task::getId).toList());
+        assertFalse(late.hasNext());
+        assertEquals(4, manager.streamTasks().count());
+    }
+
+    private void view(Task task) {
+        switch (task) {
+            case Epic epic -> manager.getEpic(epic.getId());
+            case Subtask subtask -> manager.getSubtask(subtask.getId());
+            default -> manager.getTask(task.getId());
+        }
+    }
+
+    private static <T extends Task> T timed(T task, int hour) {
+        task.setStartTime(START.plusHours(hour));
+        task.setDuration(Duration.ofMinutes(50));
+        return task;
+    }
+}
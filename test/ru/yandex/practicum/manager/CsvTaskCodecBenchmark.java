@@ -0,0 +1,103 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.*;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Запуск: java ru.yandex.practicum.manager.CsvTaskCodecBenchmark
+// Печатает байты, выделенные на одну запись, для прежнего пути (String.format + split) и для CsvTaskCodec
+public class CsvTaskCodecBenchmark {
+    private static final int RECORDS = 200_000;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    public static void main(String[] args) {
+        Subtask[] subtasks = new Subtask[1024];
+        for (int i = 0; i < subtasks.length; i++) {
+            Subtask subtask = new Subtask("Подзадача " + i, "Описание подзадачи " + i, Status.IN_PROGRESS, 1);
+            subtask.setId(i + 2);
+            subtask.setStartTime(LocalDateTime.of(2025, 11, 3, 9, 0).plusMinutes(i * 30L));
+            subtask.setDuration(Duration.ofMinutes(25));
+            subtasks[i] = subtask;
+        }
+
+        CsvTaskCodec codec = new CsvTaskCodec();
+        RecordBuffer buffer = new RecordBuffer(256);
+        String[] legacyLines = new String[subtasks.length];
+        for (int i = 0; i < subtasks.length; i++) {
+            legacyLines[i] = legacyEncode(subtasks[i]);
+        }
+
+        // Прогрев JIT
+        for (int round = 0; round < 5; round++) {
+            run(subtasks, codec, buffer, legacyLines, RECORDS, false);
+        }
+        run(subtasks, codec, buffer, legacyLines, RECORDS, true);
+    }
+
+    private static void run(Subtask[] subtasks, CsvTaskCodec codec, RecordBuffer buffer, String[] legacyLines,
+                            int records, boolean print) {
+        long sink = 0;
+
+        long before = allocatedBytes();
+        for (int i = 0; i < records; i++) {
+            sink += legacyEncode(subtasks[i & 1023]).length();
+        }
+        long legacyEncode = allocatedBytes() - before;
+
+        before = allocatedBytes();
+        for (int i = 0; i < records; i++) {
+            buffer.clear();
+            codec.encode(subtasks[i & 1023], buffer);
+            sink += buffer.size();
+        }
+        long codecEncode = allocatedBytes() - before;
+
+        before = allocatedBytes();
+        for (int i = 0; i < records; i++) {
+            sink += legacyDecode(legacyLines[i & 1023]).getId();
+        }
+        long legacyDecode = allocatedBytes() - before;
+
+        buffer.clear();
+        codec.encode(subtasks[0], buffer);
+        byte[] line = buffer.toByteArray();
+        before = allocatedBytes();
+        for (int i = 0; i < records; i++) {
+            sink += codec.decode(line, 0, line.length).getId();
+        }
+        long codecDecode = allocatedBytes() - before;
+
+        if (print) {
+            System.out.printf("encode: String.format %d B/запись, CsvTaskCodec %d B/запись%n",
+                    legacyEncode / records, codecEncode / records);
+            System.out.printf("decode: split %d B/запись, CsvTaskCodec %d B/запись (включая сам объект задачи)%n",
+                    legacyDecode / records, codecDecode / records);
+            System.out.println("checksum " + sink);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    private static String legacyEncode(Subtask task) {
+        String startTimeStr = task.getStartTime() != null ? task.getStartTime().format(FORMATTER) : "";
+        return String.format("%d,%s,%s,%s,%s,%d,%s,%d", task.getId(), TaskType.SUBTASK, task.getTitle(),
+                task.getStatus(), task.getDescription(), task.getEpicId(), startTimeStr,
+                task.getDuration().toMinutes());
+    }
+
+    private static Task legacyDecode(String value) {
+        String[] parts = value.split(",", -1);
+        Subtask subtask = new Subtask(parts[2], parts[4], Status.valueOf(parts[3]), Integer.parseInt(parts[5]));
+        subtask.setId(Integer.parseInt(parts[0]));
+        TaskType.valueOf(parts[1]);
+        subtask.setStartTime(LocalDateTime.parse(parts[6], FORMATTER));
+        subtask.setDuration(Duration.ofMinutes(Long.parseLong(parts[7])));
+        return subtask;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.models.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvTaskCodecTest {
+    private final CsvTaskCodec codec = new CsvTaskCodec();
+
+    private Task roundTrip(Task task) {
+        RecordBuffer buffer = new RecordBuffer(16);
+        codec.encode(task, buffer);
+        for (int i = 0; i < buffer.size(); i++) {
+            assertNotEquals((byte) '\n', buffer.array()[i], "Запись должна оставаться одной строкой");
+        }
+        return codec.decode(buffer.array(), 0, buffer.size());
+    }
+
+    @Test
+    void escapesSeparatorsInTitleAndDescription() {
+        Subtask subtask = new Subtask("Купить: хлеб, молоко\\кефир", "Строка 1\nСтрока 2\r\nСтрока 3 😀", Status.DONE, 42);
+        subtask.setId(7);
+        subtask.setStartTime(LocalDateTime.of(2025, 1, 5, 8, 3));
+        subtask.setDuration(Duration.ofMinutes(90));
+
+        Subtask decoded = (Subtask) roundTrip(subtask);
+
+        assertEquals(7, decoded.getId());
+        assertEquals(subtask.getTitle(), decoded.getTitle());
+        assertEquals(subtask.getDescription(), decoded.getDescription());
+        assertEquals(Status.DONE, decoded.getStatus());
+        assertEquals(42, decoded.getEpicId());
+        assertEquals(LocalDateTime.of(2025, 1, 5, 8, 3), decoded.getStartTime());
+        assertEquals(Duration.ofMinutes(90), decoded.getDuration());
+    }
+
+    @Test
+    void emptyFieldsDecodeAsBeforeAndLegacyLinesParse() {
+        Epic epic = new Epic("Эпик", null, Status.IN_PROGRESS);
+        epic.setId(3);
+        Task decoded = roundTrip(epic);
+        assertInstanceOf(Epic.class, decoded);
+        assertNull(decoded.getDescription());
+        assertNull(decoded.getStartTime());
+
+        byte[] legacy = "12,TASK,Задача,NEW,Описание,,2025-11-03 09:15,45\r".getBytes(StandardCharsets.UTF_8);
+        Task task = codec.decode(legacy, 0, legacy.length);
+        assertEquals(12, task.getId());
+        assertEquals("Описание", task.getDescription());
+        assertEquals(LocalDateTime.of(2025, 11, 3, 9, 15), task.getStartTime());
+        assertEquals(Duration.ofMinutes(45), task.getDuration());
+    }
+
+    @Test
+    void rejectsShortLine() {
+        byte[] broken = "1,TASK,Задача".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(broken, 0, broken.length));
+    }
+}
@@ -1,13 +1,19 @@
 package ru.yandex.practicum.manager;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.exceptions.TaskIntersectionException;
 import ru.yandex.practicum.models.*;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -15,6 +21,28 @@ class FileBackedTaskManagerTest extends AbstractTaskManagerTest<FileBackedTaskMa
 
     private static final File TEST_FILE = new File("test.csv");
 
+    // Журналы просмотров, созданные тестом; удаляются после каждого теста
+    private final List<Path> historyFiles = new ArrayList<>();
+
+    @AfterEach
+    void deleteHistoryFiles() throws IOException {
+        for (Path historyFile : historyFiles) {
+            Files.deleteIfExists(historyFile);
+        }
+    }
+
+    private Path historyFile(File file) {
+        Path historyFile = Path.of(file.getPath() + ".history");
+        historyFiles.add(historyFile);
+        return historyFile;
+    }
+
+    private static StorageConfig withHistory() {
+        StorageConfig config = StorageConfig.journaled();
+        config.setHistoryPersisted(true);
+        return config;
+    }
+
     @Override
     protected FileBackedTaskManager createManager() {
         if (TEST_FILE.exists()) TEST_FILE.delete();
@@ -118,4 +146,426 @@ class FileBackedTaskManagerTest extends AbstractTaskManagerTest<FileBackedTaskMa
         assertEquals(Duration.ofMinutes(45), loadedTask.getDuration());
         assertEquals(LocalDateTime.of(2025, 11, 3, 10, 0), loadedTask.getEndTime());
     }
-}
\ No newline at end of file
+
+    @Test
+    void journaledModeAppendsInsteadOfRewritingSnapshot() throws IOException {
+        File tempFile = File.createTempFile("test", ".csv");
+        Files.delete(tempFile.toPath());
+        File journalFile = new File(tempFile.getPath() + ".journal");
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, StorageConfig.journaled());
+
+        Task task = manager.createTask(new Task("Задача", "Описание", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Subtask sub = manager.createSubtask(new Subtask("Подзадача", "Описание", Status.DONE, epic.getId()));
+        task.setTitle("Задача 2");
+        manager.updateTask(task);
+
+        assertFalse(tempFile.exists(), "Снимок не должен переписываться на каждую операцию");
+        assertEquals(4, Files.readAllLines(journalFile.toPath()).size());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, StorageConfig.journaled());
+        assertEquals("Задача 2", loaded.getTask(task.getId()).getTitle());
+        assertEquals(Status.DONE, loaded.getEpic(epic.getId()).getStatus());
+        assertEquals(1, loaded.getEpicSubtasks(epic.getId()).size());
+
+        loaded.deleteEpic(epic.getId());
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(tempFile, StorageConfig.journaled());
+        assertNull(reloaded.getEpic(epic.getId()));
+        assertNull(reloaded.getSubtask(sub.getId()));
+        assertEquals(1, reloaded.getAllTasks().size());
+
+        Files.deleteIfExists(journalFile.toPath());
+    }
+
+    @Test
+    void tornJournalTailIsDroppedOnLoad() throws IOException {
+        File tempFile = File.createTempFile("test", ".csv");
+        Files.delete(tempFile.toPath());
+        Path journalFile = Path.of(tempFile.getPath() + ".journal");
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, StorageConfig.journaled());
+        Task first = manager.createTask(new Task("Задача 1", "Описание", Status.NEW));
+        manager.createTask(new Task("Задача 2", "Описание", Status.NEW));
+        manager.close();
+        // Сбой посреди записи второй строки
+        byte[] content = Files.readAllBytes(journalFile);
+        Files.write(journalFile, Arrays.copyOf(content, content.length - 6));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, StorageConfig.journaled());
+        assertEquals(List.of(first), loaded.getAllTasks());
+        Task third = loaded.createTask(new Task("Задача 3", "Описание", Status.NEW));
+        loaded.close();
+
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(tempFile, StorageConfig.journaled());
+        assertEquals(List.of(first, third), reloaded.getAllTasks());
+        assertEquals("Задача 3", reloaded.getTask(third.getId()).getTitle());
+        reloaded.close();
+
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Test
+    void tornTransactionIsDroppedWhole() throws IOException {
+        File tempFile = File.createTempFile("test", ".csv");
+        Files.delete(tempFile.toPath());
+        Path journalFile = Path.of(tempFile.getPath() + ".journal");
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, StorageConfig.journaled());
+        Task task = manager.createTask(new Task("Задача", "Описание", Status.NEW));
+        long committed = Files.size(journalFile);
+
+        TaskTransaction transaction = manager.beginTransaction();
+        transaction.delete(task.getId());
+        transaction.createTask(new Task("Замена", "Описание", Status.NEW));
+        transaction.createTask(new Task("Ещё одна", "Описание", Status.NEW));
+        transaction.commit();
+        manager.close();
+        // Сбой после первых двух шагов транзакции: удаление дошло до диска, создание — нет
+        byte[] content = Files.readAllBytes(journalFile);
+        int cut = (int) committed;
+        for (int lines = 0; lines < 3; cut++) {
+            if (content[cut] == '\n') {
+                lines++;
+            }
+        }
+        Files.write(journalFile, Arrays.copyOf(content, cut));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, StorageConfig.journaled());
+        assertEquals(List.of(task), loaded.getAllTasks());
+        loaded.close();
+        assertEquals(committed, Files.size(journalFile), "Неполная группа отрезается от журнала");
+
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Test
+    void batchIsJournaledInOneAppend() throws IOException {
+        File tempFile = File.createTempFile("test", ".csv");
+        Files.delete(tempFile.toPath());
+        File journalFile = new File(tempFile.getPath() + ".journal");
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, StorageConfig.journaled());
+
+        Epic epic = new Epic("Эпик", "Описание", Status.NEW);
+        epic.setId(10);
+        List<Task> batch = List.of(new Task("Задача", "Описание", Status.NEW), epic,
+                new Subtask("Подзадача 1", "Описание", Status.DONE, 10),
+                new Subtask("Подзадача 2", "Описание", Status.DONE, 10));
+        List<Task> created = manager.createAll(batch);
+        assertEquals(4, manager.pendingJournalRecords());
+        manager.deleteAll(List.of(created.get(0).getId(), created.get(2).getId()));
+        // По строке на задачу и по заголовку группы на каждый пакет
+        assertEquals(8, Files.readAllLines(journalFile.toPath()).size());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, StorageConfig.journaled());
+        assertTrue(loaded.getAllTasks().isEmpty());
+        assertEquals(1, loaded.getEpicSubtasks(10).size());
+        assertEquals(Status.DONE, loaded.getEpic(10).getStatus());
+
+        Files.deleteIfExists(journalFile.toPath());
+    }
+
+    @Test
+    void transactionIsJournaledInOneAppend() throws IOException {
+        File tempFile = File.createTempFile("test", ".csv");
+        Files.delete(tempFile.toPath());
+        File journalFile = new File(tempFile.getPath() + ".journal");
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, StorageConfig.journaled());
+        Task task = manager.createTask(new Task("Задача", "Описание", Status.NEW));
+
+        TaskTransaction transaction = manager.beginTransaction();
+        int epicId = transaction.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        transaction.createSubtask(new Subtask("Подзадача", "Описание", Status.DONE, epicId));
+        Task done = new Task("Задача", "Описание", Status.DONE);
+        done.setId(task.getId());
+        transaction.updateTask(done);
+        transaction.commit();
+        assertEquals(5, Files.readAllLines(journalFile.toPath()).size());
+
+        // Откатившаяся транзакция в журнал не попадает
+        TaskTransaction failed = manager.beginTransaction();
+        failed.delete(task.getId());
+        Task first = new Task("Первая", "Описание", Status.NEW);
+        first.setStartTime(LocalDateTime.of(2025, 12, 1, 9, 0));
+        first.setDuration(Duration.ofMinutes(60));
+        failed.createTask(first);
+        failed.createTask(first);
+        assertThrows(TaskIntersectionException.class, failed::commit);
+        assertEquals(4, manager.pendingJournalRecords());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, StorageConfig.journaled());
+        assertEquals(Status.DONE, loaded.getTask(task.getId()).getStatus());
+        assertEquals(Status.DONE, loaded.getEpic(epicId).getStatus());
+        assertEquals(1, loaded.getAllTasks().size());
+
+        Files.deleteIfExists(journalFile.toPath());
+    }
+
+    @Test
+    void historySurvivesRestart() throws IOException {
+        File tempFile = File.createTempFile("test", ".csv");
+        Files.delete(tempFile.toPath());
+        Path historyFile = historyFile(tempFile);
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, withHistory());
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            ids.add(manager.createTask(new Task("Задача " + i, "Описание", Status.NEW)).getId());
+        }
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        for (int round = 0; round < 30; round++) {
+            for (Integer id : ids) {
+                manager.getTask(id);
+            }
+        }
+        manager.getEpic(epic.getId());
+        manager.getTask(ids.get(3));
+        manager.deleteTask(ids.get(14));
+        // Удалённая задача пропускается, её место занимает более давний просмотр
+        List<Integer> expected = new ArrayList<>(ids.subList(6, 14));
+        expected.add(epic.getId());
+        expected.add(ids.get(3));
+        manager.close();
+        assertTrue(Files.size(historyFile) > 400 * Integer.BYTES);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, withHistory());
+        assertEquals(expected, loaded.getHistory().stream().map(Task::getId).toList());
+        assertEquals(Long.valueOf(expected.size() * Integer.BYTES), Long.valueOf(Files.size(historyFile)));
+        loaded.close();
+
+        Files.deleteIfExists(Path.of(tempFile.getPath() + ".journal"));
+    }
+
+    @Test
+    void fewViewsReachDiskWithoutClose() throws Exception {
+        File tempFile = File.createTempFile("test", ".csv");
+        Files.delete(tempFile.toPath());
+        Path historyFile = historyFile(tempFile);
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, withHistory());
+        Task first = manager.createTask(new Task("Задача 1", "Описание", Status.NEW));
+        Task second = manager.createTask(new Task("Задача 2", "Описание", Status.NEW));
+        manager.getTask(second.getId());
+        manager.getTask(first.getId());
+
+        // Без flush и close: просмотры уходят в файл фоновым потоком
+        long deadline = System.currentTimeMillis() + 5_000;
+        while ((!Files.exists(historyFile) || Files.size(historyFile) < 2 * Integer.BYTES)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, withHistory());
+        assertEquals(List.of(second, first), loaded.getHistory());
+        loaded.close();
+        manager.close();
+
+        Files.deleteIfExists(Path.of(tempFile.getPath() + ".journal"));
+    }
+
+    @Test
+    void historyIsNotPersistedByDefault() throws IOException {
+        File tempFile = File.createTempFile("test", ".csv");
+        Files.delete(tempFile.toPath());
+        Path historyFile = historyFile(tempFile);
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, StorageConfig.journaled());
+        Task task = manager.createTask(new Task("Задача", "Описание", Status.NEW));
+        manager.getTask(task.getId());
+        manager.close();
+        assertFalse(Files.exists(historyFile));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, StorageConfig.journaled());
+        assertTrue(loaded.getHistory().isEmpty());
+        loaded.close();
+
+        Files.deleteIfExists(Path.of(tempFile.getPath() + ".journal"));
+    }
+
+    @Test
+    void checkpointWritesSnapshotAndTruncatesJournal() throws IOException {
+        File tempFile = File.createTempFile("test", ".csv");
+        File journalFile = new File(tempFile.getPath() + ".journal");
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, StorageConfig.journaled());
+
+        Task task = manager.createTask(new Task("Задача", "Описание", Status.NEW));
+        manager.checkpoint();
+        assertFalse(journalFile.exists());
+
+        manager.deleteAllTasks();
+        Task other = manager.createTask(new Task("Другая", "Описание", Status.IN_PROGRESS));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertNull(loaded.getTask(task.getId()));
+        assertEquals("Другая", loaded.getTask(other.getId()).getTitle());
+
+        Task next = loaded.createTask(new Task("Новая", "Описание", Status.NEW));
+        assertTrue(next.getId() > other.getId(), "Идентификаторы не должны повторяться после восстановления");
+        assertFalse(journalFile.exists(), "Полный снимок поглощает журнал");
+
+        Files.delete(tempFile.toPath());
+    }
+
+    @Test
+    void backgroundCompactionFoldsJournalIntoSnapshot() throws Exception {
+        File tempFile = File.createTempFile("test", ".csv");
+        File journalFile = new File(tempFile.getPath() + ".journal");
+        CompactionPolicy policy = new CompactionPolicy();
+        policy.setMaxJournalRecords(5);
+        StorageConfig config = StorageConfig.journaled();
+        config.setCompactionPolicy(policy);
+
+        try (FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, config)) {
+            for (int i = 0; i < 5; i++) {
+                manager.createTask(new Task("Задача " + i, "Описание", Status.NEW));
+            }
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (manager.getCompactionStats().getCompactions() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            manager.createTask(new Task("После компактизации", "Описание", Status.NEW));
+
+            CompactionStats stats = manager.getCompactionStats();
+            assertEquals(1, stats.getCompactions());
+            assertEquals(5, stats.getLastCompactedRecords());
+            assertTrue(stats.getLastSnapshotBytes() > 0);
+        }
+
+        assertEquals(1, Files.readAllLines(journalFile.toPath()).size());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+        assertEquals(6, loaded.getAllTasks().size());
+
+        Files.deleteIfExists(journalFile.toPath());
+        Files.deleteIfExists(tempFile.toPath());
+    }
+
+    @Test
+    void writeBehindFlushMakesBatchDurable() throws IOException {
+        for (DurabilityPolicy policy : List.of(DurabilityPolicy.perOperation(),
+                DurabilityPolicy.every(Duration.ofMillis(20)), DurabilityPolicy.osBuffered())) {
+            File tempFile = File.createTempFile("test", ".csv");
+            File journalFile = new File(tempFile.getPath() + ".journal");
+
+            int epicId;
+            try (FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, StorageConfig.writeBehind(policy))) {
+                epicId = manager.createEpic(new Epic("Импорт", "Описание", Status.NEW)).getId();
+                for (int i = 0; i < 500; i++) {
+                    manager.createSubtask(new Subtask("Подзадача " + i, "Описание", Status.DONE, epicId));
+                }
+                manager.flush();
+                assertEquals(501, Files.readAllLines(journalFile.toPath()).size(), policy.toString());
+            }
+
+            FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+            assertEquals(500, loaded.getEpicSubtasks(epicId).size());
+            assertEquals(Status.DONE, loaded.getEpic(epicId).getStatus());
+
+            Files.deleteIfExists(journalFile.toPath());
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    @Test
+    void writeBehindRequiresJournal() {
+        StorageConfig config = new StorageConfig();
+        config.setWriteBehind(true);
+        assertThrows(IllegalArgumentException.class, () -> new FileBackedTaskManager(TEST_FILE, config));
+    }
+
+    @Test
+    void binaryFormatRoundTripAndConversion() throws IOException {
+        File binaryFile = File.createTempFile("test", ".bin");
+        File csvFile = File.createTempFile("test", ".csv");
+        File backFile = File.createTempFile("test", ".bin");
+        StorageConfig config = new StorageConfig();
+        config.setFormat(StorageFormat.BINARY);
+        FileBackedTaskManager manager = new FileBackedTaskManager(binaryFile, config);
+
+        Task task = new Task("Задача с юникодом ✓", null, Status.IN_PROGRESS);
+        task.setStartTime(LocalDateTime.of(1969, 7, 20, 20, 17));
+        task.setDuration(Duration.ofMinutes(135));
+        manager.createTask(task);
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        manager.createSubtask(new Subtask("Подзадача", "Описание", Status.DONE, epic.getId()));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(binaryFile);
+        Task loadedTask = loaded.getAllTasks().getFirst();
+        assertEquals("Задача с юникодом ✓", loadedTask.getTitle());
+        assertNull(loadedTask.getDescription());
+        assertEquals(Status.IN_PROGRESS, loadedTask.getStatus());
+        assertEquals(LocalDateTime.of(1969, 7, 20, 20, 17), loadedTask.getStartTime());
+        assertEquals(Duration.ofMinutes(135), loadedTask.getDuration());
+        assertEquals(Status.DONE, loaded.getEpic(epic.getId()).getStatus());
+
+        SnapshotConverter.binaryToCsv(binaryFile, csvFile);
+        assertTrue(Files.readString(csvFile.toPath()).startsWith("id,type,title"));
+        SnapshotConverter.csvToBinary(csvFile, backFile);
+        assertArrayEquals(Files.readAllBytes(binaryFile.toPath()), Files.readAllBytes(backFile.toPath()));
+
+        Files.delete(binaryFile.toPath());
+        Files.delete(csvFile.toPath());
+        Files.delete(backFile.toPath());
+    }
+
+    @Test
+    void restoreRebuildsPrioritizedTasksAndReportsConflicts() throws IOException {
+        File tempFile = File.createTempFile("test", ".csv");
+        Files.writeString(tempFile.toPath(), String.join("\n",
+                "id,type,title,status,description,epic,startTime,duration",
+                "6,TASK,Вечер без длительности,NEW,,,2025-01-01 18:00,0",
+                "1,TASK,Утро,NEW,,,2025-01-01 09:00,60",
+                "2,EPIC,Эпик,NEW,,,,0",
+                "3,SUBTASK,Пересекается,NEW,,2,2025-01-01 09:30,60",
+                "4,TASK,Вечер,NEW,,,2025-01-01 18:00,30",
+                "5,TASK,Без времени,NEW,,,,0",
+                ""));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile);
+
+        List<Task> prioritized = loaded.getPrioritizedTasks();
+        assertEquals(List.of(1, 3, 4, 6), prioritized.stream().map(Task::getId).toList());
+        List<TaskConflict> conflicts = loaded.getRestoreConflicts();
+        assertEquals(1, conflicts.size());
+        assertEquals(1, conflicts.getFirst().getFirst().getId());
+        assertEquals(3, conflicts.getFirst().getSecond().getId());
+
+        Files.delete(tempFile.toPath());
+    }
+
+    @Test
+    void compressedSnapshotRoundTrip() throws IOException {
+        for (StorageFormat format : StorageFormat.values()) {
+            File plainFile = File.createTempFile("test", ".snapshot");
+            File compressedFile = File.createTempFile("test", ".snapshot");
+            StorageConfig config = StorageConfig.journaled();
+            config.setFormat(format);
+            config.setCompressed(true);
+            config.setCompressionLevel(6);
+            FileBackedTaskManager manager = new FileBackedTaskManager(compressedFile, config);
+
+            Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+            for (int i = 0; i < 2000; i++) {
+                Subtask sub = new Subtask("Подзадача " + i, "Описание, с запятой", Status.IN_PROGRESS, epic.getId());
+                sub.setStartTime(LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(i));
+                sub.setDuration(Duration.ofMinutes(45));
+                manager.createSubtask(sub);
+            }
+            manager.checkpoint();
+            manager.close();
+
+            CompressionStats stats = manager.getCompressionStats();
+            assertEquals(1, stats.getSaves());
+            assertEquals(Files.size(compressedFile.toPath()), stats.getLastCompressedBytes());
+            assertTrue(stats.getLastRatio() > 3, stats.toString());
+            assertTrue(SnapshotReader.isCompressed(compressedFile));
+
+            StorageConfig loadConfig = new StorageConfig();
+            loadConfig.setLoadParallelism(2);
+            FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(compressedFile, loadConfig);
+            assertEquals(2000, loaded.getAllSubtasks().size());
+            assertEquals("Описание, с запятой", loaded.getSubtask(2).getDescription());
+            assertEquals(Status.IN_PROGRESS, loaded.getEpic(epic.getId()).getStatus());
+            assertEquals(stats.getLastRawBytes(), loaded.getCompressionStats().getLastLoadRawBytes());
+
+            SnapshotConverter.convert(compressedFile, plainFile, format);
+            assertEquals(stats.getLastRawBytes(), Files.size(plainFile.toPath()));
+
+            Files.delete(plainFile.toPath());
+            Files.delete(compressedFile.toPath());
+        }
+    }
+}
@@ -5,6 +5,9 @@ import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.models.Task;
 import ru.yandex.practicum.models.Status;
 
+import java.time.LocalDateTime;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -39,4 +42,63 @@ class InMemoryHistoryManagerTest {
         }
         assertEquals(10, historyManager.getHistory().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void repeatedViewMovesToEndAndRemoveUnlinks() {
+        Task task3 = new Task("Задача 3", "Описание", Status.NEW);
+        task3.setId(3);
+        historyManager.add(task1);
+        historyManager.add(task2);
+        historyManager.add(task3);
+        historyManager.add(task1);
+        assertEquals(List.of(task2, task3, task1), historyManager.getHistory());
+
+        historyManager.remove(task3.getId());
+        historyManager.remove(42);
+        assertEquals(List.of(task2, task1), historyManager.stream().toList());
+        historyManager.remove(task2.getId());
+        historyManager.remove(task1.getId());
+        assertTrue(historyManager.getHistory().isEmpty());
+    }
+
+    @Test
+    void capacityIsConfigurable() {
+        HistoryManager large = Managers.getDefaultHistory(10_000);
+        for (int i = 0; i < 10_005; i++) {
+            Task t = new Task("Задача № " + i, "Описание", Status.NEW);
+            t.setId(i);
+            large.add(t);
+        }
+        List<Task> history = large.getHistory();
+        assertEquals(10_000, history.size());
+        assertEquals(5, history.getFirst().getId());
+        assertEquals(10_004, history.getLast().getId());
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryHistoryManager(0));
+    }
+
+    @Test
+    void streamFailsFastOnChange() {
+        historyManager.add(task1);
+        historyManager.add(task2);
+        Iterator<Task> iterator = historyManager.stream().iterator();
+        assertEquals(task1, iterator.next());
+        historyManager.add(task1);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+
+    @Test
+    void repeatedViewsShareFrozenVersion() {
+        task1.setStartTime(LocalDateTime.of(2025, 12, 1, 9, 0));
+        historyManager.add(task1);
+        Task viewed = historyManager.getHistory().getFirst();
+        historyManager.add(task2);
+        historyManager.add(task1);
+        assertSame(viewed, historyManager.getHistory().getLast());
+        assertEquals(task1.getStartTime(), viewed.getStartTime());
+
+        task1.setTitle("Изменённая");
+        historyManager.add(task1);
+        assertEquals("Задача 1", viewed.getTitle());
+        assertEquals("Изменённая", historyManager.getHistory().getLast().getTitle());
+    }
+}
@@ -9,7 +9,9 @@ import ru.yandex.practicum.models.Subtask;
 import ru.yandex.practicum.models.Task;
 
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ConcurrentModificationException;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -300,4 +302,443 @@ class InMemoryTaskManagerTest extends AbstractTaskManagerTest<InMemoryTaskManage
             manager.createSubtask(sub);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetOverlappingTasks() {
+        LocalDateTime base = LocalDateTime.of(2025, 11, 3, 9, 0);
+        for (int i = 0; i < 100; i++) {
+            Task task = new Task("Задача " + i, "Описание", Status.NEW);
+            task.setStartTime(base.plusMinutes(i * 30L));
+            task.setDuration(Duration.ofMinutes(20));
+            manager.createTask(task);
+        }
+
+        List<Task> overlapping = manager.getOverlappingTasks(base.plusMinutes(40), base.plusMinutes(95));
+        assertEquals(List.of(2, 3, 4), overlapping.stream().map(Task::getId).toList());
+        assertTrue(manager.getOverlappingTasks(base.plusMinutes(20), base.plusMinutes(30)).isEmpty());
+        assertEquals(100, manager.getOverlappingTasks(base, base.plusDays(10)).size());
+    }
+
+    @Test
+    void testUpdateAndDeleteReleaseTime() {
+        Task task = new Task("Задача", "Описание", Status.NEW);
+        task.setStartTime(LocalDateTime.of(2025, 11, 3, 10, 0));
+        task.setDuration(Duration.ofMinutes(60));
+        Task created = manager.createTask(task);
+
+        // Задача не пересекается сама с собой при обновлении
+        Task moved = new Task("Задача", "Описание", Status.IN_PROGRESS);
+        moved.setId(created.getId());
+        moved.setStartTime(LocalDateTime.of(2025, 11, 3, 10, 30));
+        moved.setDuration(Duration.ofMinutes(60));
+        manager.updateTask(moved);
+
+        Task early = new Task("Ранняя", "Описание", Status.NEW);
+        early.setStartTime(LocalDateTime.of(2025, 11, 3, 9, 30));
+        early.setDuration(Duration.ofMinutes(60));
+        manager.createTask(early);
+
+        manager.deleteAllTasks();
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+        Task again = new Task("Снова", "Описание", Status.NEW);
+        again.setStartTime(LocalDateTime.of(2025, 11, 3, 10, 0));
+        again.setDuration(Duration.ofMinutes(60));
+        assertNotNull(manager.createTask(again));
+    }
+
+    @Test
+    void testSlotCalendarAnswersAlignedChecks() {
+        InMemoryTaskManager calendarManager = new InMemoryTaskManager();
+        Task before = new Task("До календаря", "Описание", Status.NEW);
+        before.setStartTime(LocalDateTime.of(2025, 11, 3, 8, 0));
+        before.setDuration(Duration.ofMinutes(30));
+        calendarManager.createTask(before);
+
+        SlotCalendar calendar = new SlotCalendar(Duration.ofMinutes(15), LocalDate.of(2025, 11, 1), 30);
+        calendarManager.setSlotCalendar(calendar);
+
+        Task task = new Task("Задача", "Описание", Status.NEW);
+        task.setStartTime(LocalDateTime.of(2025, 11, 3, 10, 0));
+        task.setDuration(Duration.ofMinutes(60));
+        Task created = calendarManager.createTask(task);
+
+        Task overlapping = new Task("Пересекается", "Описание", Status.NEW);
+        overlapping.setStartTime(LocalDateTime.of(2025, 11, 3, 10, 45));
+        overlapping.setDuration(Duration.ofMinutes(30));
+        assertThrows(TaskIntersectionException.class, () -> calendarManager.createTask(overlapping));
+
+        Task early = new Task("Ранняя", "Описание", Status.NEW);
+        early.setStartTime(LocalDateTime.of(2025, 11, 3, 7, 45));
+        early.setDuration(Duration.ofMinutes(30));
+        assertThrows(TaskIntersectionException.class, () -> calendarManager.createTask(early));
+
+        // Сдвиг задачи на соседние слоты не конфликтует с её же прежним временем
+        Task moved = new Task("Задача", "Описание", Status.NEW);
+        moved.setId(created.getId());
+        moved.setStartTime(LocalDateTime.of(2025, 11, 3, 10, 30));
+        moved.setDuration(Duration.ofMinutes(60));
+        calendarManager.updateTask(moved);
+
+        Task freed = new Task("На освободившееся место", "Описание", Status.NEW);
+        freed.setStartTime(LocalDateTime.of(2025, 11, 3, 10, 0));
+        freed.setDuration(Duration.ofMinutes(30));
+        assertNotNull(calendarManager.createTask(freed));
+        assertEquals(0, calendar.getFallbackChecks());
+        assertEquals(5, calendar.getFastChecks());
+    }
+
+    @Test
+    void testSlotCalendarFallsBackForUnalignedTasks() {
+        InMemoryTaskManager calendarManager = new InMemoryTaskManager();
+        SlotCalendar calendar = new SlotCalendar(Duration.ofMinutes(15), LocalDate.of(2025, 11, 1), 30);
+        calendarManager.setSlotCalendar(calendar);
+
+        Task unaligned = new Task("Не по слотам", "Описание", Status.NEW);
+        unaligned.setStartTime(LocalDateTime.of(2025, 11, 3, 10, 5));
+        unaligned.setDuration(Duration.ofMinutes(20));
+        calendarManager.createTask(unaligned);
+
+        // Слот 10:00-10:15 по битам свободен, но в этом дне есть невыровненная задача
+        Task aligned = new Task("По слотам", "Описание", Status.NEW);
+        aligned.setStartTime(LocalDateTime.of(2025, 11, 3, 10, 0));
+        aligned.setDuration(Duration.ofMinutes(15));
+        assertThrows(TaskIntersectionException.class, () -> calendarManager.createTask(aligned));
+
+        Task nextDay = new Task("Другой день", "Описание", Status.NEW);
+        nextDay.setStartTime(LocalDateTime.of(2025, 11, 4, 10, 0));
+        nextDay.setDuration(Duration.ofMinutes(15));
+        calendarManager.createTask(nextDay);
+
+        Task outside = new Task("За горизонтом", "Описание", Status.NEW);
+        outside.setStartTime(LocalDateTime.of(2026, 1, 1, 10, 0));
+        outside.setDuration(Duration.ofMinutes(15));
+        calendarManager.createTask(outside);
+
+        assertEquals(3, calendar.getFallbackChecks());
+        assertEquals(1, calendar.getFastChecks());
+    }
+
+    @Test
+    void testEpicAggregatesFollowSubtaskChanges() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        LocalDateTime start = LocalDateTime.of(2025, 12, 1, 9, 0);
+        Subtask first = null;
+        Subtask last = null;
+        for (int i = 0; i < 100; i++) {
+            Subtask sub = new Subtask("Подзадача " + i, "Описание", Status.NEW, epic.getId());
+            sub.setStartTime(start.plusHours(i));
+            sub.setDuration(Duration.ofMinutes(30));
+            last = manager.createSubtask(sub);
+            if (first == null) {
+                first = last;
+            }
+        }
+        assertEquals(start, epic.getStartTime());
+        assertEquals(start.plusHours(99).plusMinutes(30), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(3000), epic.getDuration());
+
+        // Возвращённую менеджером подзадачу меняют на месте и только потом передают в update
+        first.setStatus(Status.DONE);
+        first.setStartTime(start.plusHours(200));
+        manager.updateSubtask(first);
+        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+        assertEquals(start.plusHours(1), epic.getStartTime());
+        assertEquals(start.plusHours(200).plusMinutes(30), epic.getEndTime());
+
+        manager.deleteSubtask(first.getId());
+        manager.deleteSubtask(last.getId());
+        assertEquals(Status.NEW, epic.getStatus());
+        assertEquals(start.plusHours(98).plusMinutes(30), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(98 * 30), epic.getDuration());
+    }
+
+    @Test
+    void testBulkOperationsTouchOnlyTheirKind() {
+        Task task = manager.createTask(new Task("Задача", "Описание", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", Status.DONE, epic.getId()));
+
+        assertEquals(List.of(task), manager.getAllTasks());
+        assertNull(manager.getTask(epic.getId()));
+        assertNull(manager.getTask(subtask.getId()));
+        assertNull(manager.getEpic(subtask.getId()));
+        assertFalse(manager.deleteTask(epic.getId()));
+
+        manager.deleteAllTasks();
+        assertTrue(manager.getAllTasks().isEmpty());
+        assertEquals(List.of(epic), manager.getAllEpics());
+        assertEquals(List.of(subtask), manager.getAllSubtasks());
+
+        manager.deleteAllSubtasks();
+        assertEquals(List.of(epic), manager.getAllEpics());
+        assertEquals(Status.NEW, epic.getStatus());
+    }
+
+    @Test
+    void testCreateAllChecksWholeBatch() {
+        LocalDateTime start = LocalDateTime.of(2025, 12, 10, 9, 0);
+        Task existing = new Task("Уже есть", "Описание", Status.NEW);
+        existing.setStartTime(start);
+        existing.setDuration(Duration.ofMinutes(60));
+        manager.createTask(existing);
+
+        Task first = new Task("Первая", "Описание", Status.NEW);
+        first.setStartTime(start.plusHours(2));
+        first.setDuration(Duration.ofMinutes(60));
+        Task second = new Task("Вторая", "Описание", Status.NEW);
+        second.setStartTime(start.plusHours(2).plusMinutes(30));
+        second.setDuration(Duration.ofMinutes(60));
+        assertThrows(TaskIntersectionException.class, () -> manager.createAll(List.of(first, second)));
+
+        Task clashing = new Task("С уже созданной", "Описание", Status.NEW);
+        clashing.setStartTime(start.plusMinutes(30));
+        clashing.setDuration(Duration.ofMinutes(60));
+        assertThrows(TaskIntersectionException.class, () -> manager.createAll(List.of(first, clashing)));
+        assertEquals(1, manager.getAllTasks().size(), "Отклонённый пакет ничего не меняет");
+
+        Epic epic = new Epic("Эпик", "Описание", Status.NEW);
+        epic.setId(100);
+        Subtask done = new Subtask("Готово", "Описание", Status.DONE, 100);
+        done.setStartTime(start.plusHours(4));
+        done.setDuration(Duration.ofMinutes(30));
+        Subtask open = new Subtask("Не начато", "Описание", Status.NEW, 100);
+        Subtask orphan = new Subtask("Без эпика", "Описание", Status.NEW, 999);
+
+        List<Task> created = manager.createAll(List.of(done, first, epic, open, orphan));
+        assertEquals(5, created.size());
+        assertNull(created.get(4));
+        assertEquals(100, created.get(2).getId());
+        assertEquals(2, manager.getEpicSubtasks(100).size());
+        Epic createdEpic = manager.getEpic(100);
+        assertEquals(Status.IN_PROGRESS, createdEpic.getStatus());
+        assertEquals(start.plusHours(4), createdEpic.getStartTime());
+        assertEquals(3, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void testUpdateAllAndDeleteAll() {
+        LocalDateTime start = LocalDateTime.of(2025, 12, 11, 9, 0);
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Subtask morning = new Subtask("Утро", "Описание", Status.NEW, epic.getId());
+        morning.setStartTime(start);
+        morning.setDuration(Duration.ofMinutes(60));
+        morning = manager.createSubtask(morning);
+        Task evening = new Task("Вечер", "Описание", Status.NEW);
+        evening.setStartTime(start.plusHours(8));
+        evening.setDuration(Duration.ofMinutes(60));
+        evening = manager.createTask(evening);
+
+        // Обмен временем: по одной такие обновления упёрлись бы друг в друга
+        Subtask movedMorning = new Subtask("Утро", "Описание", Status.DONE, epic.getId());
+        movedMorning.setId(morning.getId());
+        movedMorning.setStartTime(start.plusHours(8));
+        movedMorning.setDuration(Duration.ofMinutes(60));
+        Task movedEvening = new Task("Вечер", "Описание", Status.NEW);
+        movedEvening.setId(evening.getId());
+        movedEvening.setStartTime(start);
+        movedEvening.setDuration(Duration.ofMinutes(60));
+        Task missing = new Task("Нет такой", "Описание", Status.NEW);
+        missing.setId(999);
+
+        List<Task> updated = manager.updateAll(List.of(movedMorning, movedEvening, missing));
+        assertNull(updated.get(2));
+        assertEquals(List.of(evening, morning), manager.getPrioritizedTasks());
+        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(start.plusHours(8), epic.getStartTime());
+
+        List<Integer> deleted = manager.deleteAll(List.of(evening.getId(), epic.getId(), 999));
+        assertEquals(List.of(evening.getId(), morning.getId(), epic.getId()), deleted);
+        assertTrue(manager.getAllTasks().isEmpty());
+        assertTrue(manager.getAllSubtasks().isEmpty());
+        assertTrue(manager.getPrioritizedTasks().isEmpty());
+    }
+
+    @Test
+    void testDeletedTasksLeaveHistory() {
+        Task task = manager.createTask(new Task("Задача", "Описание", Status.NEW));
+        Task other = manager.createTask(new Task("Другая", "Описание", Status.NEW));
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Subtask subtask = manager.createSubtask(new Subtask("Подзадача", "Описание", Status.NEW, epic.getId()));
+        manager.getTask(task.getId());
+        manager.getTask(other.getId());
+        manager.getEpic(epic.getId());
+        manager.getSubtask(subtask.getId());
+
+        manager.deleteTask(task.getId());
+        assertEquals(List.of(other, epic, subtask), manager.getHistory());
+        manager.deleteEpic(epic.getId());
+        assertEquals(List.of(other), manager.getHistory());
+        manager.deleteAll(List.of(other.getId()));
+        assertTrue(manager.getHistory().isEmpty());
+
+        Task viewed = manager.createTask(new Task("Просмотрена", "Описание", Status.NEW));
+        manager.getTask(viewed.getId());
+        TaskTransaction transaction = manager.beginTransaction();
+        transaction.delete(viewed.getId());
+        transaction.commit();
+        assertTrue(manager.getHistory().isEmpty());
+    }
+
+    @Test
+    void testTakenIdsAreRejected() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Task sameId = new Task("Задача", "Описание", Status.NEW);
+        sameId.setId(epic.getId());
+        assertThrows(IllegalArgumentException.class, () -> manager.createTask(sameId));
+
+        Task explicit = new Task("Задача 10", "Описание", Status.NEW);
+        explicit.setId(10);
+        assertEquals(10, manager.createAll(List.of(explicit)).getFirst().getId());
+        assertEquals(11, manager.createTask(new Task("Следующая", "Описание", Status.NEW)).getId());
+
+        Task taken = new Task("Занятый id", "Описание", Status.NEW);
+        taken.setId(epic.getId());
+        Task fresh = new Task("Новая", "Описание", Status.NEW);
+        Task repeated = new Task("Повтор", "Описание", Status.NEW);
+        repeated.setId(20);
+        assertThrows(IllegalArgumentException.class, () -> manager.createAll(List.of(repeated, repeated.copy())));
+
+        TaskTransaction transaction = manager.beginTransaction();
+        transaction.createTask(fresh);
+        transaction.createTask(taken);
+        assertThrows(IllegalArgumentException.class, transaction::commit);
+        assertEquals(2, manager.getAllTasks().size());
+        assertEquals(List.of(epic), manager.getAllEpics());
+    }
+
+    @Test
+    void testRejectedBatchLeavesManagerUnchanged() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Task before = manager.createTask(new Task("Задача", "Описание", Status.NEW));
+
+        Task taken = new Task("Занятый id", "Описание", Status.NEW);
+        taken.setId(before.getId());
+        assertThrows(IllegalArgumentException.class, () -> manager.createAll(List.of(
+                new Task("Новая 1", "Описание", Status.NEW),
+                new Subtask("Подзадача", "Описание", Status.NEW, epic.getId()),
+                new Task("Новая 2", "Описание", Status.NEW),
+                taken)));
+        assertEquals(List.of(before), manager.getAllTasks());
+        assertTrue(manager.getAllSubtasks().isEmpty());
+        assertTrue(manager.getEpicSubtasks(epic.getId()).isEmpty());
+
+        // Новый id пакета не должен совпасть с заданным id из того же пакета
+        int next = before.getId() + 1;
+        Task explicit = new Task("Заданный id", "Описание", Status.NEW);
+        explicit.setId(next);
+        List<Task> created = manager.createAll(List.of(new Task("Новая", "Описание", Status.NEW), explicit));
+        assertEquals(next, created.get(1).getId());
+        assertNotEquals(next, created.get(0).getId());
+        assertEquals(3, manager.getAllTasks().size());
+    }
+
+    @Test
+    void testTransactionIsAllOrNothing() {
+        LocalDateTime start = LocalDateTime.of(2025, 12, 12, 9, 0);
+        Task busy = new Task("Занято", "Описание", Status.NEW);
+        busy.setStartTime(start.plusHours(4));
+        busy.setDuration(Duration.ofMinutes(60));
+        busy = manager.createTask(busy);
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        Subtask subtask = new Subtask("Подзадача", "Описание", Status.DONE, epic.getId());
+        subtask.setStartTime(start);
+        subtask.setDuration(Duration.ofMinutes(60));
+        subtask = manager.createSubtask(subtask);
+
+        TaskTransaction transaction = manager.beginTransaction();
+        int newEpicId = transaction.createEpic(new Epic("Новый эпик", "Описание", Status.NEW));
+        transaction.createSubtask(new Subtask("Новая подзадача", "Описание", Status.NEW, newEpicId));
+        Subtask moved = new Subtask("Подзадача", "Описание", Status.NEW, newEpicId);
+        moved.setId(subtask.getId());
+        moved.setStartTime(start.plusHours(1));
+        moved.setDuration(Duration.ofMinutes(60));
+        transaction.updateSubtask(moved);
+        transaction.delete(epic.getId());
+        Task conflicting = new Task("Мешает", "Описание", Status.NEW);
+        conflicting.setStartTime(start.plusHours(4).plusMinutes(30));
+        conflicting.setDuration(Duration.ofMinutes(60));
+        transaction.createTask(conflicting);
+
+        assertThrows(TaskIntersectionException.class, transaction::commit);
+        assertTrue(transaction.isActive());
+        assertNull(manager.getEpic(newEpicId));
+        assertEquals(List.of(epic), manager.getAllEpics());
+        assertEquals(List.of(subtask), manager.getEpicSubtasks(epic.getId()));
+        assertEquals(start, subtask.getStartTime());
+        assertEquals(Status.DONE, epic.getStatus());
+        assertEquals(List.of(subtask, busy), manager.getPrioritizedTasks());
+
+        transaction.rollback();
+        assertFalse(transaction.isActive());
+        assertThrows(IllegalStateException.class, transaction::commit);
+    }
+
+    @Test
+    void testTransactionAppliesOnCommitOnly() {
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+        int subtaskId;
+        try (TaskTransaction transaction = manager.beginTransaction()) {
+            subtaskId = transaction.createSubtask(new Subtask("Подзадача", "Описание", Status.DONE, epic.getId()));
+            assertNull(manager.getSubtask(subtaskId));
+        }
+        assertTrue(manager.getAllSubtasks().isEmpty());
+
+        TaskTransaction transaction = manager.beginTransaction();
+        subtaskId = transaction.createSubtask(new Subtask("Подзадача", "Описание", Status.DONE, epic.getId()));
+        Epic renamed = new Epic("Переименован", "Описание", Status.NEW);
+        renamed.setId(epic.getId());
+        transaction.updateEpic(renamed);
+        transaction.commit();
+
+        assertEquals("Подзадача", manager.getSubtask(subtaskId).getTitle());
+        assertEquals("Переименован", epic.getTitle());
+        assertEquals(Status.DONE, epic.getStatus());
+    }
+
+    @Test
+    void testPagesFollowCursors() {
+        LocalDateTime start = LocalDateTime.of(2025, 12, 13, 9, 0);
+        for (int i = 0; i < 5; i++) {
+            Task task = new Task("Задача " + i, "Описание", Status.NEW);
+            task.setStartTime(start.minusHours(i));
+            task.setDuration(Duration.ofMinutes(30));
+            manager.createTask(task);
+        }
+
+        Page<Task> first = manager.getTasks(null, 2);
+        assertEquals(List.of("Задача 0", "Задача 1"), first.getItems().stream().map(Task::getTitle).toList());
+        manager.createTask(new Task("Задача 5", "Описание", Status.NEW));
+        Page<Task> second = manager.getTasks(first.getNextCursor(), 10);
+        assertEquals(4, second.getItems().size());
+        assertFalse(second.hasNext());
+
+        Page<Task> early = manager.getPrioritizedTasks(null, 3);
+        assertEquals("Задача 4", early.getItems().getFirst().getTitle());
+        manager.deleteTask(early.getItems().getFirst().getId());
+        Page<Task> late = manager.getPrioritizedTasks(early.getNextCursor(), 3);
+        assertEquals(List.of("Задача 1", "Задача 0"), late.getItems().stream().map(Task::getTitle).toList());
+        assertFalse(late.hasNext());
+
+        assertThrows(ConcurrentModificationException.class,
+                () -> manager.getTasks(first.getNextCursor(), 2));
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasks("не курсор", 2));
+        assertEquals(5, manager.streamTasks().count());
+        assertEquals(4, manager.streamPrioritizedTasks().count());
+    }
+
+    @Test
+    void testReadsAreCountedForHotTasks() {
+        Task hot = manager.createTask(new Task("Горячая", "Описание", Status.NEW));
+        Task cold = manager.createTask(new Task("Холодная", "Описание", Status.NEW));
+        for (int i = 0; i < 50; i++) {
+            manager.getTask(hot.getId());
+        }
+        manager.getTask(cold.getId());
+        manager.getTask(999);
+
+        AccessStatistics statistics = manager.getAccessStatistics();
+        assertTrue(statistics.estimate(hot.getId()) >= 50);
+        assertEquals(hot.getId(), statistics.getTop().getFirst().id());
+        assertEquals(0, statistics.estimate(999));
+    }
+}
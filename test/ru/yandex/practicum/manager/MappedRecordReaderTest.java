@@ -0,0 +1,61 @@
+package ru.yandex.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedRecordReaderTest {
+
+    @Test
+    void readsLinesLongerThanWindow() throws IOException {
+        File tempFile = File.createTempFile("test", ".csv");
+        List<String> lines = List.of("a", "", "строка длиннее окна чтения", "bb", "последняя без перевода");
+        Files.writeString(tempFile.toPath(), String.join("\n", lines));
+
+        List<String> read = new ArrayList<>();
+        try (MappedRecordReader reader = new MappedRecordReader(tempFile.toPath(),
+                MappedRecordReader.Framing.LINES, 0, 8)) {
+            while (reader.next()) {
+                read.add(new String(reader.data(), 0, reader.length(), StandardCharsets.UTF_8));
+            }
+        }
+
+        assertEquals(lines, read);
+        Files.delete(tempFile.toPath());
+    }
+
+    @Test
+    void readsLengthPrefixedRecordsAcrossWindows() throws IOException {
+        File tempFile = File.createTempFile("test", ".bin");
+        RecordBuffer buffer = new RecordBuffer(16);
+        buffer.writeBytes(BinaryTaskCodec.MAGIC, 0, BinaryTaskCodec.MAGIC.length);
+        for (int length : new int[]{0, 3, 200, 1, 7}) {
+            buffer.writeVarInt(length);
+            for (int i = 0; i < length; i++) {
+                buffer.writeByte(length);
+            }
+        }
+        Files.write(tempFile.toPath(), buffer.toByteArray());
+
+        List<Integer> lengths = new ArrayList<>();
+        try (MappedRecordReader reader = new MappedRecordReader(tempFile.toPath(),
+                MappedRecordReader.Framing.LENGTH_PREFIXED, BinaryTaskCodec.MAGIC.length, 16)) {
+            while (reader.next()) {
+                lengths.add(reader.length());
+                for (int i = 0; i < reader.length(); i++) {
+                    assertEquals((byte) reader.length(), reader.data()[i]);
+                }
+            }
+        }
+
+        assertEquals(List.of(0, 3, 200, 1, 7), lengths);
+        Files.delete(tempFile.toPath());
+    }
+}
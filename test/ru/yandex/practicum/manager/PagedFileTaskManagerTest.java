@@ -0,0 +1,150 @@
+package ru.yandex.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.models.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedFileTaskManagerTest {
+
+    @Test
+    void updateRewritesOnlyTouchedRecord() throws IOException {
+        File tempFile = File.createTempFile("test", ".pages");
+        try (PagedFileTaskManager manager = PagedFileTaskManager.loadFromFile(tempFile)) {
+            Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+            Subtask last = null;
+            for (int i = 0; i < 5000; i++) {
+                Subtask sub = new Subtask("Подзадача " + i, "Описание подзадачи", Status.NEW, epic.getId());
+                sub.setStartTime(LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(i));
+                sub.setDuration(Duration.ofMinutes(30));
+                last = manager.createSubtask(sub);
+            }
+            long fileSize = Files.size(tempFile.toPath());
+
+            Subtask update = new Subtask(last.getTitle(), "Новое описание", Status.DONE, epic.getId());
+            update.setId(last.getId());
+            update.setStartTime(last.getStartTime());
+            update.setDuration(last.getDuration());
+            manager.updateSubtask(update);
+
+            assertEquals(PagedRecordStore.SLOT_SIZE, manager.getLastFlushBytes());
+            assertEquals(1, manager.getLastFlushPages());
+            assertEquals(fileSize, Files.size(tempFile.toPath()));
+        }
+
+        try (PagedFileTaskManager loaded = PagedFileTaskManager.loadFromFile(tempFile)) {
+            assertEquals(5000, loaded.getAllSubtasks().size());
+            Epic epic = loaded.getAllEpics().getFirst();
+            assertEquals(Status.IN_PROGRESS, epic.getStatus());
+            assertEquals(LocalDateTime.of(2025, 1, 1, 0, 0), epic.getStartTime());
+            Subtask updated = loaded.getSubtask(5001);
+            assertEquals("Новое описание", updated.getDescription());
+            assertEquals(Status.DONE, updated.getStatus());
+        } finally {
+            Files.delete(tempFile.toPath());
+        }
+    }
+
+    @Test
+    void freedSlotsAreReused() throws IOException {
+        File tempFile = File.createTempFile("test", ".pages");
+        try (PagedFileTaskManager manager = PagedFileTaskManager.loadFromFile(tempFile)) {
+            for (int i = 0; i < 10; i++) {
+                manager.createTask(new Task("Задача " + i, "Описание", Status.NEW));
+            }
+            int slots = manager.getSlotCount();
+
+            manager.deleteTask(3);
+            manager.deleteTask(4);
+            manager.createTask(new Task("Новая задача", "Описание", Status.NEW));
+
+            assertEquals(slots, manager.getSlotCount());
+            assertNull(manager.getTask(3));
+        }
+
+        try (PagedFileTaskManager loaded = PagedFileTaskManager.loadFromFile(tempFile)) {
+            assertEquals(9, loaded.getAllTasks().size());
+            assertEquals("Новая задача", loaded.getTask(11).getTitle());
+            assertEquals(12, loaded.createTask(new Task("Ещё задача", null, Status.NEW)).getId());
+        } finally {
+            Files.delete(tempFile.toPath());
+        }
+    }
+
+    @Test
+    void deleteEpicReleasesSubtaskRecords() throws IOException {
+        File tempFile = File.createTempFile("test", ".pages");
+        try (PagedFileTaskManager manager = PagedFileTaskManager.loadFromFile(tempFile)) {
+            manager.createTask(new Task("Задача", "Описание", Status.NEW));
+            Epic epic = manager.createEpic(new Epic("Эпик", "Описание", Status.NEW));
+            manager.createSubtask(new Subtask("Подзадача 1", "Описание", Status.NEW, epic.getId()));
+            manager.createSubtask(new Subtask("Подзадача 2", "Описание", Status.NEW, epic.getId()));
+
+            manager.deleteEpic(epic.getId());
+            assertEquals(1, manager.getSlotCount());
+        }
+
+        try (PagedFileTaskManager loaded = PagedFileTaskManager.loadFromFile(tempFile)) {
+            assertEquals(1, loaded.getAllTasks().size());
+            assertTrue(loaded.getAllEpics().isEmpty());
+            assertTrue(loaded.getAllSubtasks().isEmpty());
+        } finally {
+            Files.delete(tempFile.toPath());
+        }
+    }
+
+    @Test
+    void newerCopyWinsAfterCrashBeforeRelease() throws IOException {
+        File tempFile = File.createTempFile("test", ".pages");
+        Path path = tempFile.toPath();
+        Task first = task(1, "Первая");
+        // Записи в слотах 0, 1–2 и 3
+        Task wide = task(2, "x".repeat(150));
+        Task moved = task(3, "Старое описание");
+        long oldOffset = PagedRecordStore.PAGE_SIZE + 3L * PagedRecordStore.SLOT_SIZE;
+        byte[] oldCopy;
+        try (PagedRecordStore store = new PagedRecordStore(path)) {
+            store.put(first);
+            store.put(wide);
+            store.put(moved);
+            store.remove(wide.getId());
+            oldCopy = Arrays.copyOfRange(Files.readAllBytes(path), (int) oldOffset,
+                    (int) oldOffset + PagedRecordStore.SLOT_SIZE);
+            // Новая копия больше и ложится в освободившиеся слоты левее старой
+            store.put(task(3, "y".repeat(150)));
+            store.flush();
+        }
+        // Сбой до освобождения старой копии: она осталась в файле правее новой
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(oldCopy), oldOffset);
+        }
+
+        List<Task> loaded = new ArrayList<>();
+        try (PagedRecordStore store = new PagedRecordStore(path)) {
+            store.load(loaded::add);
+        } finally {
+            Files.delete(path);
+        }
+        assertEquals(2, loaded.size());
+        assertEquals("y".repeat(150), loaded.get(1).getDescription());
+    }
+
+    private static Task task(int id, String description) {
+        Task task = new Task("Задача " + id, description, Status.NEW);
+        task.setId(id);
+        return task;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.models.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSnapshotLoaderTest {
+
+    private static void fill(FileBackedTaskManager manager) {
+        for (int e = 0; e < 20; e++) {
+            Epic epic = manager.createEpic(new Epic("Эпик " + e, "Описание, с запятой", Status.NEW));
+            for (int s = 0; s < 50; s++) {
+                Subtask sub = new Subtask("Подзадача " + s, "Описание", s % 3 == 0 ? Status.DONE : Status.NEW,
+                        epic.getId());
+                sub.setStartTime(LocalDateTime.of(2025, 1, 1, 0, 0).plusHours(e * 100L + s));
+                sub.setDuration(Duration.ofMinutes(30));
+                manager.createSubtask(sub);
+            }
+            manager.createTask(new Task("Задача " + e, null, Status.IN_PROGRESS));
+        }
+    }
+
+    @Test
+    void chunksCoverEveryRecordOnce() throws IOException {
+        for (StorageFormat format : StorageFormat.values()) {
+            File tempFile = File.createTempFile("test", ".snapshot");
+            StorageConfig config = StorageConfig.journaled();
+            config.setFormat(format);
+            FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, config);
+            fill(manager);
+            manager.checkpoint();
+
+            List<Integer> sequential = new ArrayList<>();
+            SnapshotReader.read(tempFile, task -> sequential.add(task.getId()));
+
+            ForkJoinPool pool = new ForkJoinPool(4);
+            List<List<Task>> chunks = new ParallelSnapshotLoader(pool, 1024).load(tempFile);
+            pool.shutdown();
+
+            assertTrue(chunks.size() > 1, "Файл должен разбиться на несколько фрагментов");
+            List<Integer> parallel = new ArrayList<>();
+            chunks.forEach(chunk -> chunk.forEach(task -> parallel.add(task.getId())));
+            assertEquals(sequential, parallel, format.name());
+
+            Files.delete(tempFile.toPath());
+        }
+    }
+
+    @Test
+    void parallelLoadRebuildsEpics() throws IOException {
+        File tempFile = File.createTempFile("test", ".csv");
+        FileBackedTaskManager manager = new FileBackedTaskManager(tempFile, StorageConfig.journaled());
+        fill(manager);
+        manager.checkpoint();
+        manager.deleteSubtask(manager.getAllSubtasks().getFirst().getId());
+
+        StorageConfig config = new StorageConfig();
+        config.setLoadParallelism(4);
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(tempFile, config);
+
+        assertEquals(manager.getAllTasks().size(), loaded.getAllTasks().size());
+        assertEquals(manager.getAllSubtasks().size(), loaded.getAllSubtasks().size());
+        for (Epic epic : manager.getAllEpics()) {
+            Epic restored = loaded.getEpic(epic.getId());
+            assertEquals(epic.getStatus(), restored.getStatus());
+            assertEquals(epic.getStartTime(), restored.getStartTime());
+            assertEquals(epic.getEndTime(), restored.getEndTime());
+            assertEquals(epic.getSubtaskIds().size(), restored.getSubtaskIds().size());
+        }
+
+        Files.deleteIfExists(new File(tempFile.getPath() + ".journal").toPath());
+        Files.delete(tempFile.toPath());
+    }
+}
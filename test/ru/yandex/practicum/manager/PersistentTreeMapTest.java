@@ -0,0 +1,58 @@
+package ru.yandex.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentTreeMapTest {
+
+    @Test
+    void oldVersionsStayUnchanged() {
+        PersistentTreeMap<Integer, String> empty = new PersistentTreeMap<>(Comparator.naturalOrder());
+        PersistentTreeMap<Integer, String> one = empty.put(1, "один");
+        PersistentTreeMap<Integer, String> two = one.put(2, "два").put(1, "first");
+        PersistentTreeMap<Integer, String> removed = two.remove(2);
+
+        assertEquals(0, empty.size());
+        assertEquals(List.of("один"), one.values());
+        assertEquals(List.of("first", "два"), two.values());
+        assertEquals(List.of("first"), removed.values());
+        assertSame(removed, removed.remove(5));
+    }
+
+    @Test
+    void matchesTreeMapOnRandomOperations() {
+        Random random = new Random(7);
+        PersistentTreeMap<Integer, Integer> map = new PersistentTreeMap<>(Comparator.naturalOrder());
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int step = 0; step < 50_000; step++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, step);
+                expected.put(key, step);
+            }
+            assertEquals(expected.get(key), map.get(key));
+
+            if (step % 5000 == 0) {
+                assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(map.values()));
+                int from = random.nextInt(2000);
+                int to = from + random.nextInt(300);
+                List<Integer> range = map.values(from, to);
+                assertEquals(new ArrayList<>(expected.subMap(from, to).values()), new ArrayList<>(range));
+                for (int i = 0; i < range.size(); i++) {
+                    assertEquals(expected.subMap(from, to).values().toArray()[i], range.get(i));
+                }
+            }
+        }
+        assertEquals(expected.size(), map.size());
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.manager;
+
+import ru.yandex.practicum.models.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+// Запуск: java ru.yandex.practicum.manager.RestoreBenchmark [число задач]
+// Печатает время от начала загрузки до первого ответа getPrioritizedTasks()
+// и для сравнения время построения индекса n вставками в TreeSet
+public class RestoreBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        File file = File.createTempFile("restore", ".bin");
+
+        // Задачи пишутся в снимок напрямую: через менеджер каждая вставка проверяла бы пересечения
+        SnapshotWriter writer = new SnapshotWriter(StorageFormat.BINARY);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < count; i++) {
+            Task task = new Task("Задача " + i, null, Status.NEW);
+            task.setId(i + 1);
+            // Порядок в файле не совпадает с порядком по времени
+            task.setStartTime(start.plusMinutes(((i * 7919L) % count) * 30));
+            task.setDuration(Duration.ofMinutes(25));
+            writer.add(task);
+        }
+        SnapshotWriter.writeAtomically(file, writer.toByteArray());
+
+        for (int round = 0; round < 3; round++) {
+            long begin = System.nanoTime();
+            FileBackedTaskManager manager = FileBackedTaskManager.loadFromFile(file);
+            Task first = manager.getPrioritizedTasks().getFirst();
+            long loaded = System.nanoTime() - begin;
+
+            List<Task> all = manager.getAllTasks();
+            begin = System.nanoTime();
+            TreeSet<Task> naive = new TreeSet<>(Comparator
+                    .comparing(Task::getStartTime, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(Task::getId));
+            for (Task task : new ArrayList<>(all)) {
+                naive.add(task);
+            }
+            long inserts = System.nanoTime() - begin;
+
+            System.out.printf("%d задач: до первого запроса %d мс (первая id=%d, конфликтов %d), "
+                            + "индекс вставками %d мс%n", count, loaded / 1_000_000, first.getId(),
+                    manager.getRestoreConflicts().size(), inserts / 1_000_000);
+        }
+        Files.delete(file.toPath());
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.models.Status;
+import ru.yandex.practicum.models.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedHistoryManagerTest {
+
+    @Test
+    void sessionsKeepSeparateHistories() {
+        ShardedHistoryManager history = new ShardedHistoryManager(2);
+        Task task1 = task(1);
+        Task task2 = task(2);
+        Task task3 = task(3);
+
+        history.add(task1);
+        ShardedHistoryManager.Scope scope = history.openSession("анна");
+        try {
+            history.add(task2);
+            history.add(task3);
+            history.add(task2);
+            assertEquals(List.of(task3, task2), history.getHistory());
+            history.add(task1);
+            assertEquals(List.of(task2, task1), history.getHistory());
+        } finally {
+            scope.close();
+        }
+        assertEquals(List.of(task1), history.getHistory());
+        assertEquals(List.of(task2, task1), history.getHistory("анна"));
+
+        history.remove(task1.getId());
+        assertTrue(history.getHistory().isEmpty());
+        assertEquals(List.of(task2), history.getHistory("анна"));
+        history.endSession("анна");
+        assertTrue(history.getHistory("анна").isEmpty());
+    }
+
+    @Test
+    void concurrentReadersGetTheirOwnHistory() throws Exception {
+        ShardedHistoryManager history = Managers.getSessionHistory(10);
+        TaskManager manager = new ConcurrentTaskManager(history);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(manager.createTask(new Task("Задача " + i, "Описание", Status.NEW)).getId());
+        }
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Task>>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int session = t;
+            results.add(executor.submit(() -> {
+                ShardedHistoryManager.Scope scope = history.openSession(session);
+                try {
+                    for (int round = 0; round < 1_000; round++) {
+                        for (int i = 0; i < 20; i++) {
+                            manager.getTask(ids.get((i + session) % ids.size()));
+                        }
+                    }
+                    return manager.getHistory();
+                } finally {
+                    scope.close();
+                }
+            }));
+        }
+        for (int t = 0; t < threads; t++) {
+            List<Task> seen = results.get(t).get();
+            assertEquals(10, seen.size());
+            assertEquals(ids.get((19 + t) % ids.size()), Integer.valueOf(seen.getLast().getId()));
+        }
+        executor.shutdown();
+        assertEquals(threads, history.getSessionCount());
+    }
+
+    private static Task task(int id) {
+        Task task = new Task("Задача " + id, "Описание", Status.NEW);
+        task.setId(id);
+        return task;
+    }
+}
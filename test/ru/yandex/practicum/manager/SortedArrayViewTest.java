@@ -0,0 +1,39 @@
+package ru.yandex.practicum.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedArrayViewTest {
+
+    @Test
+    void rangeViewsMatchTreeSet() {
+        Integer[] items = {1, 3, 5, 7, 9};
+        SortedSet<Integer> view = new SortedArrayView<>(items, Comparator.naturalOrder());
+        TreeSet<Integer> tree = new TreeSet<>(List.of(items));
+
+        for (int from = 0; from <= 10; from++) {
+            assertEquals(List.copyOf(tree.tailSet(from)), List.copyOf(view.tailSet(from)));
+            assertEquals(List.copyOf(tree.headSet(from)), List.copyOf(view.headSet(from)));
+            for (int to = from; to <= 10; to++) {
+                assertEquals(List.copyOf(tree.subSet(from, to)), List.copyOf(view.subSet(from, to)));
+            }
+            assertEquals(tree.contains(from), view.contains(from));
+        }
+        SortedSet<Integer> middle = view.subSet(2, 8);
+        assertEquals(Integer.valueOf(3), middle.first());
+        assertEquals(Integer.valueOf(7), middle.last());
+        assertEquals(List.of(5, 7), List.copyOf(middle.tailSet(4)));
+        assertTrue(view.subSet(4, 5).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> view.subSet(5, 4));
+
+        TreeSet<Integer> built = new TreeSet<>(Comparator.naturalOrder());
+        built.addAll(view);
+        assertEquals(tree, built);
+    }
+}
@@ -2,6 +2,10 @@ package ru.yandex.practicum.models;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class TaskTest {
@@ -46,4 +50,68 @@ class TaskTest {
 
         assertEquals(s1, s2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void epicListsSubtasksByIdAfterRemoval() {
+        Epic epic = new Epic("Эпик 1", "Описание", Status.NEW);
+        epic.setId(5);
+        for (int id = 1; id <= 4; id++) {
+            Subtask subtask = new Subtask("Подзадача " + id, "Описание", Status.NEW, 5);
+            subtask.setId(id);
+            epic.addSubtask(subtask);
+        }
+        epic.removeSubtask(1);
+
+        assertEquals(List.of(2, 3, 4), epic.getSubtaskIds());
+    }
+
+    @Test
+    void frozenVersionIsSharedUntilChange() {
+        Subtask subtask = new Subtask("Подзадача 1", "Описание", Status.NEW, 1);
+        subtask.setId(2);
+        subtask.setStartTime(LocalDateTime.of(2025, 12, 1, 9, 0));
+        subtask.setDuration(Duration.ofMinutes(30));
+
+        Task frozen = subtask.freeze();
+        assertSame(frozen, subtask.freeze());
+        assertSame(frozen, frozen.freeze());
+        assertTrue(frozen.isFrozen());
+        assertEquals(subtask.getVersion(), frozen.getVersion());
+        assertEquals(subtask.getStartTime(), frozen.getStartTime());
+        assertEquals(1, ((Subtask) frozen).getEpicId());
+        assertThrows(UnsupportedOperationException.class, () -> frozen.setTitle("Другое"));
+
+        long version = subtask.getVersion();
+        subtask.setStatus(Status.DONE);
+        assertTrue(subtask.getVersion() > version);
+        Task next = subtask.freeze();
+        assertNotSame(frozen, next);
+        assertEquals(Status.NEW, frozen.getStatus());
+        assertEquals(Status.DONE, next.getStatus());
+        assertFalse(next.copy().isFrozen());
+    }
+
+    @Test
+    void copyMadeDuringChangeIsNotReused() {
+        Task task = new Task("Старое", "Описание", Status.NEW) {
+            private boolean racing = true;
+
+            // Писатель меняет задачу, пока читатель снимает с неё копию
+            @Override
+            public Task copy() {
+                Task copy = super.copy();
+                if (racing) {
+                    racing = false;
+                    setTitle("Новое");
+                }
+                return copy;
+            }
+        };
+
+        Task stale = task.freeze();
+        assertEquals("Старое", stale.getTitle());
+        Task current = task.freeze();
+        assertEquals("Новое", current.getTitle());
+        assertSame(current, task.freeze());
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Запуск: java -Xmx2g ru.yandex.practicum.util.IntObjectMapBenchmark [число ключей]
+// Печатает занятую отображением память на элемент и время вставки, поиска и обхода
+// для HashMap<Integer, Object> и IntObjectMap<Object> с ключами 1..n, как у id задач
+public class IntObjectMapBenchmark {
+    private static final Object VALUE = new Object();
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        for (int round = 0; round < 3; round++) {
+            measureHashMap(count);
+            measureIntObjectMap(count);
+        }
+    }
+
+    private static void measureHashMap(int count) {
+        long before = usedMemory();
+        long begin = System.nanoTime();
+        Map<Integer, Object> map = new HashMap<>();
+        for (int id = 1; id <= count; id++) {
+            map.put(id, VALUE);
+        }
+        long put = System.nanoTime() - begin;
+        long footprint = usedMemory() - before;
+
+        begin = System.nanoTime();
+        long found = 0;
+        for (int id = 1; id <= count; id++) {
+            if (map.get(id) != null) {
+                found++;
+            }
+        }
+        long get = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        long visited = 0;
+        for (Object value : map.values()) {
+            if (value != null) {
+                visited++;
+            }
+        }
+        long iterate = System.nanoTime() - begin;
+        report("HashMap", count, footprint, put, get, iterate, found + visited + map.size());
+    }
+
+    private static void measureIntObjectMap(int count) {
+        long before = usedMemory();
+        long begin = System.nanoTime();
+        IntObjectMap<Object> map = new IntObjectMap<>();
+        for (int id = 1; id <= count; id++) {
+            map.put(id, VALUE);
+        }
+        long put = System.nanoTime() - begin;
+        long footprint = usedMemory() - before;
+
+        begin = System.nanoTime();
+        long found = 0;
+        for (int id = 1; id <= count; id++) {
+            if (map.get(id) != null) {
+                found++;
+            }
+        }
+        long get = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        long visited = 0;
+        for (int i = 0; i < map.size(); i++) {
+            if (map.valueAt(i) != null) {
+                visited++;
+            }
+        }
+        long iterate = System.nanoTime() - begin;
+        report("IntObjectMap", count, footprint, put, get, iterate, found + visited + map.size());
+    }
+
+    private static void report(String name, int count, long footprint, long put, long get, long iterate,
+                               long checksum) {
+        System.out.printf("%-12s %d ключей: %.1f байт/элемент, вставка %d мс, поиск %d мс, обход %d мс (%d)%n",
+                name, count, (double) footprint / count, put / 1_000_000, get / 1_000_000,
+                iterate / 1_000_000, checksum);
+    }
+
+    // Память после сборки мусора; отображение ещё достижимо, поэтому в разницу попадает целиком
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectMapTest {
+
+    @Test
+    void putGetRemove() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        assertNull(map.put(1, "один"));
+        assertNull(map.put(2, "два"));
+        assertEquals("один", map.put(1, "first"));
+
+        assertEquals(2, map.size());
+        assertEquals("first", map.get(1));
+        assertNull(map.get(3));
+        assertTrue(map.containsKey(2));
+
+        assertEquals("first", map.remove(1));
+        assertNull(map.remove(1));
+        assertFalse(map.containsKey(1));
+        assertEquals(1, map.size());
+        assertEquals(2, map.keyAt(0));
+        assertEquals("два", map.valueAt(0));
+    }
+
+    @Test
+    void iterationKeepsInsertionOrderWithoutRemovals() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        for (int i = 100; i > 0; i--) {
+            map.put(i, i * 10);
+        }
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals(100 - i, map.keyAt(i));
+            assertEquals(Integer.valueOf((100 - i) * 10), map.valueAt(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> map.keyAt(100));
+    }
+
+    @Test
+    void streamFailsFastOnRemovalOnly() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, "один");
+        map.put(2, "два");
+        int layout = map.layoutVersion();
+        assertEquals(List.of("один", "два"), map.stream().toList());
+
+        Iterator<String> iterator = map.stream().iterator();
+        assertEquals("один", iterator.next());
+        map.put(3, "три");
+        assertEquals(layout, map.layoutVersion());
+        assertEquals("два", iterator.next());
+
+        map.remove(1);
+        assertNotEquals(layout, map.layoutVersion());
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+
+    @Test
+    void removeIfDropsMatchingValues() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        assertTrue(map.removeIf(value -> value % 3 == 0));
+        assertEquals(666, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 3 != 0, map.containsKey(i));
+        }
+    }
+
+    @Test
+    void matchesHashMapOnRandomOperations() {
+        Random random = new Random(42);
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 200_000; step++) {
+            // Узкий диапазон ключей — много совпадений и удалений из середины цепочек
+            int key = random.nextInt(5000) - 1000;
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.put(key, step), map.put(key, step));
+                case 1 -> assertEquals(expected.remove(key), map.remove(key));
+                default -> assertEquals(expected.get(key), map.get(key));
+            }
+            if (step % 50_000 == 0) {
+                map.clear();
+                expected.clear();
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals(expected.get(map.keyAt(i)), map.valueAt(i));
+        }
+    }
+}